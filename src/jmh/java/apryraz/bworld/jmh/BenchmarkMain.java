@@ -0,0 +1,49 @@
+package apryraz.bworld.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Main program of the benchmarks. Runs the benchmarks selected in the command
+ * line (all of them by default, with the usual JMH options) with the allocation
+ * profiler, and stores the results in JSON format so they can be compared
+ * between versions.
+ **/
+public class BenchmarkMain {
+
+	/**
+	 * File with the results, unless another one is given with -rff.
+	 */
+	public static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args JMH command line options, i.e "-p dim=5,10 FinderBenchmark".
+	 * @throws CommandLineOptionException if some option is not valid.
+	 * @throws RunnerException            if some benchmark fails.
+	 **/
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(commandLine);
+		builder.addProfiler(GCProfiler.class);
+		if (!commandLine.getResult().hasValue()) {
+			builder.result(DEFAULT_RESULT_FILE);
+		}
+		if (!commandLine.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		Options options = builder.build();
+		new Runner(options).run();
+	}
+
+}
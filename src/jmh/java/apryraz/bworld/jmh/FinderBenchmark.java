@@ -0,0 +1,133 @@
+package apryraz.bworld.jmh;
+
+import apryraz.bworld.BFState;
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.InferenceEngines;
+import apryraz.bworld.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmark of one step of the BarcenasFinder agent, for every answer of the
+ * sound sensor. The engine is the compact SAT4J one by default, because the
+ * full encoding of the biggest worlds does not fit in memory; use
+ * -p engine=... to measure another one.
+ * <p>
+ * A step changes the knowledge of the agent, so every step needs a new agent.
+ * Instead of a setup per invocation, whose overhead is of the order of the
+ * shortest steps, every iteration is a single shot of a batch of steps, each
+ * one with its own agent built before the iteration. The score is the time
+ * of the whole batch of STEPS_PER_BATCH steps.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = FinderBenchmark.STEPS_PER_BATCH)
+@Measurement(iterations = 20, batchSize = FinderBenchmark.STEPS_PER_BATCH)
+@Fork(1)
+public class FinderBenchmark {
+
+	/**
+	 * Number of steps, and of agents, of every iteration.
+	 */
+	public static final int STEPS_PER_BATCH = 20;
+
+	/**
+	 * Dimension of the world.
+	 */
+	@Param({"5", "10", "25", "50", "100"})
+	public int dim;
+
+	/**
+	 * Specification of the inference engine (see InferenceEngines).
+	 */
+	@Param({"sat,compact"})
+	public String engine;
+
+	/**
+	 * Answer of the sound sensor in the measured step, as the position of
+	 * Barcenas with respect to the agent.
+	 */
+	@Param({"ABOVE_RIGHT", "ABOVE_LEFT", "BELOW_RIGHT", "BELOW_LEFT",
+		   "ABOVE", "BELOW", "LEFT", "RIGHT", "HERE"})
+	public String reading;
+
+	/**
+	 * Agents ready to perform the measured steps of the iteration.
+	 */
+	private BarcenasFinder[] agents = new BarcenasFinder[STEPS_PER_BATCH];
+
+	/**
+	 * Agent of the next measured step.
+	 */
+	private int nextAgent;
+
+
+	/**
+	 * Makes the agents of an iteration. Every agent moves to the centre of the
+	 * world and Barcenas is placed next to it, so the sound sensor gives the
+	 * selected answer.
+	 **/
+	@Setup(Level.Iteration)
+	public void makeAgents() {
+		int centre = (dim + 1) / 2;
+		int dx = reading.contains("RIGHT") ? 1 : reading.contains("LEFT") ? -1 : 0;
+		int dy = reading.contains("ABOVE") ? 1 : reading.contains("BELOW") ? -1 : 0;
+		for (int a = 0; a < agents.length; a++) {
+			BarcenasWorldEnv env = new BarcenasWorldEnv(dim, centre + dx, centre + dy);
+			env.setEventSink(EventSinks.NONE);
+			agents[a] = new BarcenasFinder(dim, InferenceEngines.create(engine, dim), EventSinks.NONE);
+			agents[a].setEnvironment(env);
+			agents[a].setListOfSteps(Collections.singletonList(new Position(centre, centre)));
+		}
+		nextAgent = 0;
+	}
+
+
+	/**
+	 * Releases the engines of the agents of an iteration.
+	 **/
+	@TearDown(Level.Iteration)
+	public void shutdownAgents() {
+		for (int a = 0; a < agents.length; a++) {
+			agents[a].shutdown();
+			agents[a] = null;
+		}
+	}
+
+
+	/**
+	 * Performs one step: move, sound sensor, evidence and inference.
+	 *
+	 * @return the state of the agent, so it is not optimised away.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	@Benchmark
+	public BFState runNextStep() throws ContradictionException, TimeoutException {
+		BarcenasFinder BAgent = agents[nextAgent++];
+		BAgent.runNextStep();
+		return BAgent.getState();
+	}
+
+}
@@ -0,0 +1,85 @@
+package apryraz.bworld.jmh;
+
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.GammaCache;
+import apryraz.bworld.GammaTemplate;
+import apryraz.bworld.InferenceEngines;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmark of the creation of a new BarcenasFinder agent, that builds its
+ * formula Gamma. It only depends on the dimension and the engine, so it is
+ * kept apart from the step benchmarks of FinderBenchmark and their readings.
+ * Every agent builds its formula from scratch, as the first agent of a
+ * dimension does: the templates of GammaTemplate and the files of GammaCache
+ * are not used (see GammaTemplateBenchmark for the cached path).
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FinderGammaBenchmark {
+
+	/**
+	 * Dimension of the world.
+	 */
+	@Param({"5", "10", "25", "50", "100"})
+	public int dim;
+
+	/**
+	 * Specification of the inference engine (see InferenceEngines).
+	 */
+	@Param({"sat,compact"})
+	public String engine;
+
+
+	/**
+	 * Turns off the files of the Gamma cache, so that no template is read
+	 * from disk.
+	 **/
+	@Setup(Level.Trial)
+	public void disableFileCache() {
+		GammaCache.setDirectory(null);
+	}
+
+
+	/**
+	 * Removes the template built by the last agent, so that the next one
+	 * builds its formula again.
+	 **/
+	@Setup(Level.Invocation)
+	public void clearTemplates() {
+		GammaTemplate.clearCache();
+	}
+
+
+	/**
+	 * Builds the formula Gamma of a new agent.
+	 *
+	 * @return the agent, so it is not optimised away.
+	 **/
+	@Benchmark
+	public BarcenasFinder buildGamma() {
+		BarcenasFinder newAgent = new BarcenasFinder(dim, InferenceEngines.create(engine, dim), EventSinks.NONE);
+		newAgent.shutdown();
+		return newAgent;
+	}
+
+}
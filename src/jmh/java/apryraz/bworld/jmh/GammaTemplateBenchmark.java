@@ -0,0 +1,84 @@
+package apryraz.bworld.jmh;
+
+import apryraz.bworld.GammaCache;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.GammaTemplate;
+import apryraz.bworld.SatInferenceEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks of the creation of the SatInferenceEngine of a new agent, when
+ * the GammaTemplate of its dimension has to be built and when it is already
+ * in the cache, as for all the agents but the first of a batch. The files
+ * of GammaCache are not used, so the uncached engines always build their
+ * template.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GammaTemplateBenchmark {
+
+	/**
+	 * Dimension of the world.
+	 */
+	@Param({"5", "10", "25", "50"})
+	public int dim;
+
+	/**
+	 * Encoding of the sound sensor implications.
+	 */
+	@Param({"COMPACT", "FULL"})
+	public GammaEncoding encoding;
+
+
+	/**
+	 * Turns off the files of the Gamma cache, so that no template is read
+	 * from disk.
+	 **/
+	@Setup(Level.Trial)
+	public void disableFileCache() {
+		GammaCache.setDirectory(null);
+	}
+
+
+	/**
+	 * Creates an engine building its template first, as the first agent of
+	 * a dimension does.
+	 *
+	 * @return the engine, so it is not optimised away.
+	 **/
+	@Benchmark
+	public SatInferenceEngine uncachedEngine() {
+		GammaTemplate.clearCache();
+		return new SatInferenceEngine(dim, encoding);
+	}
+
+
+	/**
+	 * Creates an engine from the template in the cache.
+	 *
+	 * @return the engine, so it is not optimised away.
+	 **/
+	@Benchmark
+	public SatInferenceEngine cachedEngine() {
+		return new SatInferenceEngine(dim, encoding);
+	}
+
+}
@@ -0,0 +1,95 @@
+package apryraz.bworld.jmh;
+
+import apryraz.bworld.Directions;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.InferenceEngine;
+import apryraz.bworld.InferenceEngines;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmark of the inference questions alone, after the first sound
+ * sensor evidence, without the messages of the agent.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InferenceBenchmark {
+
+	/**
+	 * Dimension of the world.
+	 */
+	@Param({"5", "10", "25", "50", "100"})
+	public int dim;
+
+	/**
+	 * Specification of the inference engine (see InferenceEngines).
+	 */
+	@Param({"sat,compact", "sat,compact,backbone", "sat,compact,twosat", "interval"})
+	public String engine;
+
+	/**
+	 * Engine with the evidence added, ready to perform the inference.
+	 */
+	private InferenceEngine inferenceEngine;
+
+
+	/**
+	 * Makes a new engine before every inference, with the evidence of sound
+	 * above and to the right of the centre of the world.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 **/
+	@Setup(Level.Invocation)
+	public void addEvidence() throws ContradictionException {
+		int centre = (dim + 1) / 2;
+		inferenceEngine = InferenceEngines.create(engine, dim);
+		inferenceEngine.setEventSink(EventSinks.NONE);
+		inferenceEngine.startStep();
+		inferenceEngine.addSoundSensorEvidence(centre, centre, Directions.ABOVE | Directions.RIGHT);
+	}
+
+
+	/**
+	 * Releases the engine.
+	 **/
+	@TearDown(Level.Invocation)
+	public void shutdownEngine() {
+		inferenceEngine.shutdown();
+	}
+
+
+	/**
+	 * Performs the inference questions.
+	 *
+	 * @return the positions discovered.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	@Benchmark
+	public BitSet performInferenceQuestions() throws ContradictionException, TimeoutException {
+		return inferenceEngine.performInferenceQuestions();
+	}
+
+}
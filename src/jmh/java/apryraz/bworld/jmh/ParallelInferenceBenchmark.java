@@ -0,0 +1,111 @@
+package apryraz.bworld.jmh;
+
+import apryraz.bworld.BFState;
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.InferenceEngines;
+import apryraz.bworld.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmark of the parallel inference mode of the BarcenasFinder agent
+ * against the number of threads, and against the sequential mode, for a
+ * sequence of random steps in big worlds.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelInferenceBenchmark {
+
+	/**
+	 * Number of steps performed by every invocation.
+	 */
+	private static final int NUM_STEPS = 10;
+
+	/**
+	 * Dimension of the world.
+	 */
+	@Param({"20", "50", "100"})
+	public int dim;
+
+	/**
+	 * Specification of the inference engine (see InferenceEngines).
+	 */
+	@Param({"sat,compact", "sat,compact,parallel,threads=1", "sat,compact,parallel,threads=2",
+		   "sat,compact,parallel,threads=4"})
+	public String engine;
+
+	/**
+	 * Agent ready to perform the measured steps.
+	 */
+	private BarcenasFinder BAgent;
+
+
+	/**
+	 * Makes a new agent before every sequence of steps, because the steps
+	 * change its knowledge. The steps and the position of Barcenas only
+	 * depend on the dimension, so every engine performs the same steps.
+	 **/
+	@Setup(Level.Invocation)
+	public void makeAgent() {
+		Random random = new Random(dim);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(dim, random.nextInt(dim) + 1, random.nextInt(dim) + 1);
+		env.setEventSink(EventSinks.NONE);
+		List<Position> steps = new ArrayList<>();
+		for (int step = 0; step < NUM_STEPS; step++) {
+			steps.add(new Position(random.nextInt(dim) + 1, random.nextInt(dim) + 1));
+		}
+		BAgent = new BarcenasFinder(dim, InferenceEngines.create(engine, dim), EventSinks.NONE);
+		BAgent.setEnvironment(env);
+		BAgent.setListOfSteps(steps);
+	}
+
+
+	/**
+	 * Releases the engine of the agent and the threads of its pool.
+	 **/
+	@TearDown(Level.Invocation)
+	public void shutdownAgent() {
+		BAgent.shutdown();
+	}
+
+
+	/**
+	 * Performs the sequence of steps.
+	 *
+	 * @return the state of the agent, so it is not optimised away.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	@Benchmark
+	public BFState runSteps() throws ContradictionException, TimeoutException {
+		BAgent.runSteps(NUM_STEPS);
+		return BAgent.getState();
+	}
+
+}
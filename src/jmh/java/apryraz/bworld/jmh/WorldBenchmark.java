@@ -0,0 +1,119 @@
+package apryraz.bworld.jmh;
+
+import apryraz.bworld.AMessage;
+import apryraz.bworld.BFState;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.MessageKind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks of the comparison of states and of the messages
+ * answered by the environment.
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldBenchmark {
+
+	/**
+	 * Dimension of the world.
+	 */
+	@Param({"5", "10", "25", "50", "100"})
+	public int dim;
+
+	/**
+	 * Two equal states with half of the positions discarded, so the
+	 * comparison has to check all of them.
+	 */
+	private BFState state, sameState;
+
+	/**
+	 * Environment with Barcenas at the centre of the world.
+	 */
+	private BarcenasWorldEnv env;
+
+	/**
+	 * Messages sent to the environment.
+	 */
+	private AMessage moveMessage, soundMessage;
+
+	/**
+	 * Message reused for the answers of the environment.
+	 */
+	private AMessage answer;
+
+
+	/**
+	 * Makes the states, the environment and the messages.
+	 **/
+	@Setup
+	public void makeWorld() {
+		BitSet discarded = new BitSet();
+		for (int cell = 0; cell < dim * dim; cell += 2) {
+			discarded.set(cell);
+		}
+		state = new BFState(dim);
+		sameState = new BFState(dim);
+		state.markImpossible(discarded);
+		sameState.markImpossible(discarded);
+
+		int centre = (dim + 1) / 2;
+		env = new BarcenasWorldEnv(dim, centre, centre);
+		env.setEventSink(EventSinks.NONE);
+		moveMessage = new AMessage(MessageKind.MOVETO, 1, dim);
+		soundMessage = new AMessage(MessageKind.SOUNDSAT, 1, dim);
+		answer = new AMessage();
+	}
+
+
+	/**
+	 * Compares two equal states.
+	 *
+	 * @return the comparison.
+	 **/
+	@Benchmark
+	public boolean stateEquals() {
+		return state.equals(sameState);
+	}
+
+
+	/**
+	 * Answers a movement message.
+	 *
+	 * @return the answer.
+	 **/
+	@Benchmark
+	public AMessage acceptMoveMessage() {
+		return env.acceptMessage(moveMessage, answer);
+	}
+
+
+	/**
+	 * Answers a sound sensor message.
+	 *
+	 * @return the answer.
+	 **/
+	@Benchmark
+	public AMessage acceptSoundMessage() {
+		return env.acceptMessage(soundMessage, answer);
+	}
+
+}
@@ -1,50 +1,182 @@
 
+
 package apryraz.bworld;
 
 /**
  * Class for representing messages exchanged between agents and the
  * World interface object.
+ * <p>
+ * A message has a kind, two integer coordinates and, for the answers of the
+ * sound sensor, a mask of Directions. Messages can be reused, filling them
+ * again with set, so that exchanging them does not allocate any object.
+ * The string form of three fields is kept for compatibility: it can be read
+ * by the constructor with three Strings and obtained with getComp.
  **/
 public class AMessage {
-	/*
-	 *  Array of String objects, that represents the different fields of each message.
-	 *  So far, we assume a fixed pattern, with always three fields in any message:
-	 *  field0:  message type: moveto, movedto, notmovedto, smellat, YES/NO  (smell answer)
-	 *  field1:  first parameter of message
-	 *  field2:  second parameter of message
+	/**
+	 * Kind of message.
+	 */
+	private MessageKind kind;
+
+	/**
+	 * Coordinates of the message, 0 for the kinds without coordinates.
+	 */
+	private int x, y;
+
+	/**
+	 * Directions of Barcenas, for the messages of kind SOUND.
 	 */
-	String[] msg;
+	private int directions;
+
+
+	/**
+	 * Class constructor of an empty message (kind VOIDMSG), to be filled with set.
+	 **/
+	public AMessage() {
+		kind = MessageKind.VOIDMSG;
+	}
+
 
 	/**
 	 * Class constructor.
 	 *
+	 * @param kind kind of message.
+	 * @param x    first coordinate of the message.
+	 * @param y    second coordinate of the message.
+	 **/
+	public AMessage(MessageKind kind, int x, int y) {
+		set(kind, x, y, 0);
+	}
+
+
+	/**
+	 * Class constructor from the string form of the messages, with always
+	 * three fields in any message:
+	 * field0:  message type: moveto, movedto, notmovedto, soundsat, voidmsg,
+	 * NOMESSAGE, or the list of directions of the answer of the sound sensor
+	 * field1:  first parameter of message
+	 * field2:  second parameter of message
+	 *
 	 * @param msgtype message type.
 	 * @param par1    first parameter of message.
 	 * @param par2    second parameter of message.
+	 * @throws IllegalArgumentException if the type is unknown or the
+	 *                                  parameters are not integers.
 	 **/
 	public AMessage(String msgtype, String par1, String par2) {
-		msg = new String[3];
+		MessageKind msgKind = MessageKind.fromProtocolName(msgtype);
+		if (msgKind.hasCoordinates()) {
+			set(msgKind, Integer.parseInt(par1), Integer.parseInt(par2),
+				   msgKind == MessageKind.SOUND ? Directions.parse(msgtype) : 0);
+		} else {
+			set(msgKind, 0, 0, 0);
+		}
+	}
+
+
+	/**
+	 * Fills the message again.
+	 *
+	 * @param kind       kind of message.
+	 * @param x          first coordinate of the message.
+	 * @param y          second coordinate of the message.
+	 * @param directions mask of directions, for messages of kind SOUND.
+	 * @return this message.
+	 **/
+	public AMessage set(MessageKind kind, int x, int y, int directions) {
+		this.kind = kind;
+		this.x = x;
+		this.y = y;
+		this.directions = directions;
+		return this;
+	}
+
 
-		msg[0] = msgtype;
-		msg[1] = par1;
-		msg[2] = par2;
+	/**
+	 * Makes a copy of the message, that does not change with this one.
+	 *
+	 * @return the copy.
+	 **/
+	public AMessage copy() {
+		return new AMessage().set(kind, x, y, directions);
 	}
 
+
+	/**
+	 * Returns the kind of the message.
+	 *
+	 * @return kind of message.
+	 **/
+	public MessageKind getKind() {
+		return kind;
+	}
+
+
+	/**
+	 * Returns the first coordinate of the message.
+	 *
+	 * @return x coordinate.
+	 **/
+	public int getX() {
+		return x;
+	}
+
+
+	/**
+	 * Returns the second coordinate of the message.
+	 *
+	 * @return y coordinate.
+	 **/
+	public int getY() {
+		return y;
+	}
+
+
+	/**
+	 * Returns the directions of Barcenas of an answer of the sound sensor.
+	 *
+	 * @return mask of Directions.
+	 **/
+	public int getDirections() {
+		return directions;
+	}
+
+
 	/**
 	 * Shows message on screen.
 	 **/
 	public void showMessage() {
-		System.out.println("MESSAGE: " + msg[0] + " " + msg[1] + " " + msg[2]);
+		System.out.println(this);
 	}
 
+
+	/**
+	 * Returns the text shown for the message.
+	 *
+	 * @return the text "MESSAGE: " followed by the three fields of the message.
+	 **/
+	public String toString() {
+		return "MESSAGE: " + getComp(0) + " " + getComp(1) + " " + getComp(2);
+	}
+
+
 	/**
-	 * Gets some part of the message.
+	 * Gets some part of the string form of the message.
 	 *
 	 * @param c index of the component to return.
 	 * @return the String corresponding to the component requested.
 	 **/
 	public String getComp(int c) {
-		return msg[c];
+		switch (c) {
+			case 0:
+				return kind == MessageKind.SOUND ? Directions.toString(directions) : kind.getProtocolName();
+			case 1:
+				return kind.hasCoordinates() ? Integer.toString(x) : "";
+			case 2:
+				return kind.hasCoordinates() ? Integer.toString(y) : "";
+			default:
+				throw new ArrayIndexOutOfBoundsException(c);
+		}
 	}
 
 }
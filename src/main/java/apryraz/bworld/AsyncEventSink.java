@@ -0,0 +1,228 @@
+package apryraz.bworld;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sink that queues the events and formats and writes them in its own thread,
+ * so the agent only pays for queueing them. Meant for debugging runs that
+ * need all the events without slowing down the agent as much as the console.
+ * When the queue is full, the agent waits, so no event is lost, unless
+ * writing to the destination fails: the writer thread stops then, and the
+ * events queued afterwards are dropped instead of blocking the agent.
+ **/
+public class AsyncEventSink implements EventSink {
+
+	/**
+	 * Event queued to be written.
+	 **/
+	private static class Event {
+
+		/**
+		 * Type of event, null for the event that stops the writer thread.
+		 */
+		final EventType type;
+
+		/**
+		 * Arguments of the event.
+		 */
+		final int x, y;
+
+		/**
+		 * Detail object of the event, or null.
+		 */
+		final Object detail;
+
+
+		/**
+		 * Class constructor.
+		 *
+		 * @param type   type of event.
+		 * @param x      first argument of the event.
+		 * @param y      second argument of the event.
+		 * @param detail detail object of the event, or null.
+		 **/
+		Event(EventType type, int x, int y, Object detail) {
+			this.type = type;
+			this.x = x;
+			this.y = y;
+			this.detail = detail;
+		}
+	}
+
+	/**
+	 * Event that stops the writer thread.
+	 */
+	private static final Event STOP = new Event(null, 0, 0, null);
+
+	/**
+	 * Milliseconds that a full queue is waited before checking again
+	 * whether the writer thread has stopped.
+	 */
+	private static final long OFFER_MILLIS = 100;
+
+	/**
+	 * Events waiting to be written.
+	 */
+	private final BlockingQueue<Event> queue;
+
+	/**
+	 * Lowest level of the events written.
+	 */
+	private final EventLevel minLevel;
+
+	/**
+	 * Destination of the events.
+	 */
+	private final BufferedWriter out;
+
+	/**
+	 * Thread that writes the events.
+	 */
+	private final Thread writer;
+
+	/**
+	 * Error that stopped the writer thread, or null.
+	 */
+	private volatile IOException failure;
+
+	/**
+	 * Whether the writer thread has stopped writing events.
+	 */
+	private volatile boolean stopped;
+
+
+	/**
+	 * Class constructor. Starts the writer thread.
+	 *
+	 * @param destination destination of the events, closed with the sink.
+	 * @param minLevel    lowest level of the events written.
+	 * @param capacity    number of events that can wait to be written.
+	 **/
+	public AsyncEventSink(Writer destination, EventLevel minLevel, int capacity) {
+		this.minLevel = minLevel;
+		out = new BufferedWriter(destination);
+		queue = new ArrayBlockingQueue<>(capacity);
+		writer = new Thread(new Runnable() {
+			/**
+			 * Writes the queued events until the sink is closed, flushing
+			 * the destination whenever the queue becomes empty.
+			 **/
+			public void run() {
+				writeEvents();
+			}
+		}, "bworld-events");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+
+	/**
+	 * Checks whether the level of a type of event is written.
+	 *
+	 * @param type type of event.
+	 * @return true if events of that type are written.
+	 **/
+	public boolean isEnabled(EventType type) {
+		return type.getLevel().compareTo(minLevel) >= 0;
+	}
+
+
+	/**
+	 * Queues the event, if its level is written.
+	 *
+	 * @param type   type of event.
+	 * @param x      first argument of the event.
+	 * @param y      second argument of the event.
+	 * @param detail detail object of the event, that must not change afterwards, or null.
+	 **/
+	public void emit(EventType type, int x, int y, Object detail) {
+		if (isEnabled(type)) {
+			put(new Event(type, x, y, detail));
+		}
+	}
+
+
+	/**
+	 * Returns the error that stopped the writer thread, if writing to the
+	 * destination failed.
+	 *
+	 * @return the error, or null if there was none.
+	 **/
+	public IOException getFailure() {
+		return failure;
+	}
+
+
+	/**
+	 * Waits until all the queued events are written, and closes the destination.
+	 * If the writer thread has already stopped, it only waits for it to end.
+	 **/
+	public void close() {
+		put(STOP);
+		try {
+			writer.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Queues an event, waiting while the queue is full, or drops it if the
+	 * writer thread has stopped.
+	 *
+	 * @param event the event.
+	 **/
+	private void put(Event event) {
+		try {
+			while (!stopped && !queue.offer(event, OFFER_MILLIS, TimeUnit.MILLISECONDS)) {
+				// The writer thread is still running: wait again
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Body of the writer thread.
+	 **/
+	private void writeEvents() {
+		try {
+			while (true) {
+				Event event = queue.poll();
+				if (event == null) {
+					out.flush();
+					event = queue.take();
+				}
+				if (event == STOP) {
+					break;
+				}
+				out.write(event.type.format(event.x, event.y, event.detail));
+				out.newLine();
+			}
+		} catch (IOException ex) {
+			failure = ex;
+			Logger.getLogger(AsyncEventSink.class.getName()).log(Level.SEVERE, null, ex);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// Wake up the threads waiting for room in the queue
+			stopped = true;
+			queue.clear();
+			try {
+				out.close();
+			} catch (IOException ex) {
+				Logger.getLogger(AsyncEventSink.class.getName()).log(Level.SEVERE, null, ex);
+			}
+		}
+	}
+
+}
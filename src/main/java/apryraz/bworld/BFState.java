@@ -1,25 +1,39 @@
 package apryraz.bworld;
 
+import java.util.Arrays;
+import java.util.BitSet;
+
 /**
  * Class for representing the Barcenas Finder problem
  * using a canvas and a visual interface.
  **/
 public class BFState {
 
+	/**
+	 * Value of a cell where Barcenas could be.
+	 */
+	public static final String POSSIBLE = "?";
+
+	/**
+	 * Value of a cell where Barcenas cannot be.
+	 */
+	public static final String IMPOSSIBLE = "X";
+
 	/**
 	 * World dimension, that means as many rows as
 	 * wDim and as many columns as wDim. So wDim x wDim cells or
 	 * possible positions where Barcenas could be.
 	 */
 	int wDim;
+
 	/**
-	 * Matrix representing a visual approach for the Barcenas
-	 * Finder problem and the current state of the problem.
-	 * Cells will be filled with '?' when Barcenas could be in that
-	 * position (cell) and with 'X' when Barcenas is cannot be in
-	 * that certain position (cell).
+	 * Packed bitset representing the current state of the Barcenas
+	 * Finder problem. Cell (i,j) is the bit (i-1)*wDim + (j-1), the same
+	 * lineal index used by the inference engines, and the bit is set when
+	 * Barcenas cannot be in that position ('X') and clear when it could
+	 * be there ('?').
 	 */
-	String[][] matrix;
+	long[] impossible;
 
 
 	/**
@@ -30,20 +44,27 @@ public class BFState {
 	 */
 	public BFState(int dim) {
 		wDim = dim;
-		matrix = new String[wDim][wDim];
+		impossible = new long[(int) (((long) wDim * wDim + 63) >>> 6)];
 		initializeState();
 	}
 
 
 	/**
-	 * Initializes the matrix representing the state of the 'Barcenas World'.
+	 * Returns the dimension of the world.
+	 *
+	 * @return number of columns and rows of the world.
+	 */
+	public int getDimension() {
+		return wDim;
+	}
+
+
+	/**
+	 * Initializes the state of the 'Barcenas World', with every cell as a
+	 * possible position.
 	 */
 	public void initializeState() {
-		for (int i = 0; i < wDim; i++) {
-			for (int j = 0; j < wDim; j++) {
-				matrix[i][j] = "?";
-			}
-		}
+		Arrays.fill(impossible, 0L);
 	}
 
 
@@ -52,33 +73,144 @@ public class BFState {
 	 *
 	 * @param i   x coordinate to the cell to set.
 	 * @param j   y coordinate to the cell to set.
-	 * @param val value to set.
+	 * @param val value to set, POSSIBLE ("?") or IMPOSSIBLE ("X").
 	 */
 	public void set(int i, int j, String val) {
+		int cell = (i - 1) * wDim + (j - 1);
+		if (IMPOSSIBLE.equals(val)) {
+			impossible[cell >>> 6] |= 1L << cell;
+		} else if (POSSIBLE.equals(val)) {
+			impossible[cell >>> 6] &= ~(1L << cell);
+		} else {
+			throw new IllegalArgumentException("Unknown cell value: " + val);
+		}
+	}
 
-		matrix[i - 1][j - 1] = val;
+
+	/**
+	 * Returns the value of a cell.
+	 *
+	 * @param i x coordinate of the cell.
+	 * @param j y coordinate of the cell.
+	 * @return POSSIBLE ("?") or IMPOSSIBLE ("X").
+	 */
+	public String get(int i, int j) {
+		return isPossible((i - 1) * wDim + (j - 1)) ? POSSIBLE : IMPOSSIBLE;
+	}
+
+
+	/**
+	 * Checks if Barcenas could be at a cell.
+	 *
+	 * @param cell lineal index of the cell, (i-1)*wDim + (j-1).
+	 * @return true if the cell is still a candidate position.
+	 */
+	public boolean isPossible(int cell) {
+		return (impossible[cell >>> 6] & (1L << cell)) == 0;
+	}
+
+
+	/**
+	 * Marks as impossible all the cells of a set, with one operation
+	 * per word of the state.
+	 *
+	 * @param cells set of lineal indexes of the cells where Barcenas cannot be.
+	 * @return number of cells that were possible before.
+	 */
+	public long markImpossible(BitSet cells) {
+		long[] words = cells.toLongArray();
+		int numWords = Math.min(words.length, impossible.length);
+		long marked = 0;
+		for (int w = 0; w < numWords; w++) {
+			marked += Long.bitCount(words[w] & ~impossible[w]);
+			impossible[w] |= words[w];
+		}
+		return marked;
+	}
+
+
+	/**
+	 * Counts the cells where Barcenas could be.
+	 *
+	 * @return number of candidate positions.
+	 */
+	public long countCandidates() {
+		long count = (long) wDim * wDim;
+		for (long word : impossible) {
+			count -= Long.bitCount(word);
+		}
+		return count;
+	}
+
+
+	/**
+	 * Finds the next cell where Barcenas could be.
+	 *
+	 * @param fromCell lineal index of the first cell to consider.
+	 * @return lineal index of the first candidate cell at or after fromCell,
+	 * or -1 if there is none.
+	 */
+	public int nextCandidate(int fromCell) {
+		int numCells = wDim * wDim;
+		if (fromCell < 0) {
+			fromCell = 0;
+		}
+		if (fromCell >= numCells) {
+			return -1;
+		}
+		int w = fromCell >>> 6;
+		long word = ~impossible[w] & (-1L << fromCell);
+		while (true) {
+			if (word != 0) {
+				int cell = (w << 6) + Long.numberOfTrailingZeros(word);
+				return cell < numCells ? cell : -1;
+			}
+			if (++w == impossible.length) {
+				return -1;
+			}
+			word = ~impossible[w];
+		}
 	}
 
 
 	/**
 	 * Compares two BFS states (Barcenas world states),
-	 * that means two matrixes and its cells.
+	 * word by word.
 	 *
 	 * @param obj other BFState object to compare.
 	 * @return true if both are equal, false otherwise.
 	 */
 	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof BFState)) {
+			return false;
+		}
 		BFState bfstate2 = (BFState) obj;
-		boolean status = true;
+		return wDim == bfstate2.wDim && Arrays.equals(impossible, bfstate2.impossible);
+	}
 
-		for (int i = 0; i < wDim; i++) {
-			for (int j = 0; j < wDim; j++) {
-				if (!matrix[i][j].equals(bfstate2.matrix[i][j]))
-					status = false;
-			}
-		}
 
-		return status;
+	/**
+	 * Computes the hash code of the state, consistent with equals.
+	 *
+	 * @return hash code of the dimension and the cells.
+	 */
+	public int hashCode() {
+		return 31 * wDim + Arrays.hashCode(impossible);
+	}
+
+
+	/**
+	 * Makes a copy of the state, that does not change with this one.
+	 *
+	 * @return the copy.
+	 **/
+	public BFState copy() {
+		BFState state = new BFState(wDim);
+		System.arraycopy(impossible, 0, state.impossible, 0, impossible.length);
+		return state;
 	}
 
 
@@ -86,14 +218,28 @@ public class BFState {
 	 * Prints Barcenas world matrix.
 	 */
 	public void printState() {
-		System.out.println("FINDER => Printing Barcenas world matrix");
-		for (int i = wDim - 1; i > -1; i--) {
-			System.out.print("\t#\t");
-			for (int j = 0; j < wDim; j++) {
-				System.out.print(matrix[i][j] + " ");
+		System.out.println(this);
+	}
+
+
+	/**
+	 * Returns the text of Barcenas world matrix, with a heading line and
+	 * a line for every row of the world, from the top one.
+	 *
+	 * @return the text, without a final line separator.
+	 **/
+	public String toString() {
+		String separator = System.lineSeparator();
+		StringBuilder text = new StringBuilder(wDim * (2 * wDim + 4 + separator.length()) + 40);
+		text.append("FINDER => Printing Barcenas world matrix");
+		for (int i = wDim; i > 0; i--) {
+			text.append(separator).append("\t#\t");
+			for (int j = 1; j <= wDim; j++) {
+				text.append(get(i, j)).append(' ');
 			}
-			System.out.println("\t#");
+			text.append("\t#");
 		}
+		return text.toString();
 	}
 
 }
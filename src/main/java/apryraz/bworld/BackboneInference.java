@@ -0,0 +1,142 @@
+package apryraz.bworld;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+/**
+ * Computes which positions of a set of positions of Barcenas are not possible,
+ * that is, the negative backbone of their position variables: the variables
+ * that are false in every model of the formula.
+ * <p>
+ * Instead of one solver call for every position, it asks the solver for a model
+ * where Barcenas is at some position not yet proven possible. Every model found
+ * proves possible all the positions where it puts Barcenas, and when there is
+ * no such model all the positions left are not possible. The clause used for
+ * each question is guarded by a selector variable, and it is removed from the
+ * solver afterwards so it never constrains later questions. The same selector
+ * is used by all the questions, so the formula does not grow with them.
+ **/
+public class BackboneInference {
+
+	/**
+	 * SAT solver object that stores the formula.
+	 */
+	private ISolver solver;
+
+	/**
+	 * Total size of the world (Dim^2).
+	 */
+	private int worldLinealDim;
+
+	/**
+	 * First ever literal in the position variables to check.
+	 */
+	private int positionOffset;
+
+	/**
+	 * Number of solver calls performed by the last computation.
+	 */
+	private int lastSolverCalls;
+
+	/**
+	 * Variable that guards the clause of the current question.
+	 */
+	private int selector;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param solver         SAT solver object that stores the formula.
+	 * @param WDim           the dimension of the Barcenas World.
+	 * @param positionOffset first ever literal in the position variables to check.
+	 **/
+	public BackboneInference(ISolver solver, int WDim, int positionOffset) {
+		this.solver = solver;
+		this.positionOffset = positionOffset;
+		worldLinealDim = WDim * WDim;
+		selector = solver.nextFreeVarId(true);
+	}
+
+
+	/**
+	 * Finds the positions, among the given ones, where Barcenas cannot be.
+	 *
+	 * @param unknown bitset with one bit for every position of the world (lineal
+	 *                index starting at 0), set for the positions to check.
+	 *                It is modified, and at the end it is set only for the
+	 *                positions where Barcenas cannot be.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	public void findImpossiblePositions(long[] unknown) throws
+		   ContradictionException, TimeoutException {
+		lastSolverCalls = 0;
+		while (!isEmpty(unknown)) {
+			// selector -> Barcenas is at some position still unknown
+			VecInt someUnknown = new VecInt();
+			someUnknown.insertFirst(-selector);
+			for (int cell = 0; cell < worldLinealDim; cell++) {
+				if ((unknown[cell >> 6] & (1L << cell)) != 0) {
+					someUnknown.insertFirst(cell + positionOffset);
+				}
+			}
+			IConstr question = solver.addClause(someUnknown);
+
+			VecInt assumption = new VecInt();
+			assumption.insertFirst(selector);
+			lastSolverCalls++;
+			boolean satisfiable = solver.isSatisfiable(assumption);
+
+			// The solver gives no handle when the clause is already true, and
+			// makes the selector false for good when no position left can be true
+			if (question != null && question.size() > 1) {
+				solver.removeConstr(question);
+			} else if (question != null) {
+				selector = solver.nextFreeVarId(true);
+			}
+
+			if (!satisfiable) {
+				// No model puts Barcenas at any of the positions left
+				return;
+			}
+			for (int cell = 0; cell < worldLinealDim; cell++) {
+				if ((unknown[cell >> 6] & (1L << cell)) != 0
+					   && solver.model(cell + positionOffset)) {
+					unknown[cell >> 6] &= ~(1L << cell);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the number of solver calls performed by the last computation.
+	 *
+	 * @return number of solver calls.
+	 **/
+	public int getLastSolverCalls() {
+		return lastSolverCalls;
+	}
+
+
+	/**
+	 * Checks whether a bitset has no bit set.
+	 *
+	 * @param bits bitset to check.
+	 * @return true if no bit is set.
+	 **/
+	private static boolean isEmpty(long[] bits) {
+		for (long word : bits) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -1,17 +1,14 @@
 
 package apryraz.bworld;
 
-import org.sat4j.core.VecInt;
-import org.sat4j.minisat.SolverFactory;
 import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.ISolver;
 import org.sat4j.specs.TimeoutException;
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,21 +24,15 @@ import static java.lang.System.exit;
 public class BarcenasFinder {
 
 	/**
-	 * List of steps to perform.
+	 * Source of the steps to perform, read one at a time.
 	 */
-	private ArrayList<Position> listOfSteps;
+	private StepSource stepSource;
 
 	/**
 	 * Index for the next movement to perform, and total number of movements.
 	 */
 	private int idNextStep, numMovements;
 
-	/**
-	 * Array of clauses that represent conclusions obtained in the most recent
-	 * call to the inference function, but rewritten using the "past" variables.
-	 */
-	private ArrayList<VecInt> futureToPast = null;
-
 	/**
 	 * Current state of knowledge of the agent (what it knows about
 	 * every position of the world).
@@ -54,10 +45,15 @@ public class BarcenasFinder {
 	private BarcenasWorldEnv envAgent;
 
 	/**
-	 * SAT solver object that stores the logical boolean formula with the rules
-	 * and current knowledge about not possible locations for Barcenas.
+	 * Message sent to the environment and its answer, reused in every step.
+	 */
+	private final AMessage request = new AMessage(), answer = new AMessage();
+
+	/**
+	 * Inference engine that stores the knowledge of the agent about the
+	 * possible locations for Barcenas and performs the inferences.
 	 */
-	private ISolver solver;
+	private InferenceEngine engine;
 
 	/**
 	 * Agent position in the world.
@@ -65,79 +61,119 @@ public class BarcenasFinder {
 	private int agentX, agentY;
 
 	/**
-	 * Dimension of the world and total size of the world (Dim^2).
+	 * Dimension of the world.
 	 */
-	private int worldDim, worldLinealDim;
+	private int worldDim;
 
 	/**
-	 * First ever literal in past variables concerning
-	 * information about Barcenas' location.
+	 * Destination of the events of the agent and its inference engine.
 	 */
-	private int barcenasPastOffset;
+	private EventSink events;
 
 	/**
-	 * First ever literal in future variables concerning
-	 * information about Barcenas' location.
+	 * Number of steps performed so far.
 	 */
-	private int barcenasFutureOffset;
+	private int stepsPerformed;
 
 	/**
-	 * First ever literal in present variables related to
-	 * when sound is gathered above a certain position
-	 * by the sound sensors.
+	 * Measurements of the step being performed.
 	 */
-	private int soundAboveOffset = 0;
+	private StepMetrics stepMetrics;
 
 	/**
-	 * First ever literal in present variables related to
-	 * when sound is gathered below a certain position
-	 * by the sound sensors.
+	 * Number of positions where Barcenas can still be, updated with the
+	 * positions discarded by every inference.
 	 */
-	private int soundBelowOffset = 0;
+	private long candidatesLeft;
 
 	/**
-	 * First ever literal in present variables related to
-	 * when sound is gathered on the left of a certain position
-	 * by the sound sensors.
+	 * Step where Barcenas was localised at a single position, 0 while
+	 * it is not localised.
 	 */
-	private int soundLeftOffset = 0;
+	private int stepsToLocalise;
 
 	/**
-	 * First ever literal in present variables related to
-	 * when sound is gathered on the right a certain position
-	 * by the sound sensors.
+	 * Position where Barcenas has been localised.
 	 */
-	private int soundRightOffset = 0;
+	private int localisedX, localisedY;
 
 	/**
-	 * First ever literal without meaning, free to assign.
+	 * True if the agent does not move any more once Barcenas is localised.
 	 */
-	private int currentLiteral = 0;
+	private boolean stopMovingWhenLocalised;
 
+	/**
+	 * Number of steps between the inferences of runSteps and ingestEvidence,
+	 * 0 to perform only the inference of their last step.
+	 */
+	private int inferenceCadence;
 
 	/**
-	 * The class constructor must create the initial Boolean formula with the
+	 * Destinations of the measurements of every step.
+	 */
+	private final List<StepMetricsSink> metricsSinks = new ArrayList<>();
+
+
+	/**
+	 * The class constructor must create the inference engine with the
 	 * rules of the Barcenas World, initialize the variables for indicating
 	 * that we do not have yet any movements to perform, make the initial state.
+	 * The inference engine is the one named by the system property
+	 * bworld.engine (see InferenceEngines), or the SAT4J engine by default.
 	 *
 	 * @param WDim the dimension of the Barcenas World.
 	 **/
 	public BarcenasFinder(int WDim) {
-		worldDim = WDim;
-		worldLinealDim = worldDim * worldDim;
+		this(WDim, InferenceEngines.create(
+			   System.getProperty(InferenceEngines.ENGINE_PROPERTY, InferenceEngines.DEFAULT_ENGINE), WDim));
+	}
 
-		try {
-			solver = buildGamma();
-		} catch (ContradictionException ex) {
-			Logger.getLogger(BarcenasFinder.class.getName()).log(Level.SEVERE, null, ex);
-		}
+
+	/**
+	 * Class constructor that uses the SAT4J inference engine with the given
+	 * encoding of the sound sensor implications of the formula.
+	 *
+	 * @param WDim     the dimension of the Barcenas World.
+	 * @param encoding encoding of the sound sensor implications.
+	 **/
+	public BarcenasFinder(int WDim, GammaEncoding encoding) {
+		this(WDim, new SatInferenceEngine(WDim, encoding));
+	}
+
+
+	/**
+	 * Class constructor that uses the given inference engine.
+	 *
+	 * @param WDim   the dimension of the Barcenas World.
+	 * @param engine inference engine for a world of the same dimension.
+	 **/
+	public BarcenasFinder(int WDim, InferenceEngine engine) {
+		this(WDim, engine, EventSinks.fromSystemProperty());
+	}
+
+
+	/**
+	 * Class constructor that uses the given inference engine and sends the
+	 * events of the agent and its engine to the given sink. EventSinks.NONE
+	 * keeps them silent, as needed when running many agents at once.
+	 *
+	 * @param WDim   the dimension of the Barcenas World.
+	 * @param engine inference engine for a world of the same dimension.
+	 * @param events destination of the events of the agent.
+	 **/
+	public BarcenasFinder(int WDim, InferenceEngine engine, EventSink events) {
+		worldDim = WDim;
+		this.engine = engine;
+		this.events = events;
+		engine.setEventSink(events);
 		numMovements = 0;
 		idNextStep = 0;
-		System.out.println("STARTING FINDER AGENT...");
+		events.emit(EventType.AGENT_STARTED, 0, 0, null);
 
 
 		bfstate = new BFState(worldDim);  // Initialize state (matrix) of knowledge with '?'
-		bfstate.printState();
+		candidatesLeft = bfstate.countCandidates();
+		emitState();
 	}
 
 
@@ -155,36 +191,78 @@ public class BarcenasFinder {
 
 
 	/**
-	 * Loads a sequence of steps to be performed by the agent. This sequence will
-	 * be stored in the listOfSteps ArrayList of the agent.  Steps are represented
-	 * as objects of the class Position.
+	 * Adds a destination for the measurements of every step performed from now on.
+	 *
+	 * @param sink the destination.
+	 **/
+	public void addMetricsSink(StepMetricsSink sink) {
+		metricsSinks.add(sink);
+	}
+
+
+	/**
+	 * Releases the resources used by the inference engine of the agent, such
+	 * as threads, and its source of steps. The agent cannot perform more steps afterwards.
+	 **/
+	public void shutdown() {
+		engine.shutdown();
+		if (stepSource != null) {
+			stepSource.close();
+		}
+	}
+
+
+	/**
+	 * Loads a sequence of steps to be performed by the agent. The steps are
+	 * not read now, but one at a time as the agent performs them, from the
+	 * file mapped in memory (see MappedStepSource, that also reads the
+	 * binary format written by StepsConverter).
 	 *
 	 * @param numSteps  number of steps to read from the file.
 	 * @param stepsFile name of the text file with the line that contains
 	 *                  the sequence of steps: x1,y1 x2,y2 ...  xn,yn.
 	 **/
 	public void loadListOfSteps(int numSteps, String stepsFile) {
-		String[] stepsList;
-		String steps = ""; // Prepare a list of movements for the FINDER Agent to check
+		StepSource source = null;
 		try {
-			BufferedReader br = new BufferedReader(new FileReader(stepsFile));
-			System.out.println("STEPS FILE OPENED ...");
-			steps = br.readLine();
-			br.close();
+			source = new MappedStepSource(stepsFile);
+			events.emit(EventType.STEPS_FILE_OPENED, 0, 0, null);
 		} catch (FileNotFoundException ex) {
-			System.out.println("MSG.   => Steps file not found");
+			events.emit(EventType.STEPS_FILE_NOT_FOUND, 0, 0, stepsFile);
+			events.close();
 			exit(1);
 		} catch (IOException ex) {
 			Logger.getLogger(BarcenasFinder.class.getName()).log(Level.SEVERE, null, ex);
 			exit(2);
 		}
-		stepsList = steps.split(" ");
-		listOfSteps = new ArrayList<>(numSteps);
-		for (int i = 0; i < numSteps; i++) {
-			String[] coords = stepsList[i].split(",");
-			listOfSteps.add(new Position(Integer.parseInt(coords[0]), Integer.parseInt(coords[1])));
+		setStepSource(source, numSteps);
+	}
+
+
+	/**
+	 * Sets the sequence of steps to be performed by the agent, instead of
+	 * loading it from a file.
+	 *
+	 * @param steps positions to move to, in order.
+	 **/
+	public void setListOfSteps(List<Position> steps) {
+		setStepSource(new ListStepSource(new ArrayList<>(steps)), steps.size());
+	}
+
+
+	/**
+	 * Sets the source of the steps to be performed by the agent, that the
+	 * agent closes when it is replaced or the agent is shut down.
+	 *
+	 * @param source   source of the positions to move to, in order.
+	 * @param numSteps maximum number of steps to read from the source.
+	 **/
+	public void setStepSource(StepSource source, int numSteps) {
+		if (stepSource != null) {
+			stepSource.close();
 		}
-		numMovements = listOfSteps.size(); // Initialization of numMovements
+		stepSource = source;
+		numMovements = numSteps; // Initialization of numMovements
 		idNextStep = 0;
 	}
 
@@ -200,574 +278,464 @@ public class BarcenasFinder {
 
 
 	/**
-	 * Executes the next step in the sequence of steps of the agent, and then
-	 * uses the agent sensors to get information from the environment. In the
-	 * original Barcenas World, this would be to use the Smelll Sensor to get
-	 * a binary answer, and then to update the current state according to the
-	 * result of the logical inferences performed by the agent with its formula.
+	 * Returns the x coordinate of the position of the agent.
 	 *
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
-	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
-	 *                                time computing than a certain timeout.
+	 * @return x coordinate, 0 before the agent moves for the first time.
 	 **/
-	public void runNextStep() throws ContradictionException, TimeoutException {
-		// Ask to move and check whether it was successful
-		processMoveAnswer(moveToNext());
-
-		// Add the conclusions obtained in the previous step
-		// but as clauses that use the "past" variables
-		addLastFutureClausesToPastClauses();
-
-		// Perform inference to discover new information
-		processSoundSensorAnswer(soundsAt());
+	public int getAgentX() {
+		return agentX;
 	}
 
 
 	/**
-	 * Asks the agent to move to the next position, by sending an appropriate
-	 * message to the environment object. The answer returned by the environment
-	 * will be returned to the caller of the function.
+	 * Returns the y coordinate of the position of the agent.
 	 *
-	 * @return the answer message from the environment, that will tell whether the
-	 * movement was successful or not.
+	 * @return y coordinate, 0 before the agent moves for the first time.
 	 **/
-	private AMessage moveToNext() {
-		Position nextPosition;
-
-		if (idNextStep < numMovements) {
-			nextPosition = listOfSteps.get(idNextStep);
-			idNextStep = idNextStep + 1;
-			return moveTo(nextPosition.x, nextPosition.y);
-		} else {
-			System.out.println("NO MORE steps to perform at agent!");
-			return (new AMessage("NOMESSAGE", "", ""));
-		}
+	public int getAgentY() {
+		return agentY;
 	}
 
 
 	/**
-	 * Uses agent "actuators" to move to (x,y)
-	 * We simulate this by letting the World Agent (environment) know
-	 * that we want to move, but we need the answer from it
-	 * to be sure that the movement was successfully made.
+	 * Returns the inference engine of the agent.
 	 *
-	 * @param x horizontal coordinate of the movement to perform.
-	 * @param y vertical coordinate of the movement to perform.
-	 * @return returns the answer obtained from the environment object to the
-	 * moveto message sent.
+	 * @return the inference engine of the agent.
 	 **/
-	private AMessage moveTo(int x, int y) {
-		// Let the EnvironmentAgentID know that we want to move
-		AMessage msg, ans;
-
-		msg = new AMessage("moveto", (new Integer(x)).toString(), (new Integer(y)).toString());
-		ans = envAgent.acceptMessage(msg);
-		System.out.println("FINDER => moving to : (" + x + "," + y + ")");
-
-		return ans;
+	public InferenceEngine getInferenceEngine() {
+		return engine;
 	}
 
 
 	/**
-	 * Processes the answer obtained from the environment when
-	 * asked to perform a movement
+	 * Returns the number of positions asked to the solver by the inference
+	 * performed in the last step.
 	 *
-	 * @param moveAns the answer given by the environment to the last move message
+	 * @return number of solver queries of the last step.
 	 **/
-	private void processMoveAnswer(AMessage moveAns) {
-		if (moveAns.getComp(0).equals("movedto")) {
-			agentX = Integer.parseInt(moveAns.getComp(1));
-			agentY = Integer.parseInt(moveAns.getComp(2));
-			System.out.println("FINDER => moved to : (" + agentX + "," + agentY + ")");
-		}
+	public int getLastInferenceQueries() {
+		return engine.getLastInferenceQueries();
 	}
 
 
 	/**
-	 * Sends to the environment object the question:
-	 * "Is there any sound at (agentX,agentY) ?".
+	 * Returns the number of positions that the inference performed in the last
+	 * step did not need to ask to the solver.
 	 *
-	 * @return return the answer given by the environment.
+	 * @return number of solver queries skipped in the last step.
 	 **/
-	private AMessage soundsAt() {
-		AMessage msg, ans;
-		msg = new AMessage("soundsat", (new Integer(agentX)).toString(),
-			   (new Integer(agentY)).toString());
-		ans = envAgent.acceptMessage(msg);
-		System.out.println("FINDER => checking for sound at : (" + agentX + "," + agentY + ")");
-		// Return answer obtained from environment object
-		return ans;
+	public int getLastSkippedQueries() {
+		return engine.getLastSkippedQueries();
 	}
 
 
 	/**
-	 * Processes the answer obtained for the query "Is there any sound at
-	 * (agentX,agentY)?" by adding the appropriate evidence clause/s
-	 * to the formula and then performing the inference questions to discover
-	 * new positions where Barcenas is NOT located.
+	 * Executes the next step in the sequence of steps of the agent, and then
+	 * uses the agent sensors to get information from the environment. In the
+	 * original Barcenas World, this would be to use the Smelll Sensor to get
+	 * a binary answer, and then to update the current state according to the
+	 * result of the logical inferences performed by the agent with its formula.
+	 * The measurements of the step are also sent to the metrics sinks.
 	 *
-	 * @param ans message obtained to the query "Is there any sound at (agentX,agentY)?".
+	 * @return the measurements of the step.
 	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
 	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
 	 *                                time computing than a certain timeout.
 	 **/
-	private void processSoundSensorAnswer(AMessage ans) throws
-		   ContradictionException, TimeoutException {
+	public StepMetrics runNextStep() throws ContradictionException, TimeoutException {
+		return runSteps(1);
+	}
 
-		// Parse the answer received to get the new evidence
-		String sounds = ans.getComp(0);
-		int x = Integer.parseInt(ans.getComp(1));
-		int y = Integer.parseInt(ans.getComp(2));
 
-		// Add the evidence
-		addSoundSensorEvidence(x, y, sounds);
+	/**
+	 * Executes the next numSteps steps of the agent, adding the evidence of
+	 * the sound sensor of every step but performing the inference only in the
+	 * last one, or every inferenceCadence steps if set. When the engine is not
+	 * in the moving-target mode (isMovingTarget() is false), Barcenas does not
+	 * move, so the final state is the same as with one inference per step, but
+	 * Barcenas is only localised in the steps that perform the inference. In
+	 * the moving-target mode no such claim holds: the state and the
+	 * localisation only tell where Barcenas was at the steps with inference.
+	 * The measurements of every step are sent to the metrics sinks; the ones
+	 * of the steps without inference have no solver measurements.
+	 *
+	 * @param numSteps number of steps to perform.
+	 * @return the measurements of the last step, or null if numSteps is 0.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	public StepMetrics runSteps(int numSteps) throws ContradictionException, TimeoutException {
+		StepMetrics metrics = null;
+		for (int step = 1; step <= numSteps; step++) {
+			beginStep();
+
+			// Ask to move and check whether it was successful
+			long start = System.nanoTime();
+			if (!hasFinished() || !stopMovingWhenLocalised) {
+				processMoveAnswer(moveToNext());
+			}
+			stepMetrics.moveNanos = System.nanoTime() - start;
 
-		performInferenceQuestions();
-		bfstate.printState(); // Printing resulting knowledge matrix
+			// Once Barcenas is localised, there is nothing left to infer
+			if (hasFinished()) {
+				metrics = finishStep();
+			} else {
+				metrics = processReading(soundsAt(), isInferenceStep(step, numSteps));
+			}
+		}
+		return metrics;
 	}
 
 
 	/**
-	 * Adds the information obtained with the sound sensor
-	 * as appropriate clauses to the formula of the agent (stored in solver).
+	 * Adds the evidence of readings of the sound sensor obtained before, as
+	 * when replaying a recorded trace, without moving the agent nor asking the
+	 * environment. Every reading counts as a step, and the inference is performed
+	 * as in runSteps: in the last reading, or every inferenceCadence readings.
+	 * The readings after Barcenas is localised are ignored, unless it can move.
 	 *
-	 * @param x      x coordinate of position.
-	 * @param y      y coordinate of position.
-	 * @param sounds direction/s answer to the question "Where does it sound if in (x,y) ?".
+	 * @param readings answers of the sound sensor, of kind SOUND, with the
+	 *                 position where they were obtained.
+	 * @return the measurements of the last step, or null if no reading is added.
 	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
 	 **/
-	private void addSoundSensorEvidence(int x, int y, String sounds) throws ContradictionException {
-		System.out.println("Sound sensor returned: " + sounds);
-		System.out.println("Inserting smell evidence");
-		switch (sounds) {
-			case "ABOVE,RIGHT":
-				addCoordToFormula(x, y, +1, soundAboveOffset);
-				addCoordToFormula(x, y, +1, soundRightOffset);
-				break;
-
-			case "ABOVE,LEFT":
-				addCoordToFormula(x, y, +1, soundAboveOffset);
-				addCoordToFormula(x, y, +1, soundLeftOffset);
-				break;
-
-			case "BELOW,RIGHT":
-				addCoordToFormula(x, y, +1, soundBelowOffset);
-				addCoordToFormula(x, y, +1, soundRightOffset);
-				break;
-
-			case "BELOW,LEFT":
-				addCoordToFormula(x, y, +1, soundBelowOffset);
-				addCoordToFormula(x, y, +1, soundLeftOffset);
-				break;
-
-			case "ABOVE":
-				addCoordToFormula(x, y, +1, soundAboveOffset);
-				// add missing clauses
-				for (int i = 1; i <= worldDim; i++) {
-					for (int j = y + 1; j <= worldDim; j++) {
-						if (i != x) {
-							addCoordToFormula(i, j, -1, barcenasFutureOffset);
-						}
-					}
-				}
-				break;
-
-			case "BELOW":
-				addCoordToFormula(x, y, +1, soundBelowOffset);
-				// add missing clauses
-				for (int i = 1; i <= worldDim; i++) {
-					for (int j = y - 1; j > 0; j--) {
-						if (i != x) {
-							addCoordToFormula(i, j, -1, barcenasFutureOffset);
-						}
-					}
-				}
-				break;
-
-			case "LEFT":
-				addCoordToFormula(x, y, +1, soundLeftOffset);
-				// add missing clauses
-				for (int i = x - 1; i > 0; i++) {
-					for (int j = 1; j <= worldDim; j++) {
-						if (j != y) {
-							addCoordToFormula(i, j, -1, barcenasFutureOffset);
-						}
-					}
-				}
-				break;
-
-			case "RIGHT":
-				addCoordToFormula(x, y, +1, soundRightOffset);
-				// add missing clauses
-				for (int i = x + 1; i <= worldDim; i++) {
-					for (int j = 1; j <= worldDim; j++) {
-						if (j != y) {
-							addCoordToFormula(i, j, -1, barcenasFutureOffset);
-						}
-					}
-				}
-				break;
-
-			default:  // case "ABOVE,BELOW,LEFT,RIGHT"
-				System.out.println("FINDER => Barcenas found at current position");
-				addBarcenasHereClauses(x, y);
-				break;
+	public StepMetrics ingestEvidence(List<AMessage> readings) throws
+		   ContradictionException, TimeoutException {
+		StepMetrics metrics = null;
+		for (int r = 0; r < readings.size() && !hasFinished(); r++) {
+			beginStep();
+			metrics = processReading(readings.get(r), isInferenceStep(r + 1, readings.size()));
 		}
+		return metrics;
 	}
 
+
 	/**
-	 * When sound sensor gathers sound in all possible positions that means Barcenas
-	 * is as that certain current position. This method adds the clauses when the previous
-	 * situation has happened.
+	 * Sets the number of steps between the inferences of runSteps and
+	 * ingestEvidence. Their last step always performs the inference.
 	 *
-	 * @param x x coordinate of position.
-	 * @param y y coordinate of position.
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
-	 */
-	private void addBarcenasHereClauses(int x, int y) throws ContradictionException {
-		for (int i = 1; i <= worldDim; i++) {
-			for (int j = 1; j <= worldDim; j++) {
-				if (x != i || y != j) {
-					VecInt evidence = new VecInt();
-					evidence.insertFirst(-(coordToLineal(i, j, barcenasFutureOffset)));
-					solver.addClause(evidence);
-				}
-			}
-		}
+	 * @param steps number of steps, or 0 to perform only the last inference.
+	 **/
+	public void setInferenceCadence(int steps) {
+		inferenceCadence = steps;
 	}
 
 
-	/* Given a coordinate (x,y), the sense for it and an offset,
-	 * transforms the coordinate to a lineal literal and simply
-	 * adds it to the formula.
+	/**
+	 * Checks whether a step of a sequence of steps performs the inference.
 	 *
-	 * @param x      x coordinate.
-	 * @param y	  y coordinate.
-	 * @param sense  -1 or 1. Adds negative or positive sense to literal.
-	 * @param offset offset associated with the subset of variables
-	 * that literal belongs to.
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
-	 */
-	private void addCoordToFormula(int x, int y, int sense, int offset) throws ContradictionException {
-		VecInt evidence = new VecInt();
-		int eval;
+	 * @param step     number of the step in the sequence, from 1.
+	 * @param numSteps number of steps of the sequence.
+	 * @return true for the last step and the steps at the inference cadence.
+	 **/
+	private boolean isInferenceStep(int step, int numSteps) {
+		return step == numSteps || (inferenceCadence > 0 && step % inferenceCadence == 0);
+	}
 
-		if (sense == +1) {
-			eval = coordToLineal(x, y, offset);
-			System.out.println("Adding: +" + eval + " literal to formula");
-		} else {
-			eval = -(coordToLineal(x, y, offset));
-		}
-		evidence.insertFirst(eval);
-		solver.addClause(evidence);
+
+	/**
+	 * Starts the measurements of a new step.
+	 **/
+	private void beginStep() {
+		stepsPerformed++;
+		stepMetrics = new StepMetrics(stepsPerformed, worldDim);
 	}
 
 
 	/**
-	 * Adds all the clauses stored in the list
-	 * futureToPast to the formula stored in solver.
-	 * Uses the function addClause( VecInt ) to add each clause to the solver.
+	 * Adds the evidence of a reading of the sound sensor, as the knowledge of
+	 * a new step, and performs the inference if asked to.
 	 *
+	 * @param reading answer of the sound sensor.
+	 * @param infer   true to perform the inference.
+	 * @return the measurements of the step.
 	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
 	 **/
-	private void addLastFutureClausesToPastClauses() throws ContradictionException {
-		if (futureToPast != null) {
-			for (VecInt vecInt : futureToPast) {
-				solver.addClause(vecInt);
-			}
+	private StepMetrics processReading(AMessage reading, boolean infer) throws
+		   ContradictionException, TimeoutException {
+		// Add the conclusions obtained in the previous step
+		// but as clauses that use the "past" variables
+		long start = System.nanoTime();
+		engine.startStep();
+		stepMetrics.pastClausesNanos = System.nanoTime() - start;
+
+		addSoundSensorEvidence(reading);
+		if (infer) {
+			// Perform inference to discover new information
+			performInference();
+			engine.fillStepMetrics(stepMetrics);
 		}
+		return finishStep();
 	}
 
 
 	/**
-	 * Checks, using the future variables related
-	 * to possible positions of Barcenas, whether it is a logical consequence
-	 * that Barcenas is NOT at certain positions. The previous is checked for all the
-	 * positions of the Barcenas World.
-	 * The logical consequences obtained are then stored in the futureToPast list
-	 * but using the variables corresponding to the "past" variables of the same positions.
-	 * <p>
-	 * An efficient version of this function should try to not add to the futureToPast
-	 * conclusions that were already added in previous steps, although this will not produce
-	 * any bad functioning in the reasoning process with the formula.
+	 * Completes the measurements of the step and sends them to the metrics sinks.
 	 *
-	 * @throws TimeoutException if solver's isSatisfiable operation spends more
-	 *                          time computing than a certain timeout.
+	 * @return the measurements of the step.
 	 **/
-	private void performInferenceQuestions() throws TimeoutException {
-		futureToPast = new ArrayList<>();
-		for (int i = 1; i <= worldDim; i++) {
-			for (int j = 1; j <= worldDim; j++) {
-				// Get variable number for position i,j in past variables
-				int linealIndex = coordToLineal(i, j, barcenasFutureOffset);
-				// Get the same variable, but in the past subset
-				int linealIndexPast = coordToLineal(i, j, barcenasPastOffset);
+	private StepMetrics finishStep() {
+		stepMetrics.candidatesLeft = candidatesLeft;
+		for (StepMetricsSink sink : metricsSinks) {
+			sink.accept(stepMetrics);
+		}
+		return stepMetrics;
+	}
 
-				VecInt variablePositive = new VecInt();
-				variablePositive.insertFirst(linealIndex);
 
-				// Check if Gamma + variablePositive is unsatisfiable:
-				if (!(solver.isSatisfiable(variablePositive))) {
-					// Add conclusion to list, but rewritten with respect to "past" variables
-					VecInt concPast = new VecInt();
-					concPast.insertFirst(-(linealIndexPast));
+	/**
+	 * Checks whether Barcenas has been localised at a single position. From
+	 * then on, the steps of the agent do not use the sound sensor nor perform
+	 * inference, so the callers can stop performing steps. If the inference
+	 * engine assumes that Barcenas can move, the agent keeps tracking it, and
+	 * this only tells that it was localised once.
+	 *
+	 * @return true if there is only one position where Barcenas can be.
+	 **/
+	public boolean isLocalised() {
+		return stepsToLocalise > 0;
+	}
 
-					futureToPast.add(concPast);
-					bfstate.set(i, j, "X");
-				}
-			}
-		}
+
+	/**
+	 * Checks whether there is nothing left to infer: Barcenas has been
+	 * localised and it cannot move. The callers that perform steps until
+	 * Barcenas is found stop when this is true, so they keep tracking it
+	 * when the inference engine assumes that it can move.
+	 *
+	 * @return true if the steps of the agent do not need the sound sensor.
+	 **/
+	public boolean hasFinished() {
+		return isLocalised() && !engine.isMovingTarget();
 	}
 
 
 	/**
-	 * Builds the initial logical formula of the agent and stores it
-	 * into the solver object.
+	 * Returns the step where Barcenas was localised at a single position.
 	 *
-	 * @return returns the solver object where the formula has been stored.
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @return number of steps performed until then, 0 if it is not localised yet.
 	 **/
-	private ISolver buildGamma() throws ContradictionException {
-		int totalNumVariables;
+	public int getStepsToLocalise() {
+		return stepsToLocalise;
+	}
 
-		// You must set this variable to the total number of boolean variables
-		// in your formula Gamma
-		totalNumVariables = worldLinealDim * 2 + worldLinealDim * 4; // wDim * 6
-		solver = SolverFactory.newDefault();
-		solver.setTimeout(3600);
-		solver.newVar(totalNumVariables);
-		// This variable is used to generate, in a particular sequential order,
-		// the variable indentifiers of all the variables
-		currentLiteral = 1;
 
-		pastBarcenas(); // Barcenas t-1, from 1,1 to n,n (1 clause)
-		futureBarcenas(); // Barcenas t+1, from 1,1 to n,n (1 clause)
-		pastBarcenasToFutureBarcenas(); // Barcenas t-1 -> Barcenas t+1 (nxn clauses)
-		// smellsImplications(   ); // Smells implications (nxnxnxn clauses)
-		soundImplications(); // Sound sensor implications (nxnxnxn clauses)
+	/**
+	 * Returns the x coordinate of the position where Barcenas has been localised.
+	 * If the inference engine assumes that Barcenas can move, it is the position
+	 * given by the last inference.
+	 *
+	 * @return x coordinate, 0 if it is not localised yet, or if Barcenas can
+	 * move and the last inference left several positions.
+	 **/
+	public int getLocalisedX() {
+		return localisedX;
+	}
 
-		notInFirstPosition(); // Not in the 1,1 clauses (2 clauses)
 
-		return solver;
+	/**
+	 * Returns the y coordinate of the position where Barcenas has been localised.
+	 * If the inference engine assumes that Barcenas can move, it is the position
+	 * given by the last inference.
+	 *
+	 * @return y coordinate, 0 if it is not localised yet, or if Barcenas can
+	 * move and the last inference left several positions.
+	 **/
+	public int getLocalisedY() {
+		return localisedY;
 	}
 
 
 	/**
-	 * Adds the clause that says that Barcenas must be in some position
-	 * with respect to the variables that talk about past positions.
+	 * Sets whether the agent keeps moving once Barcenas is localised. It
+	 * moves by default, so that its position follows its steps.
 	 *
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @param stop true to stop moving once Barcenas is localised.
 	 **/
-	private void pastBarcenas() throws ContradictionException {
-		barcenasPastOffset = currentLiteral;
-		VecInt pastClause = new VecInt();
-		for (int i = 0; i < worldLinealDim; i++) {
-			pastClause.insertFirst(currentLiteral);
-			currentLiteral++;
-		}
-		solver.addClause(pastClause);
+	public void setStopMovingWhenLocalised(boolean stop) {
+		stopMovingWhenLocalised = stop;
 	}
 
 
 	/**
-	 * Adds the clause that says that Barcenas must be in some position
-	 * with respect to the variables that talk about future positions.
+	 * Asks the agent to move to the next position, by sending an appropriate
+	 * message to the environment object. The answer returned by the environment
+	 * will be returned to the caller of the function.
 	 *
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @return the answer message from the environment, that will tell whether the
+	 * movement was successful or not.
 	 **/
-	private void futureBarcenas() throws ContradictionException {
-		barcenasFutureOffset = currentLiteral;
-		VecInt futureClause = new VecInt();
-		for (int i = 0; i < worldLinealDim; i++) {
-			futureClause.insertFirst(currentLiteral);
-			currentLiteral++;
+	private AMessage moveToNext() {
+		if (idNextStep < numMovements && readNextStep()) {
+			idNextStep = idNextStep + 1;
+			return moveTo(stepSource.getX(), stepSource.getY());
+		} else {
+			events.emit(EventType.NO_MORE_STEPS, 0, 0, null);
+			return answer.set(MessageKind.NOMESSAGE, 0, 0, 0);
 		}
-		solver.addClause(futureClause);
 	}
 
 
 	/**
-	 * Adds the clauses that say that if in the past we reached the conclusion
-	 * that Barcenas cannot be in a position (x,y), then this should be also true
-	 * in the future.
+	 * Reads the next step from the source of steps.
 	 *
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @return false if there are no more steps, or they cannot be read.
 	 **/
-	private void pastBarcenasToFutureBarcenas() throws ContradictionException {
-		for (int i = 0; i < worldLinealDim; i++) {
-			VecInt clause = new VecInt();
-			clause.insertFirst(i + 1);
-			clause.insertFirst(-(i + barcenasFutureOffset));
-			solver.addClause(clause);
+	private boolean readNextStep() {
+		if (stepSource == null) {
+			return false;
+		}
+		try {
+			return stepSource.nextStep();
+		} catch (IOException ex) {
+			Logger.getLogger(BarcenasFinder.class.getName()).log(Level.SEVERE, null, ex);
+			return false;
 		}
 	}
 
 
 	/**
-	 * Adds the clauses that say that Barcenas can never (past and future) be in
-	 * the first position.
+	 * Uses agent "actuators" to move to (x,y)
+	 * We simulate this by letting the World Agent (environment) know
+	 * that we want to move, but we need the answer from it
+	 * to be sure that the movement was successfully made.
 	 *
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @param x horizontal coordinate of the movement to perform.
+	 * @param y vertical coordinate of the movement to perform.
+	 * @return returns the answer obtained from the environment object to the
+	 * moveto message sent.
 	 **/
-	private void notInFirstPosition() throws ContradictionException {
-		VecInt notInFuture = new VecInt();
-		VecInt notInPast = new VecInt();
-		notInFuture.insertFirst(-barcenasFutureOffset);
-		notInPast.insertFirst(-barcenasPastOffset);
-		solver.addClause(notInFuture);
-		solver.addClause(notInPast);
+	private AMessage moveTo(int x, int y) {
+		// Let the EnvironmentAgentID know that we want to move
+		request.set(MessageKind.MOVETO, x, y, 0);
+		envAgent.acceptMessage(request, answer);
+		events.emit(EventType.MOVING_TO, x, y, null);
+
+		return answer;
 	}
 
 
 	/**
-	 * Adds the clauses related to implications between sound sensor evidence and
-	 * not possible positions of Barcenas.
+	 * Processes the answer obtained from the environment when
+	 * asked to perform a movement
 	 *
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @param moveAns the answer given by the environment to the last move message
 	 **/
-	private void soundImplications() throws ContradictionException {
-		// Store the identifier for the first variable of the
-		// sounds subset of variables
-
-		// Generate and store all the implications between sound
-		// sensor evidence and not possible positions of Barcenas
-		for (int k = 1; k <= 4; k++) {
-			for (int i = 1; i <= worldDim; i++) {
-				for (int j = 1; j <= worldDim; j++) {
-					if (k == 1) {
-						if (soundAboveOffset == 0) {
-							soundAboveOffset = currentLiteral;
-						}
-						insertSoundAboveImplications(i, j);
-						currentLiteral++;
-
-					} else if (k == 2) {
-						if (soundBelowOffset == 0) {
-							soundBelowOffset = currentLiteral;
-						}
-						insertSoundBelowImplications(i, j);
-						currentLiteral++;
-
-					} else if (k == 3) {
-						if (soundLeftOffset == 0) {
-							soundLeftOffset = currentLiteral;
-						}
-						insertSoundLeftImplications(i, j);
-						currentLiteral++;
-
-					} else {
-						if (soundRightOffset == 0) {
-							soundRightOffset = currentLiteral;
-						}
-						insertSoundRightImplications(i, j);
-						currentLiteral++;
-					}
-				}
-			}
+	private void processMoveAnswer(AMessage moveAns) {
+		if (moveAns.getKind() == MessageKind.MOVEDTO) {
+			agentX = moveAns.getX();
+			agentY = moveAns.getY();
+			events.emit(EventType.MOVED_TO, agentX, agentY, null);
 		}
 	}
 
 
 	/**
-	 * Adds to formula the clauses related to implications between the sound sensor
-	 * and not possible positions of Barcenas when the sound is heard above.
+	 * Sends to the environment object the question:
+	 * "Is there any sound at (agentX,agentY) ?".
 	 *
-	 * @param x x coordinate related to the sound literal.
-	 * @param y y coordinate related to the sound literal.
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
-	 */
-	private void insertSoundAboveImplications(int x, int y) throws ContradictionException {
-		for (int k = 1; k <= worldDim; k++) {
-			for (int l = y; l > 0; l--) {
-				// literal related to the sound sensor
-				int implicationFirstPart = coordToLineal(x, y, soundAboveOffset);
-				//int implicationFirstPart = currentLiteral;
-				// literal related to Barcenas not possible position
-				int implicationSecondPart = -(coordToLineal(k, l, barcenasFutureOffset));
-				addImplicationToFormula(implicationFirstPart, implicationSecondPart);
-			}
-		}
+	 * @return return the answer given by the environment.
+	 **/
+	private AMessage soundsAt() {
+		request.set(MessageKind.SOUNDSAT, agentX, agentY, 0);
+		envAgent.acceptMessage(request, answer);
+		events.emit(EventType.CHECKING_SOUND, agentX, agentY, null);
+		// Return answer obtained from environment object
+		return answer;
 	}
 
 
 	/**
-	 * Adds to formula the clauses related to implications between the sound sensor
-	 * and not possible positions of Barcenas when the sound is heard below.
+	 * Processes the answer obtained for the query "Is there any sound at
+	 * (agentX,agentY)?" by adding the appropriate evidence clause/s
+	 * to the formula.
 	 *
-	 * @param x x coordinate related to the sound literal.
-	 * @param y y coordinate related to the sound literal.
+	 * @param ans message obtained to the query "Is there any sound at (agentX,agentY)?".
 	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
-	 */
-	private void insertSoundBelowImplications(int x, int y) throws ContradictionException {
-		for (int k = 1; k <= worldDim; k++) {
-			for (int l = y; l <= worldDim; l++) {
-				// literal related to the sound sensor
-				int implicationFirstPart = coordToLineal(x, y, soundBelowOffset);
-				// int implicationFirstPart = currentLiteral;
-				// literal related to Barcenas not possible position
-				int implicationSecondPart = -(coordToLineal(k, l, barcenasFutureOffset));
-				addImplicationToFormula(implicationFirstPart, implicationSecondPart);
-			}
+	 **/
+	private void addSoundSensorEvidence(AMessage ans) throws ContradictionException {
+		// Parse the answer received to get the new evidence
+		int directions = ans.getDirections();
+		String sounds = Directions.toString(directions);
+		int x = ans.getX();
+		int y = ans.getY();
+
+		// Add the evidence
+		long start = System.nanoTime();
+		events.emit(EventType.SOUND_RETURNED, x, y, sounds);
+		events.emit(EventType.INSERTING_EVIDENCE, x, y, null);
+		if (directions == Directions.ALL) {
+			events.emit(EventType.BARCENAS_FOUND, x, y, null);
 		}
+		engine.addSoundSensorEvidence(x, y, directions);
+		stepMetrics.evidenceNanos = System.nanoTime() - start;
 	}
 
 
 	/**
-	 * Adds to formula the clauses related to implications between the sound sensor
-	 * and not possible positions of Barcenas when the sound is heard on the left.
+	 * Performs the inference questions to discover new positions where
+	 * Barcenas is NOT located, with all the evidence added so far.
 	 *
-	 * @param x x coordinate related to the sound literal.
-	 * @param y y coordinate related to the sound literal.
 	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
-	 */
-	private void insertSoundLeftImplications(int x, int y) throws ContradictionException {
-		for (int k = x; k <= worldDim; k++) {
-			for (int l = 1; l <= worldDim; l++) {
-				// literal related to the sound sensor
-				int implicationFirstPart = coordToLineal(x, y, soundLeftOffset);
-				// int implicationFirstPart = currentLiteral;
-				// literal related to Barcenas not possible position
-				int implicationSecondPart = -(coordToLineal(k, l, barcenasFutureOffset));
-				addImplicationToFormula(implicationFirstPart, implicationSecondPart);
-			}
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	private void performInference() throws ContradictionException, TimeoutException {
+		// Mark the new positions where Barcenas is not located
+		long start = System.nanoTime();
+		BitSet discarded = engine.performInferenceQuestions();
+		if (engine.isMovingTarget()) {
+			// The inference has found all the impossible positions again
+			bfstate.initializeState();
+			candidatesLeft = bfstate.countCandidates();
 		}
+		candidatesLeft -= bfstate.markImpossible(discarded);
+		stepMetrics.inferenceNanos = System.nanoTime() - start;
+		stepMetrics.positionsDiscarded = discarded.cardinality();
+		if (candidatesLeft == 1 && !hasFinished()) {
+			markLocalised();
+		} else if (candidatesLeft > 1 && engine.isMovingTarget()) {
+			// Barcenas has moved away from where it was localised
+			localisedX = 0;
+			localisedY = 0;
+		}
+		emitState(); // Showing resulting knowledge matrix
 	}
 
 
 	/**
-	 * Adds to formula the clauses related to implications between the sound sensor
-	 * and not possible positions of Barcenas when the sound is heard on the right.
-	 *
-	 * @param x x coordinate related to the sound literal.
-	 * @param y y coordinate related to the sound literal.
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
-	 */
-	private void insertSoundRightImplications(int x, int y) throws ContradictionException {
-		for (int k = x; k > 0; k--) {
-			for (int l = 1; l <= worldDim; l++) {
-				// literal related to the sound sensor
-				int implicationFirstPart = coordToLineal(x, y, soundRightOffset);
-				// int implicationFirstPart = currentLiteral;
-				// literal related to Barcenas not possible position
-				int implicationSecondPart = -(coordToLineal(k, l, barcenasFutureOffset));
-				addImplicationToFormula(implicationFirstPart, implicationSecondPart);
-			}
+	 * Records the position of the only candidate left as the position of
+	 * Barcenas, and sends the localisation event if it is a new position.
+	 * The step of the first localisation is kept.
+	 **/
+	private void markLocalised() {
+		int cell = bfstate.nextCandidate(0);
+		int x = cell / worldDim + 1;
+		int y = cell % worldDim + 1;
+		if (stepsToLocalise == 0) {
+			stepsToLocalise = stepsPerformed;
+		}
+		if (x != localisedX || y != localisedY) {
+			localisedX = x;
+			localisedY = y;
+			events.emit(EventType.LOCALISED, localisedX, localisedY, null);
 		}
 	}
 
 
 	/**
-	 * Adds the implication: firstPart -> secondPart to formula.
-	 *
-	 * @param firstPart  first part of the implication (before the arrow ->).
-	 * @param secondPart second part of the implication (after the arrow ->).
-	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
-	 */
-	private void addImplicationToFormula(int firstPart, int secondPart) throws ContradictionException {
-		VecInt implication = new VecInt();
-		implication.insertFirst(-(firstPart));
-		implication.insertFirst(secondPart);
-		solver.addClause(implication);
+	 * Sends a copy of the state of the agent to the sink of events, only if
+	 * the sink shows it, as copying and printing it costs O(n^2).
+	 **/
+	private void emitState() {
+		if (events.isEnabled(EventType.STATE)) {
+			events.emit(EventType.STATE, 0, 0, bfstate.copy());
+		}
 	}
 
 
@@ -12,36 +12,54 @@ import java.io.IOException;
  **/
 public class BarcenasWorld {
 
+	/**
+	 * Name given instead of a steps file to let the agent plan its own steps.
+	 */
+	public static final String PLANNED_STEPS = "plan";
+
 
 	/**
 	 * Executes the sequence of steps stored in the file fileSteps,
 	 * but only up to numSteps steps. Each step is executed by calling the
-	 * function runNextStep() of the BarcenasFinder agent.
+	 * function runNextStep() of the BarcenasFinder agent. If fileSteps is
+	 * PLANNED_STEPS, the agent plans its steps with a StepPlanner instead.
 	 *
 	 * @param wDim      the dimension of world.
 	 * @param barX      x coordinate of Barcenas position.
 	 * @param barY      y coordinate of Barcenas position.
 	 * @param numSteps  num of steps to perform.
-	 * @param fileSteps file name with sequence of steps to perform.
+	 * @param fileSteps file name with sequence of steps to perform, or PLANNED_STEPS.
+	 * @param engine    specification of the inference engine of the agent.
 	 **/
 	private static void runStepsSequence(int wDim, int barX, int barY,
-								  int numSteps, String fileSteps) throws
+								  int numSteps, String fileSteps, String engine) throws
 		   ContradictionException, TimeoutException {
 
 		// Make instances of BarcenasFinder agent and environment object classes
 		BarcenasFinder BAgent;
 		BarcenasWorldEnv EnvAgent;
-		BAgent = new BarcenasFinder(wDim);
+		BAgent = new BarcenasFinder(wDim, InferenceEngines.create(engine, wDim));
 		EnvAgent = new BarcenasWorldEnv(wDim, barX, barY);
 
 		// Set environment object and load list of steps into the Agent
 		BAgent.setEnvironment(EnvAgent);
-		BAgent.loadListOfSteps(numSteps, fileSteps);
+		StepPlanner planner = null;
+		if (fileSteps.equals(PLANNED_STEPS)) {
+			planner = new StepPlanner(BAgent, 0);
+			BAgent.setStepSource(planner, numSteps);
+		} else {
+			BAgent.loadListOfSteps(numSteps, fileSteps);
+		}
 
-		// Execute sequence of steps with the Agent
-		for (int stepNum = 0; stepNum < numSteps; stepNum++) {
+		// Execute sequence of steps with the Agent, until there is nothing left to infer
+		for (int stepNum = 0; stepNum < numSteps && !BAgent.hasFinished(); stepNum++) {
 			BAgent.runNextStep();
 		}
+		BAgent.shutdown();
+		if (planner != null) {
+			System.out.println("WORLD => " + planner.getStepsPlanned() + " steps planned, "
+				   + BAgent.getState().countCandidates() + " possible positions left");
+		}
 	}
 
 	/**
@@ -50,7 +68,11 @@ public class BarcenasWorld {
 	 * arg[1] = x coordinate of Barcenas position.
 	 * arg[2] = y coordinate of Barcenas position.
 	 * arg[3] = num of steps to perform.
-	 * arg[4] = file name with sequence of steps to perform.
+	 * arg[4] = file name with sequence of steps to perform, or "plan" to let
+	 * the agent plan its steps to localise Barcenas in as few steps as possible.
+	 * arg[5] = (optional) specification of the inference engine of the agent,
+	 * i.e "sat,compact,backbone". When missing, the one in the system property
+	 * bworld.engine, or the default SAT4J engine (see InferenceEngines).
 	 * Then runs the steps sequence contained in the stepsFile (args[4]).
 	 **/
 	public static void main(String[] args) throws IOException,
@@ -61,7 +83,12 @@ public class BarcenasWorld {
 			int barcenasY = Integer.parseInt(args[2]);
 			int numSteps = Integer.parseInt(args[3]);
 			String stepsFile = args[4];
-			runStepsSequence(worldDim, barcenasX, barcenasY, numSteps, stepsFile);
+			String engine = System.getProperty(InferenceEngines.ENGINE_PROPERTY,
+				   InferenceEngines.DEFAULT_ENGINE);
+			if (args.length > 5) {
+				engine = args[5];
+			}
+			runStepsSequence(worldDim, barcenasX, barcenasY, numSteps, stepsFile, engine);
 		} else {
 			System.out.println("WORLD => Not enough arguments given");
 		}
@@ -7,6 +7,11 @@ public class BarcenasWorldEnv {
 	 **/
 	int BarcenasX, BarcenasY, WorldDim;
 
+	/**
+	 * Destination of the messages received by the environment.
+	 **/
+	private EventSink events = EventSinks.fromSystemProperty();
+
 
 	/**
 	 * Class constructor.
@@ -23,6 +28,16 @@ public class BarcenasWorldEnv {
 	}
 
 
+	/**
+	 * Sets the destination of the messages received by the environment.
+	 *
+	 * @param events destination of the events, EventSinks.NONE to keep it silent.
+	 **/
+	public void setEventSink(EventSink events) {
+		this.events = events;
+	}
+
+
 	/**
 	 * Process a message received by the BFinder agent,
 	 * by returning an appropriate answer.
@@ -31,24 +46,36 @@ public class BarcenasWorldEnv {
 	 * @return a msg with the answer to return to the agent.
 	 **/
 	public AMessage acceptMessage(AMessage msg) {
-		AMessage ans = new AMessage("voidmsg", "", "");
-
-		msg.showMessage();
-		if (msg.getComp(0).equals("moveto")) {
-			int nx = Integer.parseInt(msg.getComp(1));
-			int ny = Integer.parseInt(msg.getComp(2));
-			if (withinLimits(nx, ny))
-				ans = new AMessage("movedto", msg.getComp(1), msg.getComp(2));
-			else
-				ans = new AMessage("notmovedto", msg.getComp(1), msg.getComp(2));
-
-		} else {
-			if (msg.getComp(0).equals("soundsat")) {
-				int nx = Integer.parseInt(msg.getComp(1));
-				int ny = Integer.parseInt(msg.getComp(2));
-				String barcenasWay = returnBarcenasDirection(nx, ny);
-				ans = new AMessage(barcenasWay, msg.getComp(1), msg.getComp(2));
-			}
+		return acceptMessage(msg, new AMessage());
+	}
+
+
+	/**
+	 * Process a message received by the BFinder agent, by filling an
+	 * answer message given by the agent, so that no object is made.
+	 *
+	 * @param msg message sent by the Agent.
+	 * @param ans message where the answer to return to the agent is written.
+	 * @return the answer message ans.
+	 **/
+	public AMessage acceptMessage(AMessage msg, AMessage ans) {
+		if (events.isEnabled(EventType.MESSAGE_RECEIVED)) {
+			events.emit(EventType.MESSAGE_RECEIVED, msg.getX(), msg.getY(), msg.copy());
+		}
+		int nx = msg.getX();
+		int ny = msg.getY();
+		switch (msg.getKind()) {
+			case MOVETO:
+				if (withinLimits(nx, ny))
+					ans.set(MessageKind.MOVEDTO, nx, ny, 0);
+				else
+					ans.set(MessageKind.NOTMOVEDTO, nx, ny, 0);
+				break;
+			case SOUNDSAT:
+				ans.set(MessageKind.SOUND, nx, ny, returnBarcenasDirection(nx, ny));
+				break;
+			default:
+				ans.set(MessageKind.VOIDMSG, 0, 0, 0);
 		}
 		return ans;
 
@@ -73,28 +100,21 @@ public class BarcenasWorldEnv {
 	 *
 	 * @param x x coordinate of agent position.
 	 * @param y y coordinate of agent position.
-	 * @return a string that contains which way Barcenas is located, i.e "TOP,LEFT".
+	 * @return a mask of Directions with the ways Barcenas is located, i.e ABOVE | LEFT.
 	 */
-	private String returnBarcenasDirection(int x, int y) {
-		if (y < BarcenasY && x < BarcenasX) {
-			return "ABOVE,RIGHT";
-		} else if (y < BarcenasY && x > BarcenasX) {
-			return "ABOVE,LEFT";
-		} else if (y > BarcenasY && x < BarcenasX) {
-			return "BELOW,RIGHT";
-		} else if (y > BarcenasY && x > BarcenasX) {
-			return "BELOW,LEFT";
-		} else if (y < BarcenasY) {
-			return "ABOVE";
+	private int returnBarcenasDirection(int x, int y) {
+		int directions = 0;
+		if (y < BarcenasY) {
+			directions |= Directions.ABOVE;
 		} else if (y > BarcenasY) {
-			return "BELOW";
-		} else if (x > BarcenasX) {
-			return "LEFT";
+			directions |= Directions.BELOW;
+		}
+		if (x > BarcenasX) {
+			directions |= Directions.LEFT;
 		} else if (x < BarcenasX) {
-			return "RIGHT";
-		} else {
-			return "ABOVE,BELOW,LEFT,RIGHT";
+			directions |= Directions.RIGHT;
 		}
+		return directions == 0 ? Directions.ALL : directions;
 	}
 
 }
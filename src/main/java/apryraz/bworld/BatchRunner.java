@@ -0,0 +1,267 @@
+package apryraz.bworld;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+
+/**
+ * Runs many scenarios of the Barcenas World in the same program, each one
+ * with its own silent agent, environment and inference engine, as tasks of
+ * a work-stealing pool of threads.
+ **/
+public class BatchRunner {
+
+	/**
+	 * Specification of the inference engine of every agent (see InferenceEngines).
+	 */
+	private final String engineSpec;
+
+	/**
+	 * Number of threads of the pool.
+	 */
+	private final int threads;
+
+	/**
+	 * True if the agents plan their steps instead of following the steps of
+	 * the scenarios, that then only give the maximum number of steps.
+	 */
+	private final boolean planned;
+
+	/**
+	 * Time spent by the last call to run, in nanoseconds.
+	 */
+	private long lastWallNanos;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param engineSpec specification of the inference engine of every agent.
+	 * @param threads    number of threads that run scenarios at once.
+	 **/
+	public BatchRunner(String engineSpec, int threads) {
+		this(engineSpec, threads, false);
+	}
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param engineSpec specification of the inference engine of every agent.
+	 * @param threads    number of threads that run scenarios at once.
+	 * @param planned    true if the agents plan their steps with a StepPlanner,
+	 *                   performing at most as many steps as their scenarios.
+	 **/
+	public BatchRunner(String engineSpec, int threads, boolean planned) {
+		this.engineSpec = engineSpec;
+		this.threads = threads;
+		this.planned = planned;
+	}
+
+
+	/**
+	 * Runs all the scenarios and waits for their results.
+	 *
+	 * @param scenarios scenarios to run.
+	 * @return the results, in the same order as the scenarios.
+	 * @throws ContradictionException if inserting contradictory information to some solver.
+	 * @throws TimeoutException       if some solver spends more time computing than a certain timeout.
+	 **/
+	public List<ScenarioResult> run(List<Scenario> scenarios) throws
+		   ContradictionException, TimeoutException {
+		List<Callable<ScenarioResult>> tasks = new ArrayList<>(scenarios.size());
+		for (final Scenario scenario : scenarios) {
+			tasks.add(new Callable<ScenarioResult>() {
+				@Override
+				public ScenarioResult call() throws ContradictionException, TimeoutException {
+					return runScenario(scenario, engineSpec, planned);
+				}
+			});
+		}
+
+		long start = System.nanoTime();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			List<ScenarioResult> results = new ArrayList<>(scenarios.size());
+			for (Future<ScenarioResult> future : pool.invokeAll(tasks)) {
+				results.add(getResult(future));
+			}
+			return results;
+		} finally {
+			pool.shutdown();
+			lastWallNanos = System.nanoTime() - start;
+		}
+	}
+
+
+	/**
+	 * Returns the time spent by the last call to run, including the time
+	 * waiting for the slowest scenario.
+	 *
+	 * @return time in nanoseconds.
+	 **/
+	public long getLastWallNanos() {
+		return lastWallNanos;
+	}
+
+
+	/**
+	 * Runs a scenario with a silent agent, and measures it.
+	 *
+	 * @param scenario   the scenario.
+	 * @param engineSpec specification of the inference engine of the agent.
+	 * @return the results of the scenario.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	public static ScenarioResult runScenario(Scenario scenario, String engineSpec) throws
+		   ContradictionException, TimeoutException {
+		return runScenario(scenario, engineSpec, false);
+	}
+
+
+	/**
+	 * Runs a scenario with a silent agent, that follows the steps of the
+	 * scenario or plans its own steps, and measures it.
+	 *
+	 * @param scenario   the scenario.
+	 * @param engineSpec specification of the inference engine of the agent.
+	 * @param planned    true if the agent plans its steps with a StepPlanner,
+	 *                   performing at most as many steps as the scenario.
+	 * @return the results of the scenario.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	public static ScenarioResult runScenario(Scenario scenario, String engineSpec, boolean planned) throws
+		   ContradictionException, TimeoutException {
+		long start = System.nanoTime();
+		int wDim = scenario.getWorldDim();
+		InferenceEngine engine = InferenceEngines.create(engineSpec, wDim);
+		BarcenasFinder BAgent = new BarcenasFinder(wDim, engine, EventSinks.NONE);
+		BarcenasWorldEnv EnvAgent = new BarcenasWorldEnv(wDim,
+			   scenario.getBarcenasX(), scenario.getBarcenasY());
+		EnvAgent.setEventSink(EventSinks.NONE);
+		BAgent.setEnvironment(EnvAgent);
+		if (planned) {
+			BAgent.setStepSource(new StepPlanner(BAgent, 0), scenario.getSteps().size());
+		} else {
+			BAgent.setListOfSteps(scenario.getSteps());
+		}
+
+		int stepsPerformed = 0;
+		long solverCalls = 0;
+		long peakClauses = engine.getNumClauses();
+		try {
+			// The remaining steps are not performed once there is nothing left to infer
+			while (stepsPerformed < scenario.getSteps().size() && !BAgent.hasFinished()) {
+				stepsPerformed++;
+				solverCalls += BAgent.runNextStep().getSolverCalls();
+				peakClauses = Math.max(peakClauses, engine.getNumClauses());
+			}
+		} finally {
+			BAgent.shutdown();
+		}
+		int stepsToLocalise = BAgent.isLocalised() ? BAgent.getStepsToLocalise() : -1;
+		return new ScenarioResult(scenario, stepsPerformed, stepsToLocalise, solverCalls,
+			   System.nanoTime() - start, peakClauses);
+	}
+
+
+	/**
+	 * Returns the result of a finished task, throwing the exception of the
+	 * task if it failed.
+	 *
+	 * @param future the task.
+	 * @return the result of the task.
+	 * @throws ContradictionException if the task inserted contradictory information to solver.
+	 * @throws TimeoutException       if the solver of the task spent too much time.
+	 **/
+	private static ScenarioResult getResult(Future<ScenarioResult> future) throws
+		   ContradictionException, TimeoutException {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof ContradictionException) {
+				throw (ContradictionException) cause;
+			}
+			if (cause instanceof TimeoutException) {
+				throw (TimeoutException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+
+	/**
+	 * Loads the arguments from the command line:
+	 * arg[0] = manifest file of scenarios (see Scenario.readManifest), or
+	 * random:COUNT:DIM:STEPS[:SEED] to run COUNT random scenarios.
+	 * arg[1] = (optional) specification of the inference engine of the agents,
+	 * by default the one in the system property bworld.engine or the SAT4J engine.
+	 * arg[2] = (optional) number of threads, by default the available processors.
+	 * arg[3] = (optional) "plan" to let the agents plan their steps, performing
+	 * at most as many steps as their scenarios.
+	 * Then runs all the scenarios, and prints one CSV line with the results of
+	 * each one and a summary of the throughput.
+	 **/
+	public static void main(String[] args) throws IOException,
+		   ContradictionException, TimeoutException {
+		if (args == null || args.length < 1) {
+			System.out.println("BATCH => Not enough arguments given");
+			return;
+		}
+		List<Scenario> scenarios;
+		if (args[0].startsWith("random:")) {
+			String[] fields = args[0].split(":");
+			long seed = fields.length > 4 ? Long.parseLong(fields[4]) : System.nanoTime();
+			scenarios = Scenario.randomScenarios(Integer.parseInt(fields[1]),
+				   Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), seed);
+		} else {
+			scenarios = Scenario.readManifest(args[0]);
+		}
+		String engine = args.length > 1 ? args[1] : System.getProperty(
+			   InferenceEngines.ENGINE_PROPERTY, InferenceEngines.DEFAULT_ENGINE);
+		int threads = args.length > 2 ? Integer.parseInt(args[2])
+			   : Runtime.getRuntime().availableProcessors();
+
+		boolean planned = args.length > 3 && args[3].equals(BarcenasWorld.PLANNED_STEPS);
+
+		BatchRunner runner = new BatchRunner(engine, threads, planned);
+		List<ScenarioResult> results = runner.run(scenarios);
+		System.out.println(ScenarioResult.CSV_HEADER);
+		long totalSteps = 0, totalCalls = 0;
+		int localised = 0;
+		for (ScenarioResult result : results) {
+			System.out.println(result.toCsv());
+			totalSteps += result.getStepsPerformed();
+			totalCalls += result.getSolverCalls();
+			if (result.getStepsToLocalise() >= 0) {
+				localised++;
+			}
+		}
+		double seconds = runner.getLastWallNanos() / 1e9;
+		System.out.println("BATCH => " + results.size() + " scenarios (" + localised
+			   + " localised), " + totalSteps + " steps, " + totalCalls + " solver calls in "
+			   + String.format("%.3f", seconds) + " s with " + threads + " threads: "
+			   + String.format("%.1f", results.size() / seconds) + " scenarios/s, "
+			   + String.format("%.1f", totalSteps / seconds) + " steps/s");
+	}
+
+}
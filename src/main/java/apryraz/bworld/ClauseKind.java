@@ -0,0 +1,24 @@
+package apryraz.bworld;
+
+/**
+ * Kinds of clauses that the inference engines add to the formula.
+ **/
+public enum ClauseKind {
+
+	/**
+	 * Rules of the Barcenas World (Gamma), including the implications
+	 * that the lazy encoding adds when they are first needed.
+	 */
+	GAMMA,
+
+	/**
+	 * Conclusions of the previous inference, rewritten with the
+	 * "past" variables.
+	 */
+	PAST,
+
+	/**
+	 * Evidence gathered by the sound sensor.
+	 */
+	EVIDENCE
+}
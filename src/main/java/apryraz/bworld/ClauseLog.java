@@ -0,0 +1,122 @@
+package apryraz.bworld;
+
+import org.sat4j.specs.IVecInt;
+
+/**
+ * Intake of the clauses of the SatInferenceEngine, that decides which of
+ * them are worth adding to the solver. It keeps the value of every variable
+ * asserted by a unit clause, so that it drops:
+ * <p>
+ * - the duplicates: unit clauses already asserted.
+ * - the subsumed clauses: clauses with a literal asserted by a unit clause,
+ * that are already true.
+ * <p>
+ * The clauses of more than one literal are not recorded: the clauses of the
+ * steps are all unit clauses, and the only longer clauses added after Gamma,
+ * the implications of the lazy encoding, are added once for every sound
+ * variable, so a set of them would never find a duplicate.
+ * <p>
+ * Unit clauses whose literal is already false are not dropped, so that the
+ * solver finds the contradiction.
+ **/
+final class ClauseLog {
+
+	/**
+	 * Verdict for a clause that has to be added to the solver.
+	 */
+	static final int NEW = 0;
+
+	/**
+	 * Verdict for a clause that was already added.
+	 */
+	static final int DUPLICATE = 1;
+
+	/**
+	 * Verdict for a clause that is true because of the unit clauses added.
+	 */
+	static final int SUBSUMED = 2;
+
+	/**
+	 * Value of every variable asserted by a unit clause: 1 if true, -1 if
+	 * false and 0 if not asserted. Index 0 is not used.
+	 */
+	private final byte[] values;
+
+	/**
+	 * Number of clauses dropped because they were duplicates or subsumed.
+	 */
+	private long duplicates, subsumed;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param numVariables number of variables of the formula.
+	 **/
+	ClauseLog(int numVariables) {
+		values = new byte[numVariables + 1];
+	}
+
+
+	/**
+	 * Decides whether a clause has to be added to the solver, and records it
+	 * if it is a unit clause.
+	 *
+	 * @param clause the clause.
+	 * @return NEW if the clause has to be added, DUPLICATE or SUBSUMED if not.
+	 **/
+	int offer(IVecInt clause) {
+		if (clause.size() == 1) {
+			int literal = clause.get(0);
+			int value = valueOf(literal);
+			if (value > 0) {
+				duplicates++;
+				return DUPLICATE;
+			}
+			if (value == 0) {
+				values[Math.abs(literal)] = (byte) (literal > 0 ? 1 : -1);
+			}
+			return NEW;
+		}
+		for (int l = 0; l < clause.size(); l++) {
+			if (valueOf(clause.get(l)) > 0) {
+				subsumed++;
+				return SUBSUMED;
+			}
+		}
+		return NEW;
+	}
+
+
+	/**
+	 * Returns the value of a literal according to the unit clauses added.
+	 *
+	 * @param literal the literal.
+	 * @return 1 if it is true, -1 if it is false and 0 if it is not known.
+	 **/
+	int valueOf(int literal) {
+		int value = values[Math.abs(literal)];
+		return literal > 0 ? value : -value;
+	}
+
+
+	/**
+	 * Returns the number of clauses dropped because they were already added.
+	 *
+	 * @return number of duplicate clauses.
+	 **/
+	long getDuplicates() {
+		return duplicates;
+	}
+
+
+	/**
+	 * Returns the number of clauses dropped because they were already true.
+	 *
+	 * @return number of subsumed clauses.
+	 **/
+	long getSubsumed() {
+		return subsumed;
+	}
+
+}
@@ -0,0 +1,298 @@
+package apryraz.bworld;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+
+import java.util.ArrayList;
+
+/**
+ * Clauses of the last steps of the SatInferenceEngine in the moving-target
+ * mode, that are removed from the solver once they are older than a number
+ * of steps, so that the size of the solver stays bounded.
+ * <p>
+ * Every step uses one slot of the window, with its own selector variable.
+ * The clauses of a step are added with the negative literal of its selector,
+ * and the solver is asked with the positive literals of all the selectors as
+ * assumptions. So no clause of a step is ever a unit clause for the solver:
+ * SAT4J undoes, when removing a unit clause, the unit clauses added after it.
+ * <p>
+ * When a slot is used again, the clauses of its old step leave the solver.
+ * Removing one clause with removeConstr looks for it among all the clauses
+ * of the solver, Gamma included, and forgets the learned clauses, so the
+ * clauses of the window are kept on top of the clauses of the solver, in
+ * the order they were added, and are removed from the top instead, which
+ * takes constant time for each of them. All the clauses of the window down
+ * to the first one of the old step are removed, and the ones of the other
+ * steps are added again. The learned clauses are forgotten once, as they
+ * may have the selector of the old step, that the new step uses again.
+ * Only the clauses of Gamma added in the middle of the window, by the lazy
+ * encoding, can leave the clauses of a step below the top: those are
+ * removed one at a time.
+ **/
+final class ClauseWindow {
+
+	/**
+	 * Clause of the window added to the solver.
+	 **/
+	private static class Entry {
+
+		/**
+		 * Constraint handle of the clause.
+		 */
+		final IConstr constr;
+
+		/**
+		 * Literals of the clause, with the literal of its selector.
+		 */
+		final int[] literals;
+
+		/**
+		 * Slot of the step of the clause.
+		 */
+		final int slot;
+
+		/**
+		 * Number of constraints of the solver just after adding the clause,
+		 * while the clause keeps that position, or 0 after removing another
+		 * clause below it.
+		 */
+		int position;
+
+
+		/**
+		 * Class constructor.
+		 *
+		 * @param constr   constraint handle of the clause.
+		 * @param literals literals of the clause, with the literal of its selector.
+		 * @param slot     slot of the step of the clause.
+		 * @param position number of constraints of the solver just after adding the clause.
+		 **/
+		Entry(IConstr constr, int[] literals, int slot, int position) {
+			this.constr = constr;
+			this.literals = literals;
+			this.slot = slot;
+			this.position = position;
+		}
+	}
+
+	/**
+	 * Solver that stores the clauses.
+	 */
+	private final ISolver solver;
+
+	/**
+	 * Clauses of all the slots, in the order they were added to the solver.
+	 */
+	private final ArrayList<Entry> entries = new ArrayList<>();
+
+	/**
+	 * Positive literals of the selectors of all the slots.
+	 */
+	private final VecInt selectors;
+
+	/**
+	 * Number of clauses stored in every slot.
+	 */
+	private final int[] slotClauses;
+
+	/**
+	 * Slot of the current step, -1 before the first step.
+	 */
+	private int currentSlot = -1;
+
+	/**
+	 * Number of clauses removed from the solver so far.
+	 */
+	private long retiredClauses;
+
+
+	/**
+	 * Class constructor. The selector variables must already be declared
+	 * in the solver.
+	 *
+	 * @param solver        solver that stores the clauses.
+	 * @param firstSelector variable of the selector of the first slot, the
+	 *                      ones of the other slots follow it.
+	 * @param steps         number of steps of the window.
+	 **/
+	ClauseWindow(ISolver solver, int firstSelector, int steps) {
+		this.solver = solver;
+		slotClauses = new int[steps];
+		selectors = new VecInt(steps);
+		for (int s = 0; s < steps; s++) {
+			selectors.push(firstSelector + s);
+		}
+	}
+
+
+	/**
+	 * Starts a new step: moves to the next slot and removes from the solver
+	 * the clauses of the step that used it before.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	void startStep() throws ContradictionException {
+		currentSlot = (currentSlot + 1) % slotClauses.length;
+		if (slotClauses[currentSlot] == 0) {
+			return;
+		}
+		int first = 0;
+		while (entries.get(first).slot != currentSlot) {
+			first++;
+		}
+		if (isOnTop(first)) {
+			removeFromTop(first);
+		} else {
+			removeOneByOne();
+		}
+		retiredClauses += slotClauses[currentSlot];
+		slotClauses[currentSlot] = 0;
+	}
+
+
+	/**
+	 * Checks whether the clauses of the window from one of them up are the
+	 * last clauses of the solver.
+	 *
+	 * @param first index in entries of the first clause.
+	 * @return true if no other clause was added after them.
+	 **/
+	private boolean isOnTop(int first) {
+		int position = solver.nConstraints();
+		for (int e = entries.size() - 1; e >= first; e--, position--) {
+			if (entries.get(e).position != position) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Removes the clauses of the window from one of them up, that are the
+	 * last clauses of the solver, and adds again the ones that are not of
+	 * the current slot.
+	 *
+	 * @param first index in entries of the first clause removed.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private void removeFromTop(int first) throws ContradictionException {
+		ArrayList<Entry> removed = new ArrayList<>(entries.size() - first);
+		for (int e = entries.size() - 1; e >= first; e--) {
+			Entry entry = entries.remove(e);
+			solver.removeSubsumedConstr(entry.constr);
+			removed.add(entry);
+		}
+		solver.clearLearntClauses();
+		for (int e = removed.size() - 1; e >= 0; e--) {
+			Entry entry = removed.get(e);
+			if (entry.slot != currentSlot) {
+				slotClauses[entry.slot]--;
+				store(new VecInt(entry.literals), entry.slot);
+			}
+		}
+	}
+
+
+	/**
+	 * Removes the clauses of the current slot one at a time. The clauses of
+	 * the window above them do not keep their position.
+	 **/
+	private void removeOneByOne() {
+		boolean above = false;
+		for (int e = 0; e < entries.size(); e++) {
+			Entry entry = entries.get(e);
+			if (entry.slot == currentSlot) {
+				solver.removeConstr(entry.constr);
+				entries.remove(e--);
+				above = true;
+			} else if (above) {
+				entry.position = 0;
+			}
+		}
+	}
+
+
+	/**
+	 * Adds a clause of the current step to the solver.
+	 *
+	 * @param clause the clause.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	void addClause(IVecInt clause) throws ContradictionException {
+		if (currentSlot < 0) {
+			startStep();
+		}
+		VecInt guarded = new VecInt(clause.size() + 1);
+		clause.copyTo(guarded);
+		guarded.push(-selectors.get(currentSlot));
+		store(guarded, currentSlot);
+	}
+
+
+	/**
+	 * Adds a clause with the literal of its selector to the solver, and
+	 * keeps it with the clauses of a slot.
+	 *
+	 * @param guarded the clause, with the literal of its selector.
+	 * @param slot    slot of the step of the clause.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private void store(VecInt guarded, int slot) throws ContradictionException {
+		int[] literals = new int[guarded.size()];
+		guarded.copyTo(literals);
+		// The solver gives no handle for clauses already true
+		IConstr constr = solver.addClause(guarded);
+		if (constr != null) {
+			entries.add(new Entry(constr, literals, slot, solver.nConstraints()));
+			slotClauses[slot]++;
+		}
+	}
+
+
+	/**
+	 * Adds the positive literals of the selectors to the assumptions of a
+	 * solver query, so that the clauses of the window hold.
+	 *
+	 * @param assumptions assumptions of the query.
+	 **/
+	void addAssumptions(IVecInt assumptions) {
+		for (int s = 0; s < selectors.size(); s++) {
+			assumptions.push(selectors.get(s));
+		}
+	}
+
+
+	/**
+	 * Returns the number of steps of the window.
+	 *
+	 * @return number of steps.
+	 **/
+	int getSteps() {
+		return slotClauses.length;
+	}
+
+
+	/**
+	 * Returns the number of clauses of the steps of the window stored in the solver.
+	 *
+	 * @return number of clauses.
+	 **/
+	int getActiveClauses() {
+		return entries.size();
+	}
+
+
+	/**
+	 * Returns the number of clauses removed from the solver so far.
+	 *
+	 * @return number of clauses.
+	 **/
+	long getRetiredClauses() {
+		return retiredClauses;
+	}
+
+}
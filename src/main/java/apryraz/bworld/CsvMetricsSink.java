@@ -0,0 +1,70 @@
+package apryraz.bworld;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sink that writes the measurements of every step as a line of CSV,
+ * after a header line with the names of the columns.
+ **/
+public class CsvMetricsSink implements StepMetricsSink {
+
+	/**
+	 * Header line, with the names of the columns.
+	 */
+	public static final String HEADER = "step,dim,moveNanos,pastClausesNanos,evidenceNanos,"
+		   + "inferenceNanos,totalNanos,solverCalls,satisfiable,unsatisfiable,unitAnswers,unitNanosSaved,discarded,candidates,"
+		   + "gammaClauses,pastClauses,evidenceClauses,duplicateClauses,subsumedClauses,variables,constraints,"
+		   + "conflicts,decisions,propagations,learnedclauses";
+
+	/**
+	 * Destination of the lines.
+	 */
+	private final PrintWriter out;
+
+
+	/**
+	 * Class constructor. Writes the header line.
+	 *
+	 * @param writer destination of the lines, closed with the sink.
+	 **/
+	public CsvMetricsSink(Writer writer) {
+		out = new PrintWriter(writer);
+		out.println(HEADER);
+	}
+
+
+	/**
+	 * Writes the line of the measurements of a step.
+	 *
+	 * @param m measurements of the step.
+	 **/
+	public synchronized void accept(StepMetrics m) {
+		out.println(m.getStepNumber() + "," + m.getWorldDim() + "," + m.getMoveNanos() + ","
+			   + m.getPastClausesNanos() + "," + m.getEvidenceNanos() + "," + m.getInferenceNanos() + ","
+			   + m.getTotalNanos() + "," + m.getSolverCalls() + "," + m.getSatisfiableAnswers() + ","
+			   + m.getUnsatisfiableAnswers() + "," + m.getUnitAnswers() + ","
+			   + m.getUnitAnswerNanosSaved() + "," + m.getPositionsDiscarded() + ","
+			   + m.getCandidatesLeft() + "," + m.getClausesAdded(ClauseKind.GAMMA) + ","
+			   + m.getClausesAdded(ClauseKind.PAST) + "," + m.getClausesAdded(ClauseKind.EVIDENCE) + ","
+			   + m.getDuplicateClauses() + "," + m.getSubsumedClauses() + ","
+			   + m.getNumVariables() + "," + m.getNumConstraints() + ","
+			   + m.getSolverStat("conflicts") + "," + m.getSolverStat("decisions") + ","
+			   + m.getSolverStat("propagations") + "," + m.getSolverStat("learnedclauses"));
+	}
+
+
+	/**
+	 * Writes the buffered lines and closes the destination.
+	 **/
+	public synchronized void close() {
+		out.close();
+		if (out.checkError()) {
+			Logger.getLogger(CsvMetricsSink.class.getName()).log(Level.SEVERE,
+				   "Error writing step metrics");
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package apryraz.bworld;
+
+/**
+ * Directions where the sound sensor hears Barcenas, as a mask of 4 bits.
+ * The string form of a mask is the list of its directions separated by
+ * commas in the order ABOVE, BELOW, LEFT, RIGHT, e.g. "ABOVE,RIGHT".
+ **/
+public final class Directions {
+
+	/**
+	 * Barcenas is in a row above the agent.
+	 */
+	public static final int ABOVE = 1;
+
+	/**
+	 * Barcenas is in a row below the agent.
+	 */
+	public static final int BELOW = 2;
+
+	/**
+	 * Barcenas is in a column to the left of the agent.
+	 */
+	public static final int LEFT = 4;
+
+	/**
+	 * Barcenas is in a column to the right of the agent.
+	 */
+	public static final int RIGHT = 8;
+
+	/**
+	 * Reading of the sensor when Barcenas is at the position of the agent.
+	 */
+	public static final int ALL = ABOVE | BELOW | LEFT | RIGHT;
+
+	/**
+	 * Names of the directions, in the order of their bits.
+	 */
+	private static final String[] NAMES = {"ABOVE", "BELOW", "LEFT", "RIGHT"};
+
+	/**
+	 * String form of every mask, made once so that no string is made afterwards.
+	 */
+	private static final String[] FORMS = new String[ALL + 1];
+
+	static {
+		for (int mask = 0; mask <= ALL; mask++) {
+			StringBuilder form = new StringBuilder();
+			for (int bit = 0; bit < NAMES.length; bit++) {
+				if ((mask & (1 << bit)) != 0) {
+					if (form.length() > 0) {
+						form.append(',');
+					}
+					form.append(NAMES[bit]);
+				}
+			}
+			FORMS[mask] = form.toString();
+		}
+	}
+
+
+	/**
+	 * Class with static functions only, there are no objects of it.
+	 **/
+	private Directions() {
+	}
+
+
+	/**
+	 * Returns the string form of a mask of directions.
+	 *
+	 * @param mask the mask.
+	 * @return the list of its directions, the same String object every time.
+	 **/
+	public static String toString(int mask) {
+		return FORMS[mask];
+	}
+
+
+	/**
+	 * Reads the string form of a mask of directions, in any order.
+	 *
+	 * @param form list of directions separated by commas.
+	 * @return the mask.
+	 * @throws IllegalArgumentException if the list has something that is not a direction.
+	 **/
+	public static int parse(String form) {
+		if (form.isEmpty()) {
+			return 0;
+		}
+		int mask = 0;
+		for (String name : form.split(",")) {
+			int bit = 0;
+			while (bit < NAMES.length && !NAMES[bit].equals(name)) {
+				bit++;
+			}
+			if (bit == NAMES.length) {
+				throw new IllegalArgumentException("Unknown direction " + name + " in " + form);
+			}
+			mask |= 1 << bit;
+		}
+		return mask;
+	}
+
+}
@@ -0,0 +1,28 @@
+package apryraz.bworld;
+
+/**
+ * Levels of detail of the events of the Barcenas World, from the most
+ * detailed to the most important.
+ **/
+public enum EventLevel {
+
+	/**
+	 * Every literal added to the formula.
+	 */
+	TRACE,
+
+	/**
+	 * Messages exchanged with the environment and states of the agent.
+	 */
+	DEBUG,
+
+	/**
+	 * Movements, sound sensor answers and progress of the agent.
+	 */
+	INFO,
+
+	/**
+	 * Problems found by the agent.
+	 */
+	WARNING
+}
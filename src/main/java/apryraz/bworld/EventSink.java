@@ -0,0 +1,35 @@
+package apryraz.bworld;
+
+/**
+ * Destination of the events of the BarcenasFinder agent, its inference
+ * engine and its environment.
+ **/
+public interface EventSink {
+
+	/**
+	 * Checks whether events of a type are shown, so that the caller can avoid
+	 * preparing an expensive detail object for events that are discarded.
+	 *
+	 * @param type type of event.
+	 * @return true if events of that type are shown.
+	 **/
+	boolean isEnabled(EventType type);
+
+	/**
+	 * Receives an event. Events of types that are not enabled are discarded
+	 * without any formatting.
+	 *
+	 * @param type   type of event.
+	 * @param x      first argument of the event, 0 if it has none.
+	 * @param y      second argument of the event, 0 if it has none.
+	 * @param detail detail object of the event, that must not change
+	 *               afterwards, or null.
+	 **/
+	void emit(EventType type, int x, int y, Object detail);
+
+	/**
+	 * Shows the events still pending and releases the resources of the sink.
+	 **/
+	void close();
+
+}
@@ -0,0 +1,148 @@
+package apryraz.bworld;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Makes the usual event sinks.
+ **/
+public final class EventSinks {
+
+	/**
+	 * Name of the system property with the lowest level of the events shown
+	 * in the console by the main programs, or "none" to show none.
+	 */
+	public static final String LEVEL_PROPERTY = "bworld.events";
+
+	/**
+	 * Sink that discards every event, for runs without output.
+	 */
+	public static final EventSink NONE = new EventSink() {
+		/**
+		 * No event is shown.
+		 *
+		 * @param type type of event.
+		 * @return false.
+		 **/
+		public boolean isEnabled(EventType type) {
+			return false;
+		}
+
+		/**
+		 * Discards the event.
+		 *
+		 * @param type   type of event.
+		 * @param x      first argument of the event.
+		 * @param y      second argument of the event.
+		 * @param detail detail object of the event.
+		 **/
+		public void emit(EventType type, int x, int y, Object detail) {
+		}
+
+		/**
+		 * Does nothing, there are no resources to release.
+		 **/
+		public void close() {
+		}
+	};
+
+
+	/**
+	 * Class with static functions only, there are no objects of it.
+	 **/
+	private EventSinks() {
+	}
+
+
+	/**
+	 * Makes a sink that prints the events of a level or more important in
+	 * the console, as soon as they happen.
+	 *
+	 * @param minLevel lowest level of the events printed.
+	 * @return the sink.
+	 **/
+	public static EventSink console(EventLevel minLevel) {
+		return new PrintEventSink(System.out, minLevel);
+	}
+
+
+	/**
+	 * Makes the sink of the console selected by the system property
+	 * bworld.events, that shows every event by default.
+	 *
+	 * @return the sink.
+	 * @throws IllegalArgumentException if the property is not a level nor "none".
+	 **/
+	public static EventSink fromSystemProperty() {
+		String level = System.getProperty(LEVEL_PROPERTY, EventLevel.TRACE.name());
+		if (level.equalsIgnoreCase("none")) {
+			return NONE;
+		}
+		return console(EventLevel.valueOf(level.toUpperCase(Locale.ROOT)));
+	}
+
+
+	/**
+	 * Sink that prints the events in a stream as soon as they happen.
+	 **/
+	private static class PrintEventSink implements EventSink {
+
+		/**
+		 * Stream where the events are printed.
+		 */
+		private final PrintStream out;
+
+		/**
+		 * Lowest level of the events printed.
+		 */
+		private final EventLevel minLevel;
+
+
+		/**
+		 * Class constructor.
+		 *
+		 * @param out      stream where the events are printed.
+		 * @param minLevel lowest level of the events printed.
+		 **/
+		PrintEventSink(PrintStream out, EventLevel minLevel) {
+			this.out = out;
+			this.minLevel = minLevel;
+		}
+
+
+		/**
+		 * Checks whether the level of a type of event is printed.
+		 *
+		 * @param type type of event.
+		 * @return true if events of that type are printed.
+		 **/
+		public boolean isEnabled(EventType type) {
+			return type.getLevel().compareTo(minLevel) >= 0;
+		}
+
+
+		/**
+		 * Prints the event, if its level is printed.
+		 *
+		 * @param type   type of event.
+		 * @param x      first argument of the event.
+		 * @param y      second argument of the event.
+		 * @param detail detail object of the event, or null.
+		 **/
+		public void emit(EventType type, int x, int y, Object detail) {
+			if (isEnabled(type)) {
+				out.println(type.format(x, y, detail));
+			}
+		}
+
+
+		/**
+		 * Flushes the stream, that is not closed as it can be the console.
+		 **/
+		public void close() {
+			out.flush();
+		}
+
+	}
+
+}
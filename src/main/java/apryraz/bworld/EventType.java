@@ -0,0 +1,145 @@
+package apryraz.bworld;
+
+/**
+ * Events of the BarcenasFinder agent, its inference engine and its
+ * environment. Every event has a level and up to two integer arguments and
+ * a detail object, and it is only turned into text by the sinks that show it.
+ **/
+public enum EventType {
+
+	/**
+	 * The agent has been made.
+	 */
+	AGENT_STARTED(EventLevel.INFO),
+
+	/**
+	 * The steps file has been opened.
+	 */
+	STEPS_FILE_OPENED(EventLevel.INFO),
+
+	/**
+	 * The steps file does not exist.
+	 */
+	STEPS_FILE_NOT_FOUND(EventLevel.WARNING),
+
+	/**
+	 * The agent has no more steps to perform.
+	 */
+	NO_MORE_STEPS(EventLevel.WARNING),
+
+	/**
+	 * The agent asks to move to (x,y).
+	 */
+	MOVING_TO(EventLevel.INFO),
+
+	/**
+	 * The agent has moved to (x,y).
+	 */
+	MOVED_TO(EventLevel.INFO),
+
+	/**
+	 * The agent asks for sound at (x,y).
+	 */
+	CHECKING_SOUND(EventLevel.INFO),
+
+	/**
+	 * The sound sensor has returned the directions in the detail.
+	 */
+	SOUND_RETURNED(EventLevel.INFO),
+
+	/**
+	 * The agent adds the evidence of the sound sensor.
+	 */
+	INSERTING_EVIDENCE(EventLevel.INFO),
+
+	/**
+	 * The sound sensor says that Barcenas is at the position of the agent.
+	 */
+	BARCENAS_FOUND(EventLevel.INFO),
+
+	/**
+	 * Only one position is left where Barcenas can be, (x,y).
+	 */
+	LOCALISED(EventLevel.INFO),
+
+	/**
+	 * The positive literal x has been added to the formula.
+	 */
+	LITERAL_ADDED(EventLevel.TRACE),
+
+	/**
+	 * The environment has received the message in the detail.
+	 */
+	MESSAGE_RECEIVED(EventLevel.DEBUG),
+
+	/**
+	 * The agent has the state in the detail.
+	 */
+	STATE(EventLevel.DEBUG);
+
+	/**
+	 * Level of the event.
+	 */
+	private final EventLevel level;
+
+
+	/**
+	 * Enum constructor.
+	 *
+	 * @param level level of the event.
+	 **/
+	EventType(EventLevel level) {
+		this.level = level;
+	}
+
+
+	/**
+	 * Returns the level of the event.
+	 *
+	 * @return level of the event.
+	 **/
+	public EventLevel getLevel() {
+		return level;
+	}
+
+
+	/**
+	 * Turns an event into the text shown to the user.
+	 *
+	 * @param x      first argument of the event.
+	 * @param y      second argument of the event.
+	 * @param detail detail object of the event, or null.
+	 * @return the text, that can have several lines.
+	 **/
+	public String format(int x, int y, Object detail) {
+		switch (this) {
+			case AGENT_STARTED:
+				return "STARTING FINDER AGENT...";
+			case STEPS_FILE_OPENED:
+				return "STEPS FILE OPENED ...";
+			case STEPS_FILE_NOT_FOUND:
+				return "MSG.   => Steps file not found";
+			case NO_MORE_STEPS:
+				return "NO MORE steps to perform at agent!";
+			case MOVING_TO:
+				return "FINDER => moving to : (" + x + "," + y + ")";
+			case MOVED_TO:
+				return "FINDER => moved to : (" + x + "," + y + ")";
+			case CHECKING_SOUND:
+				return "FINDER => checking for sound at : (" + x + "," + y + ")";
+			case SOUND_RETURNED:
+				return "Sound sensor returned: " + detail;
+			case INSERTING_EVIDENCE:
+				return "Inserting smell evidence";
+			case BARCENAS_FOUND:
+				return "FINDER => Barcenas found at current position";
+			case LOCALISED:
+				return "FINDER => Barcenas localised at : (" + x + "," + y + ")";
+			case LITERAL_ADDED:
+				return "Adding: +" + x + " literal to formula";
+			default:  // MESSAGE_RECEIVED and STATE
+				return String.valueOf(detail);
+		}
+	}
+
+}
@@ -0,0 +1,442 @@
+package apryraz.bworld;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Cache of GammaTemplates in files, so that the formula Gamma of a dimension
+ * is only built by the first process that needs it. The cache is a directory
+ * given by the system property GAMMA_CACHE_PROPERTY (or setDirectory), with
+ * one file for every dimension, encoding and GammaTemplate.VERSION; there is
+ * no cache if no directory is given.
+ * <p>
+ * The files are mapped in memory and have a header of HEADER_BYTES bytes,
+ * all of its fields big-endian: MAGIC, FORMAT_VERSION, GammaTemplate.VERSION,
+ * the dimension, the ordinal of the encoding, the number of variables, the
+ * offsets of the variables, the number of clauses, the number of literals,
+ * the number of bytes of the clauses (a long) and a CRC32 (a long) of the
+ * clauses followed by the rest of the header. Then, every clause is its
+ * number of literals followed by its literals, all of them as varints (7 bits
+ * per byte, the lowest first), the literals zigzag encoded so that small
+ * negative numbers are also short. Files that do not match their checksum,
+ * the counts of their header or the layout of the variables of the expected
+ * template are built and written again.
+ **/
+public final class GammaCache {
+
+	/**
+	 * Name of the system property with the directory of the cache.
+	 */
+	public static final String GAMMA_CACHE_PROPERTY = "bworld.gammaCache";
+
+	/**
+	 * First int of the files, "BWGM" in ASCII.
+	 */
+	public static final int MAGIC = 0x4257474D;
+
+	/**
+	 * Version of the format of the files.
+	 */
+	public static final int FORMAT_VERSION = 2;
+
+	/**
+	 * Size of the header of the files.
+	 */
+	public static final int HEADER_BYTES = 4 * (8 + GammaTemplate.NUM_OFFSETS) + 16;
+
+	/**
+	 * Directory of the cache, or null if there is no cache.
+	 */
+	private static volatile File directory = directoryFromProperty();
+
+
+	/**
+	 * Class with static functions only, there are no objects of it.
+	 **/
+	private GammaCache() {
+	}
+
+
+	/**
+	 * Reads the directory of the cache from the system property GAMMA_CACHE_PROPERTY.
+	 *
+	 * @return the directory, or null if the property is not set.
+	 **/
+	private static File directoryFromProperty() {
+		String name = System.getProperty(GAMMA_CACHE_PROPERTY);
+		return name == null || name.isEmpty() ? null : new File(name);
+	}
+
+
+	/**
+	 * Sets the directory of the cache, that is made when the first file is written.
+	 *
+	 * @param cacheDirectory the directory, or null for no cache.
+	 **/
+	public static void setDirectory(File cacheDirectory) {
+		directory = cacheDirectory;
+	}
+
+
+	/**
+	 * Returns the directory of the cache.
+	 *
+	 * @return the directory, or null if there is no cache.
+	 **/
+	public static File getDirectory() {
+		return directory;
+	}
+
+
+	/**
+	 * Returns the file of the cache of a dimension and an encoding.
+	 *
+	 * @param worldDim dimension of the world.
+	 * @param encoding encoding of the sound sensor implications.
+	 * @return the file, or null if there is no cache.
+	 **/
+	public static File fileOf(int worldDim, GammaEncoding encoding) {
+		File cacheDirectory = directory;
+		if (cacheDirectory == null) {
+			return null;
+		}
+		return new File(cacheDirectory, "gamma-" + encoding.name().toLowerCase() + "-" + worldDim
+			   + "-v" + GammaTemplate.VERSION + ".bin");
+	}
+
+
+	/**
+	 * Loads the template of a dimension and an encoding from the cache.
+	 * Files that cannot be read are reported and ignored.
+	 *
+	 * @param worldDim dimension of the world.
+	 * @param encoding encoding of the sound sensor implications.
+	 * @return the template, or null if it is not in the cache.
+	 **/
+	public static GammaTemplate load(int worldDim, GammaEncoding encoding) {
+		File file = fileOf(worldDim, encoding);
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+		try {
+			return read(file, worldDim, encoding);
+		} catch (IOException ex) {
+			Logger.getLogger(GammaCache.class.getName()).log(Level.WARNING,
+				   "Gamma cache file discarded, it will be built again", ex);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Stores a template in the cache, if there is one. Failures are reported
+	 * but do not stop the agent, that already has its template.
+	 *
+	 * @param template the template.
+	 **/
+	public static void store(GammaTemplate template) {
+		File file = fileOf(template.getWorldDim(), template.getEncoding());
+		if (file == null) {
+			return;
+		}
+		try {
+			write(template, file);
+		} catch (IOException ex) {
+			Logger.getLogger(GammaCache.class.getName()).log(Level.WARNING,
+				   "Gamma cache file not written", ex);
+		}
+	}
+
+
+	/**
+	 * Writes a template to a file of the cache. The file is written with
+	 * another name first and then renamed, so that other processes never
+	 * read a file being written.
+	 *
+	 * @param template the template.
+	 * @param file     the file.
+	 * @throws IOException when writing the file fails.
+	 **/
+	static void write(GammaTemplate template, File file) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Cannot make the directory " + parent);
+		}
+		File partial = File.createTempFile(file.getName(), ".part", parent);
+		try {
+			CRC32 crc = new CRC32();
+			long payloadBytes;
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				   new FileOutputStream(partial), 1 << 16));
+			try {
+				out.write(new byte[HEADER_BYTES]);  // Written at the end
+				CheckedOutputStream payload = new CheckedOutputStream(out, crc);
+				int start = 0;
+				for (int c = 0; c < template.getNumClauses(); c++) {
+					int end = template.clauseEnds[c];
+					writeVarint(payload, end - start);
+					for (int l = start; l < end; l++) {
+						int literal = template.literals[l];
+						writeVarint(payload, (literal << 1) ^ (literal >> 31));
+					}
+					start = end;
+				}
+				payload.flush();
+				payloadBytes = out.size() - HEADER_BYTES;
+			} finally {
+				out.close();
+			}
+
+			ByteBuffer fields = ByteBuffer.allocate(HEADER_BYTES - 8);
+			fields.putInt(MAGIC);
+			fields.putInt(FORMAT_VERSION);
+			fields.putInt(GammaTemplate.VERSION);
+			fields.putInt(template.getWorldDim());
+			fields.putInt(template.getEncoding().ordinal());
+			fields.putInt(template.getNumVariables());
+			for (int o = 0; o < GammaTemplate.NUM_OFFSETS; o++) {
+				fields.putInt(template.getOffset(o));
+			}
+			fields.putInt(template.getNumClauses());
+			fields.putInt(template.literals.length);
+			fields.putLong(payloadBytes);
+			crc.update(fields.array(), 0, fields.capacity());
+			RandomAccessFile header = new RandomAccessFile(partial, "rw");
+			try {
+				header.write(fields.array());
+				header.writeLong(crc.getValue());
+			} finally {
+				header.close();
+			}
+			if (!partial.renameTo(file) && !(file.delete() && partial.renameTo(file))) {
+				throw new IOException("Cannot rename " + partial + " to " + file);
+			}
+		} finally {
+			if (partial.exists() && !partial.delete()) {
+				partial.deleteOnExit();
+			}
+		}
+	}
+
+
+	/**
+	 * Reads a template from a file of the cache, checking that it is the
+	 * template expected and that its clauses are not damaged.
+	 * <p>
+	 * The clauses are decoded into the arrays of a GammaTemplate instead of
+	 * going from the mapped file straight into a solver: the file is read
+	 * once per process, and the template is then kept by GammaTemplate to
+	 * load every later engine and the worker solvers of the parallel mode,
+	 * which would otherwise decode the varints again each time. The arrays
+	 * are allocated once, with the sizes given by the header.
+	 *
+	 * @param file     the file.
+	 * @param worldDim dimension of the world expected.
+	 * @param encoding encoding of the sound sensor implications expected.
+	 * @return the template.
+	 * @throws IOException when reading the file fails, or it is not the
+	 *                     template expected or it is damaged.
+	 **/
+	static GammaTemplate read(File file, int worldDim, GammaEncoding encoding) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				throw new IOException(file + ": wrong size " + size);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+				   || buffer.getInt() != GammaTemplate.VERSION) {
+				throw new IOException(file + ": not a Gamma cache file of this version");
+			}
+			if (buffer.getInt() != worldDim || buffer.getInt() != encoding.ordinal()) {
+				throw new IOException(file + ": Gamma of another dimension or encoding");
+			}
+			int numVariables = buffer.getInt();
+			int[] offsets = new int[GammaTemplate.NUM_OFFSETS];
+			for (int o = 0; o < offsets.length; o++) {
+				offsets[o] = buffer.getInt();
+			}
+			int numClauses = buffer.getInt();
+			int numLiterals = buffer.getInt();
+			long payloadBytes = buffer.getLong();
+			long expectedCrc = buffer.getLong();
+			if (payloadBytes != size - HEADER_BYTES) {
+				throw new IOException(file + ": truncated, " + payloadBytes + " bytes of clauses expected");
+			}
+			if (checksumOf(buffer) != expectedCrc) {
+				throw new IOException(file + ": wrong checksum");
+			}
+			// Every clause takes at least one byte for its size and one for every literal
+			if (numClauses < 0 || numLiterals < 0 || (long) numClauses + numLiterals > payloadBytes) {
+				throw new IOException(file + ": " + numClauses + " clauses and " + numLiterals
+					   + " literals do not fit in " + payloadBytes + " bytes");
+			}
+			if (numVariables != GammaTemplate.numVariablesOf(worldDim, encoding)
+				   || !Arrays.equals(offsets, GammaTemplate.offsetsOf(worldDim, encoding))) {
+				throw new IOException(file + ": wrong layout of the variables");
+			}
+
+			int[] literals = new int[numLiterals];
+			int[] clauseEnds = new int[numClauses];
+			int numRead = 0;
+			try {
+				for (int c = 0; c < numClauses; c++) {
+					int end = numRead + readVarint(buffer);
+					while (numRead < end) {
+						int zigzag = readVarint(buffer);
+						literals[numRead++] = (zigzag >>> 1) ^ -(zigzag & 1);
+					}
+					clauseEnds[c] = numRead;
+				}
+			} catch (RuntimeException ex) {  // Buffer underflow or too many literals
+				throw new IOException(file + ": malformed clauses", ex);
+			}
+			if (numRead != numLiterals || buffer.hasRemaining()) {
+				throw new IOException(file + ": malformed clauses");
+			}
+			return new GammaTemplate(worldDim, encoding, numVariables, offsets, literals, clauseEnds);
+		} finally {
+			in.close();
+		}
+	}
+
+
+	/**
+	 * Computes the checksum of a file: the CRC32 of its clauses, from the
+	 * position of the buffer, followed by its header but the checksum,
+	 * without moving the buffer.
+	 *
+	 * @param buffer the buffer of the file, positioned at the clauses.
+	 * @return the checksum.
+	 **/
+	private static long checksumOf(MappedByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[1 << 16];
+		int position = buffer.position();
+		while (buffer.hasRemaining()) {
+			int length = Math.min(chunk.length, buffer.remaining());
+			buffer.get(chunk, 0, length);
+			crc.update(chunk, 0, length);
+		}
+		buffer.position(0);
+		buffer.get(chunk, 0, HEADER_BYTES - 8);
+		crc.update(chunk, 0, HEADER_BYTES - 8);
+		buffer.position(position);
+		return crc.getValue();
+	}
+
+
+	/**
+	 * Writes a non-negative int as a varint.
+	 *
+	 * @param out   the stream.
+	 * @param value the int, taken as unsigned.
+	 * @throws IOException when writing fails.
+	 **/
+	private static void writeVarint(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+
+	/**
+	 * Reads a varint.
+	 *
+	 * @param buffer the buffer, positioned at the varint.
+	 * @return the int.
+	 * @throws IOException if the varint has more than five bytes.
+	 **/
+	private static int readVarint(MappedByteBuffer buffer) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = buffer.get();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Varint too long");
+	}
+
+
+	/**
+	 * Writes a template in DIMACS CNF format, with comments that give its
+	 * dimension, encoding and the offsets of its variables.
+	 *
+	 * @param template the template.
+	 * @param out      destination of the formula.
+	 * @throws IOException when writing fails.
+	 **/
+	public static void writeDimacs(GammaTemplate template, Writer out) throws IOException {
+		out.write("c Barcenas World Gamma, dimension " + template.getWorldDim()
+			   + ", encoding " + template.getEncoding() + "\n");
+		out.write("c offsets past " + template.getOffset(GammaTemplate.PAST_OFFSET)
+			   + " future " + template.getOffset(GammaTemplate.FUTURE_OFFSET)
+			   + " above " + template.getOffset(GammaTemplate.SOUND_ABOVE_OFFSET)
+			   + " below " + template.getOffset(GammaTemplate.SOUND_BELOW_OFFSET)
+			   + " left " + template.getOffset(GammaTemplate.SOUND_LEFT_OFFSET)
+			   + " right " + template.getOffset(GammaTemplate.SOUND_RIGHT_OFFSET) + "\n");
+		out.write("p cnf " + template.getNumVariables() + " " + template.getNumClauses() + "\n");
+		StringBuilder line = new StringBuilder();
+		int start = 0;
+		for (int c = 0; c < template.getNumClauses(); c++) {
+			line.setLength(0);
+			for (int l = start; l < template.clauseEnds[c]; l++) {
+				line.append(template.literals[l]).append(' ');
+			}
+			line.append("0\n");
+			out.write(line.toString());
+			start = template.clauseEnds[c];
+		}
+		out.flush();
+	}
+
+
+	/**
+	 * Writes the formula Gamma of a dimension and an encoding in DIMACS CNF
+	 * format, taking it from the cache if it is there:
+	 * arg[0] = dimension of the world.
+	 * arg[1] = encoding: full, compact or lazy.
+	 * arg[2] = DIMACS file to write.
+	 *
+	 * @param args the arguments.
+	 * @throws IOException when writing the file fails.
+	 **/
+	public static void main(String[] args) throws IOException {
+		if (args == null || args.length < 3) {
+			System.out.println("GAMMA => Not enough arguments given");
+			return;
+		}
+		GammaTemplate template = GammaTemplate.of(Integer.parseInt(args[0]),
+			   GammaEncoding.valueOf(args[1].toUpperCase()));
+		Writer out = new BufferedWriter(new FileWriter(args[2]), 1 << 16);
+		try {
+			writeDimacs(template, out);
+		} finally {
+			out.close();
+		}
+		System.out.println("GAMMA => " + template.getNumClauses() + " clauses written to " + args[2]);
+	}
+
+}
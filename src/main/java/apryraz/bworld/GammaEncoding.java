@@ -0,0 +1,28 @@
+package apryraz.bworld;
+
+/**
+ * Encodings available to build the sound sensor part of the
+ * formula Gamma of the BarcenasFinder agent.
+ **/
+public enum GammaEncoding {
+
+	/**
+	 * Every sound literal implies directly every not possible position
+	 * of Barcenas (nxnxnxn clauses).
+	 */
+	FULL,
+
+	/**
+	 * Every sound literal implies a single auxiliary "ladder" literal that
+	 * says that Barcenas is not in a prefix (or suffix) of rows or columns,
+	 * and ladder literals imply the not possible positions (nxn clauses).
+	 */
+	COMPACT,
+
+	/**
+	 * Same clauses as FULL, but the implications of every sound literal
+	 * are only added to the formula the first time the sound sensor
+	 * asserts that literal.
+	 */
+	LAZY
+}
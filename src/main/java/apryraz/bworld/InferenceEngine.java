@@ -0,0 +1,102 @@
+package apryraz.bworld;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.BitSet;
+
+/**
+ * Reasoning component of the BarcenasFinder agent. It stores the knowledge
+ * of the agent about the possible positions of Barcenas, accepts the evidence
+ * gathered by the sound sensor and discovers the positions where Barcenas
+ * cannot be. Positions are identified by their lineal index (x-1)*Dim+(y-1).
+ **/
+public interface InferenceEngine {
+
+	/**
+	 * Starts a new step of the agent. The conclusions obtained by the last
+	 * inference become knowledge about the past position of Barcenas.
+	 *
+	 * @throws ContradictionException if inserting contradictory information.
+	 **/
+	void startStep() throws ContradictionException;
+
+	/**
+	 * Adds the information obtained with the sound sensor. The readings of
+	 * several steps can be added before performing the inference once.
+	 *
+	 * @param x          x coordinate of position.
+	 * @param y          y coordinate of position.
+	 * @param directions mask of Directions answered to the question "Where does it sound if in (x,y) ?".
+	 * @throws ContradictionException if inserting contradictory information.
+	 * @throws IllegalArgumentException if no reading of the sensor has those directions.
+	 **/
+	void addSoundSensorEvidence(int x, int y, int directions) throws ContradictionException;
+
+	/**
+	 * Performs the inference to discover new positions where Barcenas
+	 * cannot be, with all the evidence added so far.
+	 *
+	 * @return the positions discovered in this inference, that were not
+	 * known to be impossible before; all the impossible positions if Barcenas
+	 * can move.
+	 * @throws ContradictionException if inserting contradictory information.
+	 * @throws TimeoutException       if the inference spends more time computing
+	 *                                than a certain timeout.
+	 **/
+	BitSet performInferenceQuestions() throws ContradictionException, TimeoutException;
+
+	/**
+	 * Checks whether the engine assumes that Barcenas can move, so that
+	 * positions discarded by an inference can be possible again later.
+	 *
+	 * @return true if every inference finds all the impossible positions again.
+	 **/
+	boolean isMovingTarget();
+
+	/**
+	 * Returns the number of solver queries performed by the last inference.
+	 *
+	 * @return number of solver queries of the last inference.
+	 **/
+	int getLastInferenceQueries();
+
+	/**
+	 * Returns the number of positions that the last inference did not
+	 * need to ask to the solver.
+	 *
+	 * @return number of solver queries skipped in the last inference.
+	 **/
+	int getLastSkippedQueries();
+
+	/**
+	 * Returns the number of clauses that the engine has stored so far,
+	 * as a measure of the size of its knowledge.
+	 *
+	 * @return number of clauses stored, 0 for engines without formula.
+	 **/
+	long getNumClauses();
+
+	/**
+	 * Adds to the measurements of a step the figures of the engine: answers of
+	 * the solver in the last inference, clauses added since the previous
+	 * measurements, size of the formula and statistics of the solver.
+	 *
+	 * @param metrics measurements of the step.
+	 **/
+	void fillStepMetrics(StepMetrics metrics);
+
+	/**
+	 * Sets the destination of the events about the information the engine adds.
+	 *
+	 * @param events destination of the events.
+	 **/
+	void setEventSink(EventSink events);
+
+	/**
+	 * Releases the resources used by the engine, such as threads.
+	 * The engine cannot be used afterwards.
+	 **/
+	void shutdown();
+
+}
@@ -0,0 +1,119 @@
+package apryraz.bworld;
+
+import java.util.Locale;
+
+/**
+ * Makes the inference engines of the BarcenasFinder agent from a textual
+ * specification, as given in the command line or in the system property
+ * bworld.engine. A specification is the name of the engine, optionally
+ * followed by options separated by commas. Available engines:
+ * <ul>
+ * <li>sat[,full|compact|lazy][,per_cell|backbone|parallel][,threads=N][,sat4j|twosat][,window=N]:
+ * the SAT engine, with the given encoding of the sound sensor implications,
+ * inference mode, number of threads of the parallel inference mode, solver
+ * and window of steps of the moving-target mode. By default, full encoding,
+ * one solver call for every position, the SAT4J solver and Barcenas does
+ * not move.</li>
+ * <li>interval: the engine that only stores the bounds of the rectangle
+ * of possible positions.</li>
+ * </ul>
+ **/
+public final class InferenceEngines {
+
+	/**
+	 * Name of the system property with the specification of the engine.
+	 */
+	public static final String ENGINE_PROPERTY = "bworld.engine";
+
+	/**
+	 * Specification of the engine used when none is given.
+	 */
+	public static final String DEFAULT_ENGINE = "sat";
+
+
+	/**
+	 * Class with static functions only, there are no objects of it.
+	 **/
+	private InferenceEngines() {
+	}
+
+
+	/**
+	 * Makes the inference engine described by a specification.
+	 *
+	 * @param spec specification of the engine, i.e "sat,compact,backbone".
+	 * @param WDim the dimension of the Barcenas World.
+	 * @return the inference engine.
+	 * @throws IllegalArgumentException if the specification is not valid.
+	 **/
+	public static InferenceEngine create(String spec, int WDim) {
+		String[] parts = spec.trim().toLowerCase(Locale.ROOT).split(",");
+		switch (parts[0]) {
+			case "sat":
+				return createSatEngine(parts, WDim);
+			case "interval":
+				return new IntervalInferenceEngine(WDim);
+			default:
+				throw new IllegalArgumentException("Unknown inference engine: " + parts[0]);
+		}
+	}
+
+
+	/**
+	 * Makes the SAT inference engine with the options of a specification.
+	 *
+	 * @param parts name and options of the specification.
+	 * @param WDim  the dimension of the Barcenas World.
+	 * @return the inference engine.
+	 * @throws IllegalArgumentException if some option is not valid.
+	 **/
+	private static InferenceEngine createSatEngine(String[] parts, int WDim) {
+		GammaEncoding encoding = GammaEncoding.FULL;
+		InferenceMode mode = InferenceMode.PER_CELL;
+		SolverBackend backend = SolverBackend.SAT4J;
+		int threads = 0;
+		int window = 0;
+
+		for (int p = 1; p < parts.length; p++) {
+			String option = parts[p].trim();
+			if (option.startsWith("threads=")) {
+				threads = Integer.parseInt(option.substring("threads=".length()));
+				continue;
+			}
+			if (option.startsWith("window=")) {
+				window = Integer.parseInt(option.substring("window=".length()));
+				continue;
+			}
+			switch (option) {
+				case "full":
+				case "compact":
+				case "lazy":
+					encoding = GammaEncoding.valueOf(option.toUpperCase(Locale.ROOT));
+					break;
+				case "per_cell":
+				case "backbone":
+				case "parallel":
+					mode = InferenceMode.valueOf(option.toUpperCase(Locale.ROOT));
+					break;
+				case "sat4j":
+					backend = SolverBackend.SAT4J;
+					break;
+				case "twosat":
+					backend = SolverBackend.TWO_SAT;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option of the sat engine: " + option);
+			}
+		}
+
+		SatInferenceEngine engine = new SatInferenceEngine(WDim, encoding, mode, backend);
+		if (threads > 0) {
+			engine.setParallelism(threads);
+		}
+		if (window > 0) {
+			engine.setMovingTargetWindow(window);
+		}
+		return engine;
+	}
+
+}
@@ -0,0 +1,25 @@
+package apryraz.bworld;
+
+/**
+ * Ways in which the BarcenasFinder agent can perform the inference
+ * questions after every step.
+ **/
+public enum InferenceMode {
+
+	/**
+	 * One solver call for every position that has to be checked.
+	 */
+	PER_CELL,
+
+	/**
+	 * Iterative computation of the negative backbone of the position
+	 * variables, with one solver call for every model found.
+	 */
+	BACKBONE,
+
+	/**
+	 * One solver call for every position that has to be checked, performed
+	 * in parallel by a pool of threads with their own copy of the formula.
+	 */
+	PARALLEL
+}
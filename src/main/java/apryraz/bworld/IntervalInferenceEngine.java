@@ -0,0 +1,324 @@
+package apryraz.bworld;
+
+import java.util.BitSet;
+
+/**
+ * Inference engine that does not use a SAT solver. Every answer of the sound
+ * sensor says that Barcenas is in a half-plane, a row or a column of the world,
+ * so the positions where Barcenas can be are always the positions inside a
+ * rectangle [minX,maxX]x[minY,maxY], except the first position (1,1). This
+ * engine only stores the bounds of that rectangle, updates them in constant
+ * time with every answer, and reports as discovered the positions that have
+ * just left the rectangle. It uses constant memory, so it can be used for very
+ * large worlds through the functions that work with the bounds only.
+ **/
+public class IntervalInferenceEngine implements InferenceEngine {
+
+	/**
+	 * Dimension of the world.
+	 */
+	private int worldDim;
+
+	/**
+	 * Bounds of the rectangle of possible positions with all the evidence
+	 * added so far.
+	 */
+	private int minX, maxX, minY, maxY;
+
+	/**
+	 * Bounds of the rectangle of possible positions reported by the last
+	 * inference.
+	 */
+	private int reportedMinX, reportedMaxX, reportedMinY, reportedMaxY;
+
+	/**
+	 * True until the first inference has reported that Barcenas is never
+	 * at the first position.
+	 */
+	private boolean firstPositionPending = true;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param WDim the dimension of the Barcenas World.
+	 **/
+	public IntervalInferenceEngine(int WDim) {
+		worldDim = WDim;
+		minX = minY = reportedMinX = reportedMinY = 1;
+		maxX = maxY = reportedMaxX = reportedMaxY = worldDim;
+	}
+
+
+	/**
+	 * Knowledge about past and future positions is the same for this engine,
+	 * so there is nothing to do when a new step starts.
+	 **/
+	public void startStep() {
+	}
+
+
+	/**
+	 * Reduces the rectangle of possible positions according to the
+	 * information obtained with the sound sensor.
+	 *
+	 * @param x          x coordinate of position.
+	 * @param y          y coordinate of position.
+	 * @param directions mask of Directions answered to the question "Where does it sound if in (x,y) ?".
+	 **/
+	public void addSoundSensorEvidence(int x, int y, int directions) {
+		SoundRegion region = SoundRegion.of(directions);
+		keepX(region.firstPossibleColumn(x), region.lastPossibleColumn(x, worldDim));
+		keepY(region.firstPossibleRow(y), region.lastPossibleRow(y, worldDim));
+	}
+
+
+	/**
+	 * Reports the positions that have left the rectangle of possible positions
+	 * since the last inference. Only for worlds whose number of positions
+	 * fits in an int.
+	 *
+	 * @return the positions discovered in this inference.
+	 **/
+	public BitSet performInferenceQuestions() {
+		int oldMinX = reportedMinX, oldMaxX = reportedMaxX;
+		int oldMinY = reportedMinY, oldMaxY = reportedMaxY;
+		boolean oldFirstPositionPending = firstPositionPending;
+		performBoundsInference();
+
+		BitSet newlyExcluded = new BitSet();
+		if (oldFirstPositionPending && oldMinX == 1 && oldMinY == 1) {
+			newlyExcluded.set(0);
+		}
+		// Visit only the strips of the old rectangle outside the new one
+		for (int i = oldMinX; i <= oldMaxX; i++) {
+			if (i < reportedMinX || i > reportedMaxX) {
+				excludeRow(newlyExcluded, i, oldMinY, oldMaxY, oldFirstPositionPending);
+			} else {
+				excludeRow(newlyExcluded, i, oldMinY, reportedMinY - 1, oldFirstPositionPending);
+				excludeRow(newlyExcluded, i, reportedMaxY + 1, oldMaxY, oldFirstPositionPending);
+			}
+		}
+		return newlyExcluded;
+	}
+
+
+	/**
+	 * Updates the rectangle of possible positions reported, without computing
+	 * which positions have left it. Valid for worlds of any dimension.
+	 *
+	 * @return number of positions discovered in this inference.
+	 **/
+	public long performBoundsInference() {
+		long before = countPossiblePositions();
+		if (isEmpty()) {
+			// Contradictory evidence: Barcenas cannot be anywhere
+			minX = minY = 1;
+			maxX = maxY = 0;
+		}
+		reportedMinX = minX;
+		reportedMaxX = maxX;
+		reportedMinY = minY;
+		reportedMaxY = maxY;
+		firstPositionPending = false;
+		return before - countPossiblePositions();
+	}
+
+
+	/**
+	 * Checks whether Barcenas can be at position (i,j) according to the
+	 * last inference.
+	 *
+	 * @param i x coordinate of position.
+	 * @param j y coordinate of position.
+	 * @return true if Barcenas can be at the position.
+	 **/
+	public boolean isPossible(int i, int j) {
+		return i >= reportedMinX && i <= reportedMaxX && j >= reportedMinY && j <= reportedMaxY
+			   && !(i == 1 && j == 1 && !firstPositionPending);
+	}
+
+
+	/**
+	 * Returns the number of positions where Barcenas can be according to the
+	 * last inference.
+	 *
+	 * @return number of possible positions.
+	 **/
+	public long countPossiblePositions() {
+		if (reportedMaxX < reportedMinX || reportedMaxY < reportedMinY) {
+			return 0;
+		}
+		long count = (long) (reportedMaxX - reportedMinX + 1) * (reportedMaxY - reportedMinY + 1);
+		if (reportedMinX == 1 && reportedMinY == 1 && !firstPositionPending) {
+			count--;
+		}
+		return count;
+	}
+
+
+	/**
+	 * Returns the lowest x coordinate of the possible positions.
+	 *
+	 * @return lower bound of x.
+	 **/
+	public int getMinX() {
+		return reportedMinX;
+	}
+
+
+	/**
+	 * Returns the highest x coordinate of the possible positions.
+	 *
+	 * @return upper bound of x.
+	 **/
+	public int getMaxX() {
+		return reportedMaxX;
+	}
+
+
+	/**
+	 * Returns the lowest y coordinate of the possible positions.
+	 *
+	 * @return lower bound of y.
+	 **/
+	public int getMinY() {
+		return reportedMinY;
+	}
+
+
+	/**
+	 * Returns the highest y coordinate of the possible positions.
+	 *
+	 * @return upper bound of y.
+	 **/
+	public int getMaxY() {
+		return reportedMaxY;
+	}
+
+
+	/**
+	 * This engine never asks a solver.
+	 *
+	 * @return 0.
+	 **/
+	public int getLastInferenceQueries() {
+		return 0;
+	}
+
+
+	/**
+	 * This engine never asks a solver, so it skips the questions about all
+	 * the positions of the world.
+	 *
+	 * @return number of positions of the world, up to Integer.MAX_VALUE.
+	 **/
+	public int getLastSkippedQueries() {
+		return (int) Math.min(Integer.MAX_VALUE, (long) worldDim * worldDim);
+	}
+
+
+	/**
+	 * Adds to the measurements of a step the figures of the engine. This
+	 * engine has no solver nor clauses, so they are all 0.
+	 *
+	 * @param metrics measurements of the step.
+	 **/
+	public void fillStepMetrics(StepMetrics metrics) {
+	}
+
+
+	/**
+	 * Sets the destination of the events about the information the engine
+	 * adds, that this engine never sends.
+	 *
+	 * @param events ignored.
+	 **/
+	public void setEventSink(EventSink events) {
+	}
+
+
+	/**
+	 * Checks whether the engine assumes that Barcenas can move, never as the
+	 * rectangle of possible positions only shrinks.
+	 *
+	 * @return false.
+	 **/
+	public boolean isMovingTarget() {
+		return false;
+	}
+
+
+	/**
+	 * Returns the number of clauses stored, always 0 as this engine stores
+	 * no formula.
+	 *
+	 * @return 0.
+	 **/
+	public long getNumClauses() {
+		return 0;
+	}
+
+
+	/**
+	 * This engine does not use any resource to release.
+	 **/
+	public void shutdown() {
+	}
+
+
+	/**
+	 * Adds to a set of positions the positions (i,j) with j in [from,to].
+	 *
+	 * @param positions            set of positions.
+	 * @param i                    x coordinate of the positions.
+	 * @param from                 lowest y coordinate of the positions.
+	 * @param to                   highest y coordinate of the positions.
+	 * @param includeFirstPosition whether to add the first position, if in range.
+	 **/
+	private void excludeRow(BitSet positions, int i, int from, int to, boolean includeFirstPosition) {
+		for (int j = from; j <= to; j++) {
+			if (i != 1 || j != 1 || includeFirstPosition) {
+				positions.set((i - 1) * worldDim + (j - 1));
+			}
+		}
+	}
+
+
+	/**
+	 * Intersects the x bounds of the rectangle with [from,to].
+	 *
+	 * @param from lowest x coordinate to keep.
+	 * @param to   highest x coordinate to keep.
+	 **/
+	private void keepX(int from, int to) {
+		minX = Math.max(minX, from);
+		maxX = Math.min(maxX, to);
+	}
+
+
+	/**
+	 * Intersects the y bounds of the rectangle with [from,to].
+	 *
+	 * @param from lowest y coordinate to keep.
+	 * @param to   highest y coordinate to keep.
+	 **/
+	private void keepY(int from, int to) {
+		minY = Math.max(minY, from);
+		maxY = Math.min(maxY, to);
+	}
+
+
+	/**
+	 * Checks whether there is no possible position in the rectangle with all
+	 * the evidence added so far, taking into account that Barcenas is never
+	 * at the first position.
+	 *
+	 * @return true if Barcenas cannot be anywhere.
+	 **/
+	private boolean isEmpty() {
+		return maxX < minX || maxY < minY
+			   || (minX == 1 && maxX == 1 && minY == 1 && maxY == 1);
+	}
+
+}
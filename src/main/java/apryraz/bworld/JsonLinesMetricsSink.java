@@ -0,0 +1,89 @@
+package apryraz.bworld;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sink that writes the measurements of every step as a JSON object
+ * in its own line, with all the statistics of the solver.
+ **/
+public class JsonLinesMetricsSink implements StepMetricsSink {
+
+	/**
+	 * Destination of the lines.
+	 */
+	private final PrintWriter out;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param writer destination of the lines, closed with the sink.
+	 **/
+	public JsonLinesMetricsSink(Writer writer) {
+		out = new PrintWriter(writer);
+	}
+
+
+	/**
+	 * Writes the line of the measurements of a step.
+	 *
+	 * @param m measurements of the step.
+	 **/
+	public synchronized void accept(StepMetrics m) {
+		StringBuilder line = new StringBuilder(512);
+		line.append("{\"step\":").append(m.getStepNumber())
+			   .append(",\"dim\":").append(m.getWorldDim())
+			   .append(",\"moveNanos\":").append(m.getMoveNanos())
+			   .append(",\"pastClausesNanos\":").append(m.getPastClausesNanos())
+			   .append(",\"evidenceNanos\":").append(m.getEvidenceNanos())
+			   .append(",\"inferenceNanos\":").append(m.getInferenceNanos())
+			   .append(",\"solverCalls\":").append(m.getSolverCalls())
+			   .append(",\"satisfiable\":").append(m.getSatisfiableAnswers())
+			   .append(",\"unsatisfiable\":").append(m.getUnsatisfiableAnswers())
+			   .append(",\"unitAnswers\":").append(m.getUnitAnswers())
+			   .append(",\"unitNanosSaved\":").append(m.getUnitAnswerNanosSaved())
+			   .append(",\"discarded\":").append(m.getPositionsDiscarded())
+			   .append(",\"candidates\":").append(m.getCandidatesLeft())
+			   .append(",\"clausesAdded\":{");
+		for (ClauseKind kind : ClauseKind.values()) {
+			if (kind.ordinal() > 0) {
+				line.append(',');
+			}
+			line.append('"').append(kind.name().toLowerCase(Locale.ROOT)).append("\":")
+				   .append(m.getClausesAdded(kind));
+		}
+		line.append("},\"duplicateClauses\":").append(m.getDuplicateClauses())
+			   .append(",\"subsumedClauses\":").append(m.getSubsumedClauses())
+			   .append(",\"variables\":").append(m.getNumVariables())
+			   .append(",\"constraints\":").append(m.getNumConstraints())
+			   .append(",\"solverStats\":{");
+		boolean first = true;
+		for (Map.Entry<String, Number> stat : m.getSolverStats().entrySet()) {
+			if (!first) {
+				line.append(',');
+			}
+			first = false;
+			line.append('"').append(stat.getKey()).append("\":").append(stat.getValue());
+		}
+		line.append("}}");
+		out.println(line);
+	}
+
+
+	/**
+	 * Writes the buffered lines and closes the destination.
+	 **/
+	public synchronized void close() {
+		out.close();
+		if (out.checkError()) {
+			Logger.getLogger(JsonLinesMetricsSink.class.getName()).log(Level.SEVERE,
+				   "Error writing step metrics");
+		}
+	}
+
+}
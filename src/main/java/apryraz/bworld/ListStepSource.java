@@ -0,0 +1,71 @@
+package apryraz.bworld;
+
+import java.util.List;
+
+/**
+ * Source of steps kept in memory as a list of positions.
+ **/
+public class ListStepSource implements StepSource {
+
+	/**
+	 * Positions to move to, in order.
+	 */
+	private final List<Position> steps;
+
+	/**
+	 * Index of the current step, -1 before the first one.
+	 */
+	private int current = -1;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param steps positions to move to, in order.
+	 **/
+	public ListStepSource(List<Position> steps) {
+		this.steps = steps;
+	}
+
+
+	/**
+	 * Moves to the next position of the list.
+	 *
+	 * @return false if there are no more positions.
+	 **/
+	public boolean nextStep() {
+		if (current + 1 >= steps.size()) {
+			return false;
+		}
+		current++;
+		return true;
+	}
+
+
+	/**
+	 * Returns the x coordinate of the current position.
+	 *
+	 * @return x coordinate.
+	 **/
+	public int getX() {
+		return steps.get(current).x;
+	}
+
+
+	/**
+	 * Returns the y coordinate of the current position.
+	 *
+	 * @return y coordinate.
+	 **/
+	public int getY() {
+		return steps.get(current).y;
+	}
+
+
+	/**
+	 * Does nothing, the list is not changed.
+	 **/
+	public void close() {
+	}
+
+}
@@ -0,0 +1,349 @@
+package apryraz.bworld;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Source of steps that reads a steps file mapped in memory, parsing the
+ * coordinates directly from its bytes as the agent asks for them. Files of
+ * any size are read through a window of the file that moves forward, so
+ * neither the file nor its steps are ever kept in memory.
+ * <p>
+ * Two formats are read, told apart by their first bytes:
+ * - the text format of the BarcenasFinder agent: x1,y1 x2,y2 ... xn,yn, with
+ * any whitespace between the steps.
+ * - the binary format written by StepsConverter: a header with MAGIC, VERSION
+ * and the number of steps (a long), followed by the x and y of every
+ * step as two ints, all of them big-endian.
+ **/
+public class MappedStepSource implements StepSource {
+
+	/**
+	 * First int of the binary format, "BWST" in ASCII.
+	 */
+	public static final int MAGIC = 0x42575354;
+
+	/**
+	 * Version of the binary format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Size of the header of the binary format: magic, version and number of steps.
+	 */
+	public static final int HEADER_BYTES = 16;
+
+	/**
+	 * Default number of bytes of the file mapped at once.
+	 */
+	public static final long WINDOW_BYTES = 64L << 20;
+
+	/**
+	 * Name of the file, for the error messages.
+	 */
+	private final String fileName;
+
+	/**
+	 * The file.
+	 */
+	private final RandomAccessFile file;
+
+	/**
+	 * Channel of the file, used to map the windows.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Size of the file.
+	 */
+	private final long size;
+
+	/**
+	 * Number of bytes of the file mapped at once.
+	 */
+	private final long windowBytes;
+
+	/**
+	 * Part of the file mapped now, or null if the file is empty.
+	 */
+	private MappedByteBuffer window;
+
+	/**
+	 * Position in the file of the first byte of the window.
+	 */
+	private long windowStart;
+
+	/**
+	 * True if the file has the binary format.
+	 */
+	private final boolean binary;
+
+	/**
+	 * Steps of a binary file still to read.
+	 */
+	private long binaryStepsLeft;
+
+	/**
+	 * Coordinates of the current step.
+	 */
+	private int x, y;
+
+	/**
+	 * Value of the last coordinate parsed.
+	 */
+	private int parsedValue;
+
+
+	/**
+	 * Class constructor that maps windows of WINDOW_BYTES bytes.
+	 *
+	 * @param fileName name of the steps file.
+	 * @throws FileNotFoundException if the file does not exist.
+	 * @throws IOException           when mapping the file fails or its binary header is wrong.
+	 **/
+	public MappedStepSource(String fileName) throws IOException {
+		this(fileName, WINDOW_BYTES);
+	}
+
+
+	/**
+	 * Class constructor. Maps the first window of the file and reads the header
+	 * if the file has the binary format.
+	 *
+	 * @param fileName    name of the steps file.
+	 * @param windowBytes number of bytes of the file mapped at once, at least HEADER_BYTES.
+	 * @throws FileNotFoundException if the file does not exist.
+	 * @throws IOException           when mapping the file fails or its binary header is wrong.
+	 **/
+	public MappedStepSource(String fileName, long windowBytes) throws IOException {
+		this.fileName = fileName;
+		this.windowBytes = Math.max(windowBytes, HEADER_BYTES);
+		file = new RandomAccessFile(fileName, "r");
+		try {
+			channel = file.getChannel();
+			size = channel.size();
+			if (size > 0) {
+				mapWindow(0);
+			}
+			binary = size >= HEADER_BYTES && window.getInt(0) == MAGIC;
+			if (binary) {
+				readHeader();
+			}
+		} catch (IOException ex) {
+			file.close();
+			throw ex;
+		}
+	}
+
+
+	/**
+	 * Checks the header of a binary file and positions the window after it.
+	 *
+	 * @throws IOException if the version is unknown or the file does not
+	 *                     have the number of steps of its header.
+	 **/
+	private void readHeader() throws IOException {
+		int version = window.getInt(4);
+		if (version != VERSION) {
+			throw new IOException(fileName + ": unknown binary steps version " + version);
+		}
+		binaryStepsLeft = window.getLong(8);
+		if (binaryStepsLeft < 0 || (size - HEADER_BYTES) != binaryStepsLeft * 8) {
+			throw new IOException(fileName + ": binary steps file truncated, "
+				   + binaryStepsLeft + " steps expected");
+		}
+		window.position(HEADER_BYTES);
+	}
+
+
+	/**
+	 * Reads the next step from the file.
+	 *
+	 * @return false if the file has no more steps.
+	 * @throws IOException when mapping the file fails or the step is malformed.
+	 **/
+	public boolean nextStep() throws IOException {
+		return binary ? nextBinaryStep() : nextTextStep();
+	}
+
+
+	/**
+	 * Returns the x coordinate of the current step.
+	 *
+	 * @return x coordinate.
+	 **/
+	public int getX() {
+		return x;
+	}
+
+
+	/**
+	 * Returns the y coordinate of the current step.
+	 *
+	 * @return y coordinate.
+	 **/
+	public int getY() {
+		return y;
+	}
+
+
+	/**
+	 * Closes the file. The mapped window is released by the garbage collector.
+	 **/
+	public void close() {
+		window = null;
+		try {
+			file.close();
+		} catch (IOException ex) {
+			Logger.getLogger(MappedStepSource.class.getName()).log(Level.SEVERE, null, ex);
+		}
+	}
+
+
+	/**
+	 * Reads the next step of a binary file.
+	 *
+	 * @return false if the file has no more steps.
+	 * @throws IOException when mapping the file fails.
+	 **/
+	private boolean nextBinaryStep() throws IOException {
+		if (binaryStepsLeft == 0) {
+			return false;
+		}
+		binaryStepsLeft--;
+		x = nextInt();
+		y = nextInt();
+		return true;
+	}
+
+
+	/**
+	 * Reads the next step "x,y" of a text file.
+	 *
+	 * @return false if the file has no more steps.
+	 * @throws IOException when mapping the file fails or the step is malformed.
+	 **/
+	private boolean nextTextStep() throws IOException {
+		int c = nextByte();
+		while (isSpace(c)) {
+			c = nextByte();
+		}
+		if (c < 0) {
+			return false;
+		}
+		c = parseCoordinate(c);
+		x = parsedValue;
+		if (c != ',') {
+			throw malformed();
+		}
+		c = parseCoordinate(nextByte());
+		y = parsedValue;
+		if (c >= 0 && !isSpace(c)) {
+			throw malformed();
+		}
+		return true;
+	}
+
+
+	/**
+	 * Parses the decimal digits of a coordinate into parsedValue.
+	 *
+	 * @param c first byte of the coordinate.
+	 * @return the first byte after the coordinate, -1 at the end of the file.
+	 * @throws IOException when mapping the file fails or there are no digits.
+	 **/
+	private int parseCoordinate(int c) throws IOException {
+		if (c < '0' || c > '9') {
+			throw malformed();
+		}
+		long value = 0;
+		while (c >= '0' && c <= '9') {
+			value = value * 10 + (c - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw malformed();
+			}
+			c = nextByte();
+		}
+		parsedValue = (int) value;
+		return c;
+	}
+
+
+	/**
+	 * Makes the exception for a malformed step at the current position.
+	 *
+	 * @return the exception.
+	 **/
+	private IOException malformed() {
+		long position = window == null ? 0 : windowStart + window.position();
+		return new IOException(fileName + ": malformed step before byte " + position);
+	}
+
+
+	/**
+	 * Checks whether a byte is whitespace between steps.
+	 *
+	 * @param c the byte, or -1 at the end of the file.
+	 * @return true if it is a space, a tab or a line separator.
+	 **/
+	private static boolean isSpace(int c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+
+
+	/**
+	 * Reads the next byte of the file, moving the window if needed.
+	 *
+	 * @return the byte, or -1 at the end of the file.
+	 * @throws IOException when mapping the file fails.
+	 **/
+	private int nextByte() throws IOException {
+		if (window == null) {
+			return -1;
+		}
+		if (!window.hasRemaining()) {
+			long next = windowStart + window.limit();
+			if (next >= size) {
+				return -1;
+			}
+			mapWindow(next);
+		}
+		return window.get() & 0xff;
+	}
+
+
+	/**
+	 * Reads the next big-endian int of the file, moving the window if needed.
+	 *
+	 * @return the int.
+	 * @throws IOException when mapping the file fails.
+	 **/
+	private int nextInt() throws IOException {
+		if (window.remaining() >= 4) {
+			return window.getInt();
+		}
+		int value = 0;
+		for (int b = 0; b < 4; b++) {
+			value = (value << 8) | nextByte();
+		}
+		return value;
+	}
+
+
+	/**
+	 * Maps the window of the file that starts at a given position.
+	 *
+	 * @param start position in the file of the first byte of the window.
+	 * @throws IOException when mapping the file fails.
+	 **/
+	private void mapWindow(long start) throws IOException {
+		windowStart = start;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowBytes, size - start));
+	}
+
+}
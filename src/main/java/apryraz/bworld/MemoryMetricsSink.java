@@ -0,0 +1,44 @@
+package apryraz.bworld;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sink that keeps in memory the measurements of all the steps.
+ **/
+public class MemoryMetricsSink implements StepMetricsSink {
+
+	/**
+	 * Measurements received, in order.
+	 */
+	private final List<StepMetrics> metrics = new ArrayList<>();
+
+
+	/**
+	 * Stores the measurements of a step.
+	 *
+	 * @param stepMetrics measurements of the step.
+	 **/
+	public synchronized void accept(StepMetrics stepMetrics) {
+		metrics.add(stepMetrics);
+	}
+
+
+	/**
+	 * Does nothing, the measurements stay available.
+	 **/
+	public void close() {
+	}
+
+
+	/**
+	 * Returns the measurements received so far.
+	 *
+	 * @return unmodifiable copy of the measurements, in order.
+	 **/
+	public synchronized List<StepMetrics> getMetrics() {
+		return Collections.unmodifiableList(new ArrayList<>(metrics));
+	}
+
+}
@@ -0,0 +1,100 @@
+package apryraz.bworld;
+
+/**
+ * Kinds of the messages exchanged between the BarcenasFinder agent and
+ * the environment, with the name of every kind in the string form of
+ * the messages.
+ **/
+public enum MessageKind {
+
+	/**
+	 * The agent asks to move to (x,y).
+	 */
+	MOVETO("moveto"),
+
+	/**
+	 * The agent has moved to (x,y).
+	 */
+	MOVEDTO("movedto"),
+
+	/**
+	 * The agent could not move to (x,y), outside the world.
+	 */
+	NOTMOVEDTO("notmovedto"),
+
+	/**
+	 * The agent asks for the sound at (x,y).
+	 */
+	SOUNDSAT("soundsat"),
+
+	/**
+	 * Answer of the sound sensor at (x,y), with the directions of Barcenas.
+	 * Its name in the string form is the list of directions.
+	 */
+	SOUND(null),
+
+	/**
+	 * Answer to a message that the environment does not understand.
+	 */
+	VOIDMSG("voidmsg"),
+
+	/**
+	 * The agent has no more steps to perform.
+	 */
+	NOMESSAGE("NOMESSAGE");
+
+	/**
+	 * Name of the kind in the string form of the messages.
+	 */
+	private final String protocolName;
+
+
+	/**
+	 * Enum constructor.
+	 *
+	 * @param protocolName name of the kind in the string form of the messages.
+	 **/
+	MessageKind(String protocolName) {
+		this.protocolName = protocolName;
+	}
+
+
+	/**
+	 * Returns the name of the kind in the string form of the messages.
+	 *
+	 * @return the name, or null for SOUND, that uses the list of directions.
+	 **/
+	public String getProtocolName() {
+		return protocolName;
+	}
+
+
+	/**
+	 * Checks whether the messages of this kind have coordinates.
+	 *
+	 * @return false for VOIDMSG and NOMESSAGE, true otherwise.
+	 **/
+	public boolean hasCoordinates() {
+		return this != VOIDMSG && this != NOMESSAGE;
+	}
+
+
+	/**
+	 * Finds the kind of a message from its name in the string form.
+	 * Lists of directions are the kind SOUND.
+	 *
+	 * @param name name of the kind, or a list of directions.
+	 * @return the kind.
+	 * @throws IllegalArgumentException if the name is not a kind of message.
+	 **/
+	public static MessageKind fromProtocolName(String name) {
+		for (MessageKind kind : values()) {
+			if (name.equals(kind.protocolName)) {
+				return kind;
+			}
+		}
+		Directions.parse(name);  // Throws if it is not a list of directions
+		return SOUND;
+	}
+
+}
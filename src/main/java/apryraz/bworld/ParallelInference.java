@@ -0,0 +1,260 @@
+package apryraz.bworld;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Performs the inference questions about a set of positions of Barcenas in
+ * parallel, with one solver call for every position, using a fork-join pool.
+ * <p>
+ * The positions are split into ranges that the threads of the pool take
+ * with work stealing. Every thread works with its own copy of the formula
+ * (a worker solver), because solvers cannot be used by several threads at
+ * the same time. Worker solvers start with the formula Gamma, and before
+ * answering any question they add the clauses of the log of step clauses
+ * that they have not added yet, so they are always in sync with the formula
+ * of the agent. There are as many worker solvers as threads in the pool,
+ * and a task only holds one while it asks about its range, so a task seldom
+ * waits for an idle worker solver: only when the pool has started a spare
+ * thread while another one joins its subtasks.
+ * As in the sequential loop, a model found for a position saves
+ * the questions about the positions of the same range where it puts Barcenas.
+ **/
+public class ParallelInference {
+
+	/**
+	 * Maximum number of positions asked by a task without splitting it.
+	 */
+	private static final int RANGE_THRESHOLD = 64;
+
+	/**
+	 * Pool of threads that performs the inference questions.
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * Worker solvers not in use by any thread.
+	 */
+	private BlockingQueue<Worker> idleWorkers;
+
+	/**
+	 * Log of the clauses added to the formula of the agent after Gamma.
+	 */
+	private List<int[]> stepClauses;
+
+	/**
+	 * Total size of the world (Dim^2).
+	 */
+	private int worldLinealDim;
+
+	/**
+	 * First ever literal in the position variables to check.
+	 */
+	private int positionOffset;
+
+	/**
+	 * Number of solver calls performed by the last computation.
+	 */
+	private AtomicInteger lastSolverCalls = new AtomicInteger();
+
+
+	/**
+	 * Worker solver, with the number of step clauses it has already added.
+	 */
+	private static class Worker {
+		ISolver solver;
+		int replayedClauses;
+
+		Worker(ISolver solver) {
+			this.solver = solver;
+		}
+	}
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param workerSolvers  one solver with the formula Gamma for every thread.
+	 *                       The number of solvers is the parallelism of the pool.
+	 * @param stepClauses    log of the clauses added to the formula of the agent
+	 *                       after Gamma. It must not change during a computation.
+	 * @param WDim           the dimension of the Barcenas World.
+	 * @param positionOffset first ever literal in the position variables to check.
+	 **/
+	public ParallelInference(ISolver[] workerSolvers, List<int[]> stepClauses,
+						int WDim, int positionOffset) {
+		this.stepClauses = stepClauses;
+		this.positionOffset = positionOffset;
+		worldLinealDim = WDim * WDim;
+		pool = new ForkJoinPool(workerSolvers.length);
+		idleWorkers = new ArrayBlockingQueue<>(workerSolvers.length);
+		for (ISolver workerSolver : workerSolvers) {
+			idleWorkers.add(new Worker(workerSolver));
+		}
+	}
+
+
+	/**
+	 * Finds the positions, among the given ones, where Barcenas cannot be.
+	 *
+	 * @param unknown bitset with one bit for every position of the world (lineal
+	 *                index starting at 0), set for the positions to check.
+	 *                It is modified, and at the end it is set only for the
+	 *                positions where Barcenas cannot be.
+	 * @throws ContradictionException if inserting contradictory clauses in a worker solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	public void findImpossiblePositions(long[] unknown) throws
+		   ContradictionException, TimeoutException {
+		boolean[] possible = new boolean[worldLinealDim];
+		lastSolverCalls.set(0);
+		try {
+			pool.invoke(new RangeTask(unknown, possible, 0, worldLinealDim));
+		} catch (InferenceFailure failure) {
+			Throwable cause = failure.getCause();
+			while (cause instanceof InferenceFailure) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof ContradictionException) {
+				throw (ContradictionException) cause;
+			}
+			throw (TimeoutException) cause;
+		}
+
+		// Merge the answers in a fixed order, once every task has finished
+		for (int cell = 0; cell < worldLinealDim; cell++) {
+			if (possible[cell]) {
+				unknown[cell >> 6] &= ~(1L << cell);
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the number of solver calls performed by the last computation.
+	 *
+	 * @return number of solver calls.
+	 **/
+	public int getLastSolverCalls() {
+		return lastSolverCalls.get();
+	}
+
+
+	/**
+	 * Returns the number of threads used to perform the inference questions.
+	 *
+	 * @return parallelism of the pool.
+	 **/
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+
+	/**
+	 * Stops the threads of the pool. The object cannot be used afterwards.
+	 **/
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+
+	/**
+	 * Task that asks about the positions to check in a range of positions,
+	 * splitting the range in two subtasks when it is too large.
+	 **/
+	private class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long[] unknown;
+		private final boolean[] possible;
+		private final int from, to;
+
+		RangeTask(long[] unknown, boolean[] possible, int from, int to) {
+			this.unknown = unknown;
+			this.possible = possible;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > RANGE_THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RangeTask(unknown, possible, from, middle),
+					   new RangeTask(unknown, possible, middle, to));
+				return;
+			}
+
+			Worker worker = null;
+			try {
+				worker = idleWorkers.take();
+				syncWorker(worker);
+				for (int cell = from; cell < to; cell++) {
+					if ((unknown[cell >> 6] & (1L << cell)) == 0 || possible[cell]) {
+						continue;
+					}
+					VecInt variablePositive = new VecInt();
+					variablePositive.insertFirst(cell + positionOffset);
+					lastSolverCalls.incrementAndGet();
+					if (worker.solver.isSatisfiable(variablePositive)) {
+						// The model also proves possible the rest of positions
+						// where it puts Barcenas, inside the range of this task
+						for (int next = cell; next < to; next++) {
+							possible[next] = possible[next] || worker.solver.model(next + positionOffset);
+						}
+					}
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(ex);
+			} catch (ContradictionException | TimeoutException ex) {
+				throw new InferenceFailure(ex);
+			} finally {
+				if (worker != null) {
+					idleWorkers.add(worker);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Adds to a worker solver the step clauses it has not added yet.
+	 *
+	 * @param worker worker solver to bring in sync with the formula of the agent.
+	 * @throws ContradictionException if inserting contradictory clauses in the worker solver.
+	 **/
+	private void syncWorker(Worker worker) throws ContradictionException {
+		int logSize = stepClauses.size();
+		for (; worker.replayedClauses < logSize; worker.replayedClauses++) {
+			// Copy the clause, the solver may reorder the literals
+			int[] clause = stepClauses.get(worker.replayedClauses).clone();
+			worker.solver.addClause(new VecInt(clause));
+		}
+	}
+
+
+	/**
+	 * Unchecked wrapper of the exceptions thrown by a worker solver inside a task.
+	 **/
+	private static class InferenceFailure extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		InferenceFailure(Exception cause) {
+			super(cause);
+		}
+	}
+
+}
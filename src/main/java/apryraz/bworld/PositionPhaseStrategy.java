@@ -0,0 +1,90 @@
+package apryraz.bworld;
+
+import org.sat4j.core.LiteralsUtils;
+import org.sat4j.minisat.core.IPhaseSelectionStrategy;
+
+/**
+ * Phase selection strategy for the SAT solver that decides first to true the
+ * variables about the positions of Barcenas, and first to false all
+ * the other variables. That way, every model found by the solver puts Barcenas
+ * at as many positions as possible, and it proves in a single call that all
+ * of them are possible positions.
+ **/
+class PositionPhaseStrategy implements IPhaseSelectionStrategy {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * First and last variables about positions of Barcenas.
+	 */
+	private final int firstPositionVar, lastPositionVar;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param first first variable about positions of Barcenas.
+	 * @param last  last variable about positions of Barcenas.
+	 **/
+	PositionPhaseStrategy(int first, int last) {
+		firstPositionVar = first;
+		lastPositionVar = last;
+	}
+
+
+	/**
+	 * Selects the literal to decide first for the variable var.
+	 *
+	 * @param var variable to decide.
+	 * @return the positive literal of var if it is a position variable,
+	 * the negative one otherwise.
+	 **/
+	public int select(int var) {
+		if (var >= firstPositionVar && var <= lastPositionVar) {
+			return LiteralsUtils.posLit(var);
+		}
+		return LiteralsUtils.negLit(var);
+	}
+
+	/**
+	 * Phases are fixed, so nothing is recorded when a variable is updated.
+	 *
+	 * @param p literal updated.
+	 **/
+	public void updateVar(int p) {
+	}
+
+	/**
+	 * Phases are fixed, so there is nothing to initialize.
+	 *
+	 * @param nlength number of variables.
+	 **/
+	public void init(int nlength) {
+	}
+
+	/**
+	 * Phases are fixed, so there is nothing to initialize.
+	 *
+	 * @param var variable to initialize.
+	 * @param p   literal suggested for the variable.
+	 **/
+	public void init(int var, int p) {
+	}
+
+	/**
+	 * Phases are fixed, so nothing is recorded when a literal is assigned.
+	 *
+	 * @param p literal assigned.
+	 **/
+	public void assignLiteral(int p) {
+	}
+
+	/**
+	 * Phases are fixed, so nothing is recorded when a variable is decided.
+	 *
+	 * @param q literal decided.
+	 **/
+	public void updateVarAtDecisionLevel(int q) {
+	}
+
+}
@@ -0,0 +1,1685 @@
+package apryraz.bworld;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.minisat.core.Solver;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * Inference engine that stores the knowledge of the agent as a Boolean
+ * formula in a SAT4J solver, and asks the solver whether Barcenas can be
+ * at every position to discover the positions where it cannot be.
+ **/
+public class SatInferenceEngine implements InferenceEngine {
+
+	/**
+	 * Array of clauses that represent conclusions obtained in the most recent
+	 * call to the inference function, but rewritten using the "past" variables.
+	 */
+	private ArrayList<VecInt> futureToPast = null;
+
+	/**
+	 * SAT solver object that stores the logical boolean formula with the rules
+	 * and current knowledge about not possible locations for Barcenas.
+	 */
+	private ISolver solver;
+
+	/**
+	 * Solver specialised in binary clauses that stores the formula instead
+	 * of solver when the 2-SAT backend is selected, null otherwise.
+	 */
+	private TwoSatSolver twoSat;
+
+	/**
+	 * Solver that stores the formula and answers the inference questions.
+	 */
+	private SolverBackend backend = SolverBackend.SAT4J;
+
+	/**
+	 * Dimension of the world and total size of the world (Dim^2).
+	 */
+	private int worldDim, worldLinealDim;
+
+	/**
+	 * First ever literal in past variables concerning
+	 * information about Barcenas' location.
+	 */
+	private int barcenasPastOffset;
+
+	/**
+	 * First ever literal in future variables concerning
+	 * information about Barcenas' location.
+	 */
+	private int barcenasFutureOffset;
+
+	/**
+	 * First ever literal in present variables related to
+	 * when sound is gathered above a certain position
+	 * by the sound sensors.
+	 */
+	private int soundAboveOffset = 0;
+
+	/**
+	 * First ever literal in present variables related to
+	 * when sound is gathered below a certain position
+	 * by the sound sensors.
+	 */
+	private int soundBelowOffset = 0;
+
+	/**
+	 * First ever literal in present variables related to
+	 * when sound is gathered on the left of a certain position
+	 * by the sound sensors.
+	 */
+	private int soundLeftOffset = 0;
+
+	/**
+	 * First ever literal in present variables related to
+	 * when sound is gathered on the right a certain position
+	 * by the sound sensors.
+	 */
+	private int soundRightOffset = 0;
+
+	/**
+	 * First ever literal in the ladder variables used by the compact
+	 * encoding. The literal with index l says that Barcenas is not
+	 * at any position (k,m) with m less or equal than l.
+	 */
+	private int ladderYUpToOffset = 0;
+
+	/**
+	 * First ever literal in the ladder variables used by the compact
+	 * encoding. The literal with index l says that Barcenas is not
+	 * at any position (k,m) with m greater or equal than l.
+	 */
+	private int ladderYFromOffset = 0;
+
+	/**
+	 * First ever literal in the ladder variables used by the compact
+	 * encoding. The literal with index k says that Barcenas is not
+	 * at any position (m,l) with m less or equal than k.
+	 */
+	private int ladderXUpToOffset = 0;
+
+	/**
+	 * First ever literal in the ladder variables used by the compact
+	 * encoding. The literal with index k says that Barcenas is not
+	 * at any position (m,l) with m greater or equal than k.
+	 */
+	private int ladderXFromOffset = 0;
+
+	/**
+	 * Encoding used to build the sound sensor implications of Gamma.
+	 */
+	private GammaEncoding encoding;
+
+	/**
+	 * Bitmap with one bit for every sound literal (of any direction), set
+	 * when the implications of that literal have already been added to the
+	 * formula. Only used with the lazy encoding.
+	 */
+	private long[] materializedSounds;
+
+	/**
+	 * First ever literal without meaning, free to assign.
+	 */
+	private int currentLiteral = 0;
+
+	/**
+	 * Bitset with one bit for every position of the world, set while it is
+	 * still possible that Barcenas is at that position. As knowledge only grows,
+	 * a position that leaves this set never has to be asked to the solver again,
+	 * except in the moving-target mode, that makes it again in every inference.
+	 */
+	private long[] candidates;
+
+	/**
+	 * True until the first inference has checked every position of the world.
+	 */
+	private boolean fullInferencePending = true;
+
+	/**
+	 * Positions of the sound sensor evidence added since the last inference,
+	 * the x and the y of every reading one after the other.
+	 */
+	private final VecInt evidencePositions = new VecInt();
+
+	/**
+	 * Regions of the answers of the sound sensor evidence added since the last
+	 * inference, that together with their positions delimit the positions that
+	 * the next inference has to check.
+	 */
+	private final ArrayList<SoundRegion> evidenceRegions = new ArrayList<>();
+
+	/**
+	 * Number of solver queries performed and skipped by the last inference.
+	 */
+	private int lastInferenceQueries, lastSkippedQueries;
+
+	/**
+	 * Bitset with one bit for every position of the world, set when a model
+	 * found by the solver in the current inference puts Barcenas at that
+	 * position, so it is proven possible and does not need its own query.
+	 */
+	private long[] witnessed;
+
+	/**
+	 * Number of solver queries saved in the last inference thanks to
+	 * models found by the solver.
+	 */
+	private int lastWitnessedQueries;
+
+	/**
+	 * Number of solver queries saved thanks to models found by the solver
+	 * in all the inferences performed so far.
+	 */
+	private long totalWitnessedQueries;
+
+	/**
+	 * Way in which the inference questions are performed after every step.
+	 */
+	private InferenceMode inferenceMode = InferenceMode.PER_CELL;
+
+	/**
+	 * Component that performs the inference questions with the
+	 * backbone inference mode. It is null with the other modes.
+	 */
+	private BackboneInference backbone;
+
+	/**
+	 * Component that performs the inference questions with the parallel
+	 * inference mode. It is made the first time it is needed.
+	 */
+	private ParallelInference parallel;
+
+	/**
+	 * Number of threads used by the parallel inference mode.
+	 */
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Log of the clauses added to the formula after Gamma, that the worker
+	 * solvers of the parallel inference mode replay to stay in sync with
+	 * solver. It is null when the parallel inference mode is not selected.
+	 */
+	private ArrayList<int[]> stepClauses;
+
+	/**
+	 * Positions discovered as not possible by the current inference.
+	 */
+	private BitSet newlyExcluded;
+
+	/**
+	 * Number of clauses of Gamma and of the evidence stored in the formula.
+	 */
+	private long numClauses;
+
+	/**
+	 * Intake of the clauses, that drops the ones that the formula already has.
+	 */
+	private ClauseLog clauseLog;
+
+	/**
+	 * Number of clauses dropped by the clause log since the last step
+	 * measurements, because they were duplicates or subsumed.
+	 */
+	private long duplicatesSinceMetrics, subsumedSinceMetrics;
+
+	/**
+	 * Destination of the positive evidence literals added.
+	 */
+	private EventSink events = EventSinks.NONE;
+
+	/**
+	 * Kind of the clauses being added to the formula.
+	 */
+	private ClauseKind clauseKind = ClauseKind.GAMMA;
+
+	/**
+	 * Number of clauses added since the last step measurements, including
+	 * the ones dropped by the clause log, indexed by the ordinal of their kind.
+	 */
+	private long[] clausesSinceMetrics = new long[ClauseKind.values().length];
+
+	/**
+	 * Number of solver queries of the last inference that found a model
+	 * and that proved that there is no model.
+	 */
+	private int lastSatisfiableAnswers, lastUnsatisfiableAnswers;
+
+	/**
+	 * Number of positions that the last inference discarded from the unit
+	 * clauses of the formula, without asking the solver.
+	 */
+	private int lastUnitAnswers;
+
+	/**
+	 * Number of positions discarded from the unit clauses of the formula
+	 * in all the inferences performed so far.
+	 */
+	private long totalUnitAnswers;
+
+	/**
+	 * Time spent by the inferences performed so far in their solver queries,
+	 * in nanoseconds, and number of those queries, to estimate the time
+	 * saved by the positions discarded from the unit clauses.
+	 */
+	private long solverQueryNanos, solverQueries;
+
+	/**
+	 * Clauses of the steps in the window of the moving-target mode, that
+	 * are removed from the solver when they leave it. It is null when
+	 * Barcenas does not move, and the formula only grows.
+	 */
+	private ClauseWindow window;
+
+	/**
+	 * Collector of the clauses of a GammaTemplate, only in the engines made
+	 * to build a template; their clauses are not added to any solver.
+	 */
+	private GammaTemplate.Builder gammaRecorder;
+
+
+	/**
+	 * The class constructor must create the initial Boolean formula with the
+	 * rules of the Barcenas World, with the given encoding of the sound sensor
+	 * implications, and performs the inference questions one position at a time.
+	 *
+	 * @param WDim     the dimension of the Barcenas World.
+	 * @param encoding encoding of the sound sensor implications.
+	 **/
+	public SatInferenceEngine(int WDim, GammaEncoding encoding) {
+		this(WDim, encoding, InferenceMode.PER_CELL);
+	}
+
+
+	/**
+	 * Class constructor that also selects the way in which the inference
+	 * questions are performed.
+	 *
+	 * @param WDim     the dimension of the Barcenas World.
+	 * @param encoding encoding of the sound sensor implications.
+	 * @param mode     the inference mode.
+	 **/
+	public SatInferenceEngine(int WDim, GammaEncoding encoding, InferenceMode mode) {
+		this(WDim, encoding, mode, SolverBackend.SAT4J);
+	}
+
+
+	/**
+	 * Class constructor that also selects the solver that stores the formula.
+	 *
+	 * @param WDim     the dimension of the Barcenas World.
+	 * @param encoding encoding of the sound sensor implications.
+	 * @param mode     the inference mode.
+	 * @param backend  the solver that stores the formula.
+	 * @throws IllegalArgumentException if the solver does not support the inference mode.
+	 **/
+	public SatInferenceEngine(int WDim, GammaEncoding encoding, InferenceMode mode,
+						 SolverBackend backend) {
+		if (backend == SolverBackend.TWO_SAT && mode != InferenceMode.PER_CELL) {
+			throw new IllegalArgumentException("The 2-SAT backend does not support inference mode " + mode);
+		}
+		worldDim = WDim;
+		worldLinealDim = worldDim * worldDim;
+		this.encoding = encoding;
+		inferenceMode = mode;
+		this.backend = backend;
+
+		try {
+			solver = buildGamma(true);
+		} catch (ContradictionException ex) {
+			Logger.getLogger(SatInferenceEngine.class.getName()).log(Level.SEVERE, null, ex);
+		}
+		if (mode == InferenceMode.PARALLEL) {
+			stepClauses = new ArrayList<>();
+		}
+		if (mode == InferenceMode.BACKBONE) {
+			backbone = new BackboneInference(solver, worldDim, barcenasFutureOffset);
+		}
+		candidates = new long[(worldLinealDim + 63) / 64];
+		witnessed = new long[candidates.length];
+		resetCandidates();
+	}
+
+
+	/**
+	 * Class constructor of an engine that only records its formula Gamma
+	 * into a template, without any solver.
+	 *
+	 * @param WDim     the dimension of the Barcenas World.
+	 * @param encoding encoding of the sound sensor implications.
+	 * @param recorder collector of the clauses of the template.
+	 * @throws ContradictionException never, as no clause is added to a solver.
+	 **/
+	private SatInferenceEngine(int WDim, GammaEncoding encoding, GammaTemplate.Builder recorder)
+		   throws ContradictionException {
+		worldDim = WDim;
+		worldLinealDim = worldDim * worldDim;
+		this.encoding = encoding;
+		gammaRecorder = recorder;
+		generateGamma();
+	}
+
+
+	/**
+	 * Builds the formula Gamma of a dimension and an encoding into a template,
+	 * with the offsets of its subsets of variables.
+	 *
+	 * @param WDim     the dimension of the Barcenas World.
+	 * @param encoding encoding of the sound sensor implications.
+	 * @return the template.
+	 **/
+	static GammaTemplate recordGamma(int WDim, GammaEncoding encoding) {
+		GammaTemplate.Builder recorder = new GammaTemplate.Builder();
+		SatInferenceEngine engine;
+		try {
+			engine = new SatInferenceEngine(WDim, encoding, recorder);
+		} catch (ContradictionException ex) {
+			throw new IllegalStateException(ex);
+		}
+		int[] offsets = new int[GammaTemplate.NUM_OFFSETS];
+		offsets[GammaTemplate.PAST_OFFSET] = engine.barcenasPastOffset;
+		offsets[GammaTemplate.FUTURE_OFFSET] = engine.barcenasFutureOffset;
+		offsets[GammaTemplate.SOUND_ABOVE_OFFSET] = engine.soundAboveOffset;
+		offsets[GammaTemplate.SOUND_BELOW_OFFSET] = engine.soundBelowOffset;
+		offsets[GammaTemplate.SOUND_LEFT_OFFSET] = engine.soundLeftOffset;
+		offsets[GammaTemplate.SOUND_RIGHT_OFFSET] = engine.soundRightOffset;
+		offsets[GammaTemplate.LADDER_Y_UP_TO_OFFSET] = engine.ladderYUpToOffset;
+		offsets[GammaTemplate.LADDER_Y_FROM_OFFSET] = engine.ladderYFromOffset;
+		offsets[GammaTemplate.LADDER_X_UP_TO_OFFSET] = engine.ladderXUpToOffset;
+		offsets[GammaTemplate.LADDER_X_FROM_OFFSET] = engine.ladderXFromOffset;
+		return recorder.build(WDim, encoding, engine.currentLiteral - 1, offsets);
+	}
+
+
+	/**
+	 * Sets the number of threads used by the parallel inference mode. By default,
+	 * as many threads as available processors. This function must be called
+	 * before the first inference.
+	 *
+	 * @param threads number of threads.
+	 **/
+	public void setParallelism(int threads) {
+		parallelism = threads;
+	}
+
+
+	/**
+	 * Selects the moving-target mode, where Barcenas can move and only the
+	 * readings of the last steps tell where it is. The clauses added by those
+	 * steps are removed from the solver once they are older than the window,
+	 * and every inference checks all the positions again, so positions
+	 * discarded before can be possible again. The conclusions of an inference
+	 * are not added as knowledge about the past, as they would keep the
+	 * readings that gave them forever. The size of the formula stays bounded
+	 * by Gamma and the clauses of the window.
+	 *
+	 * @param steps number of steps whose clauses are kept, at least 1.
+	 * @throws IllegalArgumentException if the engine does not perform the
+	 *                                  inference one position at a time with SAT4J.
+	 * @throws IllegalStateException    if some evidence has already been added.
+	 **/
+	public void setMovingTargetWindow(int steps) {
+		if (steps < 1) {
+			throw new IllegalArgumentException("The window must have at least one step: " + steps);
+		}
+		if (twoSat != null || inferenceMode != InferenceMode.PER_CELL) {
+			throw new IllegalArgumentException("The moving-target mode needs the per-cell inference mode"
+				   + " and the SAT4J backend");
+		}
+		if (!fullInferencePending || !evidenceRegions.isEmpty() || window != null) {
+			throw new IllegalStateException("The moving-target mode must be set before the first step");
+		}
+		solver.newVar(currentLiteral - 1 + steps);
+		window = new ClauseWindow(solver, currentLiteral, steps);
+		currentLiteral += steps;
+	}
+
+
+	/**
+	 * Checks whether the engine is in the moving-target mode.
+	 *
+	 * @return true if the positions discarded can be possible again.
+	 **/
+	public boolean isMovingTarget() {
+		return window != null;
+	}
+
+
+	/**
+	 * Returns the number of steps whose clauses are kept in the moving-target mode.
+	 *
+	 * @return number of steps of the window, or 0 if Barcenas does not move.
+	 **/
+	public int getMovingTargetWindow() {
+		return window == null ? 0 : window.getSteps();
+	}
+
+
+	/**
+	 * Returns the number of clauses of the steps in the window of the
+	 * moving-target mode that are stored in the solver.
+	 *
+	 * @return number of clauses of the window, 0 if Barcenas does not move.
+	 **/
+	public int getWindowClauses() {
+		return window == null ? 0 : window.getActiveClauses();
+	}
+
+
+	/**
+	 * Returns the number of clauses removed from the solver because their
+	 * steps left the window of the moving-target mode, adding up all the
+	 * steps performed so far.
+	 *
+	 * @return total number of clauses removed.
+	 **/
+	public long getTotalRetiredClauses() {
+		return window == null ? 0 : window.getRetiredClauses();
+	}
+
+
+	/**
+	 * Stops the threads used by the parallel inference mode, if any.
+	 * The engine cannot be used afterwards.
+	 **/
+	public void shutdown() {
+		if (parallel != null) {
+			parallel.shutdown();
+		}
+	}
+
+
+	/**
+	 * Returns the number of positions asked to the solver by the inference
+	 * performed in the last step.
+	 *
+	 * @return number of solver queries of the last step.
+	 **/
+	public int getLastInferenceQueries() {
+		return lastInferenceQueries;
+	}
+
+
+	/**
+	 * Returns the number of positions that the inference performed in the last
+	 * step did not need to ask to the solver, either because they were already
+	 * discarded or because the last evidence cannot discard them.
+	 *
+	 * @return number of solver queries skipped in the last step.
+	 **/
+	public int getLastSkippedQueries() {
+		return lastSkippedQueries;
+	}
+
+
+	/**
+	 * Returns the number of solver queries that the inference performed in the
+	 * last step saved because a model found for another position already put
+	 * Barcenas at that position. They are included in the skipped queries.
+	 *
+	 * @return number of solver queries saved by models in the last step.
+	 **/
+	public int getLastWitnessedQueries() {
+		return lastWitnessedQueries;
+	}
+
+
+	/**
+	 * Sets the destination of the positive evidence literals added.
+	 *
+	 * @param events destination of the events.
+	 **/
+	public void setEventSink(EventSink events) {
+		this.events = events;
+	}
+
+
+	/**
+	 * Adds to the measurements of a step the answers of the solver in the last
+	 * inference, the clauses added since the previous measurements, the size of
+	 * the formula and the statistics of the solver. With the parallel inference
+	 * mode, the statistics are the ones of the solver of the agent, not the
+	 * ones of the worker solvers.
+	 *
+	 * @param metrics measurements of the step.
+	 **/
+	public void fillStepMetrics(StepMetrics metrics) {
+		metrics.solverCalls = lastInferenceQueries;
+		metrics.satisfiableAnswers = lastSatisfiableAnswers;
+		metrics.unsatisfiableAnswers = lastUnsatisfiableAnswers;
+		metrics.unitAnswers = lastUnitAnswers;
+		metrics.unitAnswerNanosSaved = lastUnitAnswers * getAverageQueryNanos();
+		for (int kind = 0; kind < clausesSinceMetrics.length; kind++) {
+			metrics.clausesAdded[kind] = clausesSinceMetrics[kind];
+			clausesSinceMetrics[kind] = 0;
+		}
+		metrics.duplicateClauses = duplicatesSinceMetrics;
+		metrics.subsumedClauses = subsumedSinceMetrics;
+		duplicatesSinceMetrics = 0;
+		subsumedSinceMetrics = 0;
+		if (twoSat != null) {
+			metrics.numVariables = twoSat.getNumVariables();
+			metrics.numConstraints = numClauses;
+		} else {
+			metrics.numVariables = solver.nVars();
+			metrics.numConstraints = solver.nConstraints();
+			metrics.setSolverStats(solver.getStat());
+		}
+	}
+
+
+	/**
+	 * Returns the number of clauses of Gamma and of the evidence stored in
+	 * the formula so far, without the ones dropped by the clause log nor the
+	 * ones removed by the moving-target mode.
+	 *
+	 * @return number of clauses of the formula.
+	 **/
+	public long getNumClauses() {
+		return numClauses + getWindowClauses();
+	}
+
+
+	/**
+	 * Returns the number of clauses not added to the formula because it
+	 * already had them, adding up all the steps performed so far.
+	 *
+	 * @return total number of duplicate clauses.
+	 **/
+	public long getTotalDuplicateClauses() {
+		return clauseLog.getDuplicates();
+	}
+
+
+	/**
+	 * Returns the number of clauses not added to the formula because they
+	 * were already true, adding up all the steps performed so far.
+	 *
+	 * @return total number of subsumed clauses.
+	 **/
+	public long getTotalSubsumedClauses() {
+		return clauseLog.getSubsumed();
+	}
+
+
+	/**
+	 * Returns the number of positions that the inference performed in the
+	 * last step discarded from the unit clauses of the formula, without
+	 * asking the solver. They are included in the skipped queries.
+	 *
+	 * @return number of positions discarded from unit clauses in the last step.
+	 **/
+	public int getLastUnitAnswers() {
+		return lastUnitAnswers;
+	}
+
+
+	/**
+	 * Returns the number of positions discarded from the unit clauses of the
+	 * formula, adding up all the steps performed so far.
+	 *
+	 * @return total number of positions discarded from unit clauses.
+	 **/
+	public long getTotalUnitAnswers() {
+		return totalUnitAnswers;
+	}
+
+
+	/**
+	 * Returns the average time of the solver queries performed so far, that
+	 * every position discarded from the unit clauses is estimated to save.
+	 *
+	 * @return time in nanoseconds, 0 before the first solver query.
+	 **/
+	public long getAverageQueryNanos() {
+		return solverQueries == 0 ? 0 : solverQueryNanos / solverQueries;
+	}
+
+
+	/**
+	 * Returns the number of solver queries saved because of models found
+	 * by the solver, adding up all the steps performed so far.
+	 *
+	 * @return total number of solver queries saved by models.
+	 **/
+	public long getTotalWitnessedQueries() {
+		return totalWitnessedQueries;
+	}
+
+
+	/**
+	 * Adds the information obtained with the sound sensor
+	 * as appropriate clauses to the formula of the agent (stored in solver).
+	 * The sound literals of the directions heard are added, and then the
+	 * clauses for the positions that the reading excludes but its sound
+	 * literals do not, taken from the SoundRegion of the reading.
+	 *
+	 * @param x          x coordinate of position.
+	 * @param y          y coordinate of position.
+	 * @param directions mask of Directions answered to the question "Where does it sound if in (x,y) ?".
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	public void addSoundSensorEvidence(int x, int y, int directions) throws ContradictionException {
+		SoundRegion region = SoundRegion.of(directions);
+		clauseKind = ClauseKind.EVIDENCE;
+		evidencePositions.push(x).push(y);
+		evidenceRegions.add(region);
+		for (int direction = Directions.ABOVE; direction <= Directions.RIGHT; direction <<= 1) {
+			if ((region.heardDirections & direction) != 0) {
+				addSoundToFormula(x, y, soundOffset(direction));
+			}
+		}
+		if (encoding == GammaEncoding.COMPACT) {
+			if (region.fixesColumn()) {
+				addOtherXExcludedClauses(x);
+			}
+			if (region.fixesRow()) {
+				addOtherYExcludedClauses(y);
+			}
+		} else if (region.fixesColumn() || region.fixesRow()) {
+			addExcludedCandidates(region, x, y);
+		}
+	}
+
+
+	/**
+	 * Adds the unit clauses that say that Barcenas is not at the positions
+	 * of the heard region of a reading that are outside its possible region,
+	 * as the sound literals of the reading do not exclude them. Positions
+	 * that are no longer candidates are skipped, as the formula already
+	 * excludes them, unless the clauses that exclude them can leave the window
+	 * of the moving-target mode.
+	 *
+	 * @param region region of the reading.
+	 * @param x      x coordinate of the reading.
+	 * @param y      y coordinate of the reading.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void addExcludedCandidates(SoundRegion region, int x, int y) throws ContradictionException {
+		int lastColumn = region.lastHeardColumn(x, worldDim);
+		int lastRow = region.lastHeardRow(y, worldDim);
+		for (int i = region.firstHeardColumn(x); i <= lastColumn; i++) {
+			for (int j = region.firstHeardRow(y); j <= lastRow; j++) {
+				int cell = coordToLineal(i, j, 0);
+				if ((window != null || (candidates[cell >> 6] & (1L << cell)) != 0)
+					   && !region.isPossible(i, j, x, y)) {
+					addCoordToFormula(i, j, -1, barcenasFutureOffset);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the offset of the subset of sound variables of a direction.
+	 *
+	 * @param direction one of the Directions.
+	 * @return offset of its sound variables.
+	 */
+	private int soundOffset(int direction) {
+		switch (direction) {
+			case Directions.ABOVE:
+				return soundAboveOffset;
+			case Directions.BELOW:
+				return soundBelowOffset;
+			case Directions.LEFT:
+				return soundLeftOffset;
+			default:
+				return soundRightOffset;
+		}
+	}
+
+
+	/**
+	 * Adds to the formula the positive sound literal of position (x,y) in
+	 * the subset of sound variables that starts at offset. With the lazy
+	 * encoding, the implications of that literal are added first, if this is
+	 * the first time the literal is asserted.
+	 *
+	 * @param x      x coordinate of position.
+	 * @param y      y coordinate of position.
+	 * @param offset offset associated with the subset of sound variables.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void addSoundToFormula(int x, int y, int offset) throws ContradictionException {
+		if (encoding == GammaEncoding.LAZY) {
+			materializeSoundImplications(x, y, offset);
+		}
+		addCoordToFormula(x, y, +1, offset);
+	}
+
+
+	/**
+	 * Adds to the formula the implications of the sound literal of position (x,y)
+	 * in the subset of sound variables that starts at offset, unless they were
+	 * already added before.
+	 *
+	 * @param x      x coordinate of position.
+	 * @param y      y coordinate of position.
+	 * @param offset offset associated with the subset of sound variables.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void materializeSoundImplications(int x, int y, int offset) throws ContradictionException {
+		// Sound variables of the four directions are consecutive
+		int bit = coordToLineal(x, y, offset) - soundAboveOffset;
+		if ((materializedSounds[bit >> 6] & (1L << bit)) != 0) {
+			return;
+		}
+		materializedSounds[bit >> 6] |= 1L << bit;
+
+		clauseKind = ClauseKind.GAMMA;
+		if (offset == soundAboveOffset) {
+			insertSoundAboveImplications(x, y);
+		} else if (offset == soundBelowOffset) {
+			insertSoundBelowImplications(x, y);
+		} else if (offset == soundLeftOffset) {
+			insertSoundLeftImplications(x, y);
+		} else {
+			insertSoundRightImplications(x, y);
+		}
+		clauseKind = ClauseKind.EVIDENCE;
+	}
+
+
+	/**
+	 * Adds, using the ladder literals of the compact encoding, the clauses
+	 * that say that Barcenas is not at any position (i,j) with i != x.
+	 *
+	 * @param x x coordinate of the only possible positions left.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void addOtherXExcludedClauses(int x) throws ContradictionException {
+		if (x > 1) {
+			addLadderToFormula(x - 1, ladderXUpToOffset);
+		}
+		if (x < worldDim) {
+			addLadderToFormula(x + 1, ladderXFromOffset);
+		}
+	}
+
+
+	/**
+	 * Adds, using the ladder literals of the compact encoding, the clauses
+	 * that say that Barcenas is not at any position (i,j) with j != y.
+	 *
+	 * @param y y coordinate of the only possible positions left.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void addOtherYExcludedClauses(int y) throws ContradictionException {
+		if (y > 1) {
+			addLadderToFormula(y - 1, ladderYUpToOffset);
+		}
+		if (y < worldDim) {
+			addLadderToFormula(y + 1, ladderYFromOffset);
+		}
+	}
+
+
+	/**
+	 * Adds to the formula the positive ladder literal with the given
+	 * index in the subset of ladder variables that starts at offset.
+	 *
+	 * @param index  row or column index of the ladder literal.
+	 * @param offset offset associated with the subset of ladder variables.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void addLadderToFormula(int index, int offset) throws ContradictionException {
+		VecInt evidence = new VecInt();
+		int eval = ladderToLineal(index, offset);
+
+		events.emit(EventType.LITERAL_ADDED, eval, 0, null);
+		evidence.insertFirst(eval);
+		addClause(evidence);
+	}
+
+
+	/* Given a coordinate (x,y), the sense for it and an offset,
+	 * transforms the coordinate to a lineal literal and simply
+	 * adds it to the formula.
+	 *
+	 * @param x      x coordinate.
+	 * @param y	  y coordinate.
+	 * @param sense  -1 or 1. Adds negative or positive sense to literal.
+	 * @param offset offset associated with the subset of variables
+	 * that literal belongs to.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void addCoordToFormula(int x, int y, int sense, int offset) throws ContradictionException {
+		VecInt evidence = new VecInt();
+		int eval;
+
+		if (sense == +1) {
+			eval = coordToLineal(x, y, offset);
+			events.emit(EventType.LITERAL_ADDED, eval, 0, null);
+		} else {
+			eval = -(coordToLineal(x, y, offset));
+		}
+		evidence.insertFirst(eval);
+		addClause(evidence);
+	}
+
+
+	/**
+	 * Starts a new step of the agent: adds all the clauses stored in the list
+	 * futureToPast to the formula stored in solver.
+	 * Uses the function addClause( VecInt ) to add each clause to the solver.
+	 * The list is emptied, so the steps without inference add nothing.
+	 * In the moving-target mode, the clauses of the step that leaves the
+	 * window are removed instead, and no conclusion is added.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	public void startStep() throws ContradictionException {
+		clauseKind = ClauseKind.PAST;
+		if (window != null) {
+			window.startStep();
+			futureToPast = null;
+		}
+		if (futureToPast != null) {
+			for (VecInt vecInt : futureToPast) {
+				addClause(vecInt);
+			}
+			futureToPast = null;
+		}
+	}
+
+
+	/**
+	 * Checks, using the future variables related
+	 * to possible positions of Barcenas, whether it is a logical consequence
+	 * that Barcenas is NOT at certain positions. The previous is checked for all the
+	 * positions of the Barcenas World.
+	 * The logical consequences obtained are then stored in the futureToPast list
+	 * but using the variables corresponding to the "past" variables of the same positions.
+	 * <p>
+	 * Only the positions that are still candidates and that some evidence added
+	 * since the last inference can discard are checked, so conclusions already added in previous steps are not
+	 * added again to the futureToPast list. The positions that the unit clauses
+	 * of the formula already exclude are discarded without asking the solver.
+	 *
+	 * @return the positions discovered in this inference.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	public BitSet performInferenceQuestions() throws ContradictionException, TimeoutException {
+		futureToPast = new ArrayList<>();
+		newlyExcluded = new BitSet(worldLinealDim);
+		if (window != null) {
+			resetCandidates();
+			fullInferencePending = true;
+		}
+		answerFromUnitClauses();
+		long start = System.nanoTime();
+		if (twoSat != null) {
+			performTwoSatInference();
+		} else if (inferenceMode == InferenceMode.BACKBONE) {
+			performBackboneInference();
+		} else if (inferenceMode == InferenceMode.PARALLEL) {
+			performParallelInference();
+		} else {
+			performPerCellInference();
+		}
+		if (lastInferenceQueries > 0) {
+			solverQueryNanos += System.nanoTime() - start;
+			solverQueries += lastInferenceQueries;
+		}
+		fullInferencePending = false;
+		evidencePositions.clear();
+		evidenceRegions.clear();
+		lastSkippedQueries = worldLinealDim - lastInferenceQueries;
+		if (inferenceMode == InferenceMode.BACKBONE) {
+			// Only the last call of a backbone computation can have no model
+			lastUnsatisfiableAnswers = newlyExcluded.cardinality() > lastUnitAnswers ? 1 : 0;
+		} else {
+			lastUnsatisfiableAnswers = newlyExcluded.cardinality() - lastUnitAnswers;
+		}
+		lastSatisfiableAnswers = lastInferenceQueries - lastUnsatisfiableAnswers;
+		return newlyExcluded;
+	}
+
+
+	/**
+	 * Discards, without asking the solver, the positions to check that the
+	 * unit clauses of the formula already exclude: the ones whose future
+	 * variable is false, and the ones whose past variable is false, as the
+	 * binary clauses of Gamma carry it to the future variable. Only the
+	 * positions left are asked to the solver.
+	 **/
+	private void answerFromUnitClauses() {
+		lastUnitAnswers = 0;
+		for (int i = 1; i <= worldDim; i++) {
+			for (int j = 1; j <= worldDim; j++) {
+				if (mustBeChecked(i, j)
+					   && (clauseLog.valueOf(coordToLineal(i, j, barcenasFutureOffset)) < 0
+					   || clauseLog.valueOf(coordToLineal(i, j, barcenasPastOffset)) < 0)) {
+					discardPosition(i, j);
+					lastUnitAnswers++;
+				}
+			}
+		}
+		totalUnitAnswers += lastUnitAnswers;
+	}
+
+
+	/**
+	 * Performs the inference questions with one solver call for every position
+	 * to check, unless a model found for a previous position already proves that
+	 * Barcenas can be there.
+	 *
+	 * @throws TimeoutException if solver's isSatisfiable operation spends more
+	 *                          time computing than a certain timeout.
+	 **/
+	private void performPerCellInference() throws TimeoutException {
+		lastInferenceQueries = 0;
+		lastWitnessedQueries = 0;
+		Arrays.fill(witnessed, 0L);
+		for (int i = 1; i <= worldDim; i++) {
+			for (int j = 1; j <= worldDim; j++) {
+				int cell = coordToLineal(i, j, 0);
+				if (!mustBeChecked(i, j)) {
+					continue;
+				}
+				if ((witnessed[cell >> 6] & (1L << cell)) != 0) {
+					lastWitnessedQueries++;
+					continue;
+				}
+				lastInferenceQueries++;
+
+				// Get variable number for position i,j in future variables
+				int linealIndex = coordToLineal(i, j, barcenasFutureOffset);
+
+				VecInt variablePositive = new VecInt();
+				variablePositive.insertFirst(linealIndex);
+				if (window != null) {
+					window.addAssumptions(variablePositive);
+				}
+
+				// Check if Gamma + variablePositive is unsatisfiable:
+				if (!(solver.isSatisfiable(variablePositive))) {
+					discardPosition(i, j);
+				} else {
+					markWitnessedPositions(cell + 1);
+				}
+			}
+		}
+		totalWitnessedQueries += lastWitnessedQueries;
+	}
+
+
+	/**
+	 * Performs the inference questions with the 2-SAT solver, that answers each
+	 * of them propagating the position through its implication graph.
+	 **/
+	private void performTwoSatInference() {
+		lastInferenceQueries = 0;
+		lastWitnessedQueries = 0;
+		for (int i = 1; i <= worldDim; i++) {
+			for (int j = 1; j <= worldDim; j++) {
+				if (!mustBeChecked(i, j)) {
+					continue;
+				}
+				lastInferenceQueries++;
+				if (!twoSat.isSatisfiable(coordToLineal(i, j, barcenasFutureOffset))) {
+					discardPosition(i, j);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Performs the inference questions computing, with the backbone inference
+	 * component, which positions to check are not possible at once.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	private void performBackboneInference() throws ContradictionException, TimeoutException {
+		long[] impossible = positionsToCheck();
+		backbone.findImpossiblePositions(impossible);
+		lastInferenceQueries = backbone.getLastSolverCalls();
+		lastWitnessedQueries = 0;
+		discardPositions(impossible);
+	}
+
+
+	/**
+	 * Performs the inference questions with one solver call for every position
+	 * to check, in parallel, with the parallel inference component.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	private void performParallelInference() throws ContradictionException, TimeoutException {
+		if (parallel == null) {
+			ISolver[] workerSolvers = new ISolver[parallelism];
+			for (int t = 0; t < parallelism; t++) {
+				workerSolvers[t] = buildWorkerSolver();
+			}
+			parallel = new ParallelInference(workerSolvers, stepClauses,
+				   worldDim, barcenasFutureOffset);
+		}
+		long[] impossible = positionsToCheck();
+		parallel.findImpossiblePositions(impossible);
+		lastInferenceQueries = parallel.getLastSolverCalls();
+		lastWitnessedQueries = 0;
+		discardPositions(impossible);
+	}
+
+
+	/**
+	 * Makes a new solver with the formula Gamma, for a thread of the parallel
+	 * inference mode. It loads Gamma again, keeping solver, the log of
+	 * step clauses and the number of clauses as they were, and without
+	 * touching the clause log or the counters of clauses of the agent.
+	 *
+	 * @return returns the new solver object.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private ISolver buildWorkerSolver() throws ContradictionException {
+		ISolver agentSolver = solver;
+		ArrayList<int[]> agentStepClauses = stepClauses;
+		long agentNumClauses = numClauses;
+		stepClauses = null;
+		try {
+			return buildGamma(false);
+		} finally {
+			solver = agentSolver;
+			stepClauses = agentStepClauses;
+			numClauses = agentNumClauses;
+		}
+	}
+
+
+	/**
+	 * Returns the positions that the current inference has to check.
+	 *
+	 * @return bitset with one bit for every position of the world (lineal index
+	 * starting at 0), set for the positions to check.
+	 **/
+	private long[] positionsToCheck() {
+		long[] positions = new long[candidates.length];
+		for (int i = 1; i <= worldDim; i++) {
+			for (int j = 1; j <= worldDim; j++) {
+				if (mustBeChecked(i, j)) {
+					int cell = coordToLineal(i, j, 0);
+					positions[cell >> 6] |= 1L << cell;
+				}
+			}
+		}
+		return positions;
+	}
+
+
+	/**
+	 * Discards, in order, all the positions where Barcenas cannot be.
+	 *
+	 * @param impossible bitset with one bit for every position of the world (lineal
+	 *                   index starting at 0), set for the positions to discard.
+	 **/
+	private void discardPositions(long[] impossible) {
+		for (int i = 1; i <= worldDim; i++) {
+			for (int j = 1; j <= worldDim; j++) {
+				int cell = coordToLineal(i, j, 0);
+				if ((impossible[cell >> 6] & (1L << cell)) != 0) {
+					discardPosition(i, j);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Makes every position of the world a candidate again.
+	 **/
+	private void resetCandidates() {
+		Arrays.fill(candidates, 0L);
+		for (int cell = 0; cell < worldLinealDim; cell++) {
+			candidates[cell >> 6] |= 1L << cell;
+		}
+	}
+
+
+	/**
+	 * Checks whether the current inference has to check position (i,j): it
+	 * must still be a candidate and some evidence added since the last
+	 * inference must be able to discard it.
+	 *
+	 * @param i x coordinate of position.
+	 * @param j y coordinate of position.
+	 * @return true if the position has to be checked.
+	 **/
+	private boolean mustBeChecked(int i, int j) {
+		int cell = coordToLineal(i, j, 0);
+		return (candidates[cell >> 6] & (1L << cell)) != 0
+			   && (fullInferencePending || inEvidenceRegion(i, j));
+	}
+
+
+	/**
+	 * Stores the conclusion that Barcenas is not at position (i,j): adds it to
+	 * the futureToPast list, rewritten with respect to "past" variables, and
+	 * to the positions discovered, and updates the candidate positions.
+	 *
+	 * @param i x coordinate of position.
+	 * @param j y coordinate of position.
+	 **/
+	private void discardPosition(int i, int j) {
+		int cell = coordToLineal(i, j, 0);
+		VecInt concPast = new VecInt();
+		concPast.insertFirst(-(coordToLineal(i, j, barcenasPastOffset)));
+
+		futureToPast.add(concPast);
+		newlyExcluded.set(cell);
+		candidates[cell >> 6] &= ~(1L << cell);
+	}
+
+
+	/**
+	 * Marks as witnessed every position, from the given one onwards, where the
+	 * model found by the last satisfiable call to the solver puts Barcenas.
+	 * Positions before the given one have already been decided.
+	 *
+	 * @param fromCell lineal index, starting at 0, of the first position to mark.
+	 **/
+	private void markWitnessedPositions(int fromCell) {
+		for (int cell = fromCell; cell < worldLinealDim; cell++) {
+			if (solver.model(cell + barcenasFutureOffset)) {
+				witnessed[cell >> 6] |= 1L << cell;
+			}
+		}
+	}
+
+
+	/**
+	 * Checks whether some sound sensor evidence added since the last inference
+	 * can discard position (i,j), that is, whether (i,j) is outside the
+	 * positions where Barcenas can be according to one of those readings alone.
+	 *
+	 * @param i x coordinate of position.
+	 * @param j y coordinate of position.
+	 * @return true if the evidence can discard the position.
+	 **/
+	private boolean inEvidenceRegion(int i, int j) {
+		for (int r = 0; r < evidenceRegions.size(); r++) {
+			if (!evidenceRegions.get(r).isPossible(i, j, evidencePositions.get(2 * r),
+				   evidencePositions.get(2 * r + 1))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	/**
+	 * Builds the initial logical formula of the agent and stores it
+	 * into the solver object. The formula is loaded from the GammaTemplate
+	 * of the dimension and the encoding of the engine, that is only built
+	 * the first time, and the offsets of the variables are restored from it.
+	 *
+	 * @param agentFormula true for the formula of the agent, whose clauses are
+	 *                     counted and whose unit clauses go to the clause log;
+	 *                     false for the copy of a worker solver.
+	 * @return returns the solver object where the formula has been stored,
+	 * or null if it is stored in the 2-SAT solver.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private ISolver buildGamma(boolean agentFormula) throws ContradictionException {
+		GammaTemplate template = GammaTemplate.of(worldDim, encoding);
+		int totalNumVariables = template.getNumVariables();
+		if (backend == SolverBackend.TWO_SAT) {
+			solver = null;
+			twoSat = new TwoSatSolver(totalNumVariables);
+		} else {
+			solver = SolverFactory.newDefault();
+			solver.setTimeout(3600);
+			solver.newVar(totalNumVariables);
+			// Models that put Barcenas at many positions save inference questions
+			((Solver) solver).getOrder().setPhaseSelectionStrategy(
+				   new PositionPhaseStrategy(1, worldLinealDim * 2));
+		}
+		barcenasPastOffset = template.getOffset(GammaTemplate.PAST_OFFSET);
+		barcenasFutureOffset = template.getOffset(GammaTemplate.FUTURE_OFFSET);
+		soundAboveOffset = template.getOffset(GammaTemplate.SOUND_ABOVE_OFFSET);
+		soundBelowOffset = template.getOffset(GammaTemplate.SOUND_BELOW_OFFSET);
+		soundLeftOffset = template.getOffset(GammaTemplate.SOUND_LEFT_OFFSET);
+		soundRightOffset = template.getOffset(GammaTemplate.SOUND_RIGHT_OFFSET);
+		ladderYUpToOffset = template.getOffset(GammaTemplate.LADDER_Y_UP_TO_OFFSET);
+		ladderYFromOffset = template.getOffset(GammaTemplate.LADDER_Y_FROM_OFFSET);
+		ladderXUpToOffset = template.getOffset(GammaTemplate.LADDER_X_UP_TO_OFFSET);
+		ladderXFromOffset = template.getOffset(GammaTemplate.LADDER_X_FROM_OFFSET);
+		currentLiteral = totalNumVariables + 1;
+		if (encoding == GammaEncoding.LAZY && materializedSounds == null) {
+			materializedSounds = new long[(worldLinealDim * 4 + 63) / 64];
+		}
+
+		// The solvers copy the literals, so one vector is enough for all the clauses.
+		// Only the unit clauses are recorded in the clause log, Gamma has no duplicates
+		if (clauseLog == null) {
+			clauseLog = new ClauseLog(totalNumVariables);
+		}
+		VecInt clause = new VecInt(worldLinealDim);
+		for (int c = 0; c < template.getNumClauses(); c++) {
+			template.copyClause(c, clause);
+			if (agentFormula) {
+				clausesSinceMetrics[ClauseKind.GAMMA.ordinal()]++;
+				if (clause.size() == 1) {
+					clauseLog.offer(clause);
+				}
+			}
+			storeClause(clause);
+		}
+		return solver;
+	}
+
+
+	/**
+	 * Generates the clauses of the formula Gamma, allocating the variables
+	 * of every subset in a particular sequential order.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private void generateGamma() throws ContradictionException {
+		// This variable is used to generate, in a particular sequential order,
+		// the variable indentifiers of all the variables
+		currentLiteral = 1;
+
+		pastBarcenas(); // Barcenas t-1, from 1,1 to n,n (1 clause)
+		futureBarcenas(); // Barcenas t+1, from 1,1 to n,n (1 clause)
+		pastBarcenasToFutureBarcenas(); // Barcenas t-1 -> Barcenas t+1 (nxn clauses)
+		// smellsImplications(   ); // Smells implications (nxnxnxn clauses)
+		soundImplications(); // Sound sensor implications (nxnxnxn clauses, none if compact or lazy)
+		if (encoding == GammaEncoding.COMPACT) {
+			ladderImplications(); // Sound sensor implications through ladders (nxn clauses)
+		}
+
+		notInFirstPosition(); // Not in the 1,1 clauses (2 clauses)
+	}
+
+
+	/**
+	 * Adds the clause that says that Barcenas must be in some position
+	 * with respect to the variables that talk about past positions.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private void pastBarcenas() throws ContradictionException {
+		barcenasPastOffset = currentLiteral;
+		VecInt pastClause = new VecInt();
+		for (int i = 0; i < worldLinealDim; i++) {
+			pastClause.insertFirst(currentLiteral);
+			currentLiteral++;
+		}
+		addClause(pastClause);
+	}
+
+
+	/**
+	 * Adds the clause that says that Barcenas must be in some position
+	 * with respect to the variables that talk about future positions.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private void futureBarcenas() throws ContradictionException {
+		barcenasFutureOffset = currentLiteral;
+		VecInt futureClause = new VecInt();
+		for (int i = 0; i < worldLinealDim; i++) {
+			futureClause.insertFirst(currentLiteral);
+			currentLiteral++;
+		}
+		addClause(futureClause);
+	}
+
+
+	/**
+	 * Adds the clauses that say that if in the past we reached the conclusion
+	 * that Barcenas cannot be in a position (x,y), then this should be also true
+	 * in the future.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private void pastBarcenasToFutureBarcenas() throws ContradictionException {
+		for (int i = 0; i < worldLinealDim; i++) {
+			VecInt clause = new VecInt();
+			clause.insertFirst(i + 1);
+			clause.insertFirst(-(i + barcenasFutureOffset));
+			addClause(clause);
+		}
+	}
+
+
+	/**
+	 * Adds the clauses that say that Barcenas can never (past and future) be in
+	 * the first position.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private void notInFirstPosition() throws ContradictionException {
+		VecInt notInFuture = new VecInt();
+		VecInt notInPast = new VecInt();
+		notInFuture.insertFirst(-barcenasFutureOffset);
+		notInPast.insertFirst(-barcenasPastOffset);
+		addClause(notInFuture);
+		addClause(notInPast);
+	}
+
+
+	/**
+	 * Adds the clauses related to implications between sound sensor evidence and
+	 * not possible positions of Barcenas. With the compact and lazy encodings
+	 * only the sound variables are allocated here.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private void soundImplications() throws ContradictionException {
+		// Store the identifier for the first variable of the
+		// sounds subset of variables
+
+		// Generate and store all the implications between sound
+		// sensor evidence and not possible positions of Barcenas
+		for (int k = 1; k <= 4; k++) {
+			for (int i = 1; i <= worldDim; i++) {
+				for (int j = 1; j <= worldDim; j++) {
+					if (k == 1) {
+						if (soundAboveOffset == 0) {
+							soundAboveOffset = currentLiteral;
+						}
+						if (encoding == GammaEncoding.FULL) {
+							insertSoundAboveImplications(i, j);
+						}
+						currentLiteral++;
+
+					} else if (k == 2) {
+						if (soundBelowOffset == 0) {
+							soundBelowOffset = currentLiteral;
+						}
+						if (encoding == GammaEncoding.FULL) {
+							insertSoundBelowImplications(i, j);
+						}
+						currentLiteral++;
+
+					} else if (k == 3) {
+						if (soundLeftOffset == 0) {
+							soundLeftOffset = currentLiteral;
+						}
+						if (encoding == GammaEncoding.FULL) {
+							insertSoundLeftImplications(i, j);
+						}
+						currentLiteral++;
+
+					} else {
+						if (soundRightOffset == 0) {
+							soundRightOffset = currentLiteral;
+						}
+						if (encoding == GammaEncoding.FULL) {
+							insertSoundRightImplications(i, j);
+						}
+						currentLiteral++;
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Adds the clauses of the compact encoding of the sound sensor implications.
+	 * Every sound literal implies one ladder literal, every ladder literal implies
+	 * the next one in its ladder and the not possible positions of its row or column.
+	 *
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 **/
+	private void ladderImplications() throws ContradictionException {
+		ladderYUpToOffset = currentLiteral;
+		ladderYFromOffset = ladderYUpToOffset + worldDim;
+		ladderXUpToOffset = ladderYFromOffset + worldDim;
+		ladderXFromOffset = ladderXUpToOffset + worldDim;
+		currentLiteral = ladderXFromOffset + worldDim;
+
+		for (int l = 1; l <= worldDim; l++) {
+			// Chain each ladder literal with its neighbour
+			if (l > 1) {
+				addImplicationToFormula(ladderToLineal(l, ladderYUpToOffset),
+					   ladderToLineal(l - 1, ladderYUpToOffset));
+				addImplicationToFormula(ladderToLineal(l, ladderXUpToOffset),
+					   ladderToLineal(l - 1, ladderXUpToOffset));
+			}
+			if (l < worldDim) {
+				addImplicationToFormula(ladderToLineal(l, ladderYFromOffset),
+					   ladderToLineal(l + 1, ladderYFromOffset));
+				addImplicationToFormula(ladderToLineal(l, ladderXFromOffset),
+					   ladderToLineal(l + 1, ladderXFromOffset));
+			}
+			// Each ladder literal discards its own column or row
+			for (int k = 1; k <= worldDim; k++) {
+				addImplicationToFormula(ladderToLineal(l, ladderYUpToOffset),
+					   -(coordToLineal(k, l, barcenasFutureOffset)));
+				addImplicationToFormula(ladderToLineal(l, ladderYFromOffset),
+					   -(coordToLineal(k, l, barcenasFutureOffset)));
+				addImplicationToFormula(ladderToLineal(l, ladderXUpToOffset),
+					   -(coordToLineal(l, k, barcenasFutureOffset)));
+				addImplicationToFormula(ladderToLineal(l, ladderXFromOffset),
+					   -(coordToLineal(l, k, barcenasFutureOffset)));
+			}
+		}
+
+		// Each sound literal enters its ladder at its own row or column
+		for (int i = 1; i <= worldDim; i++) {
+			for (int j = 1; j <= worldDim; j++) {
+				addImplicationToFormula(coordToLineal(i, j, soundAboveOffset),
+					   ladderToLineal(j, ladderYUpToOffset));
+				addImplicationToFormula(coordToLineal(i, j, soundBelowOffset),
+					   ladderToLineal(j, ladderYFromOffset));
+				addImplicationToFormula(coordToLineal(i, j, soundLeftOffset),
+					   ladderToLineal(i, ladderXFromOffset));
+				addImplicationToFormula(coordToLineal(i, j, soundRightOffset),
+					   ladderToLineal(i, ladderXUpToOffset));
+			}
+		}
+	}
+
+
+	/**
+	 * Adds to formula the clauses related to implications between the sound sensor
+	 * and not possible positions of Barcenas when the sound is heard above.
+	 *
+	 * @param x x coordinate related to the sound literal.
+	 * @param y y coordinate related to the sound literal.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void insertSoundAboveImplications(int x, int y) throws ContradictionException {
+		for (int k = 1; k <= worldDim; k++) {
+			for (int l = y; l > 0; l--) {
+				// literal related to the sound sensor
+				int implicationFirstPart = coordToLineal(x, y, soundAboveOffset);
+				//int implicationFirstPart = currentLiteral;
+				// literal related to Barcenas not possible position
+				int implicationSecondPart = -(coordToLineal(k, l, barcenasFutureOffset));
+				addImplicationToFormula(implicationFirstPart, implicationSecondPart);
+			}
+		}
+	}
+
+
+	/**
+	 * Adds to formula the clauses related to implications between the sound sensor
+	 * and not possible positions of Barcenas when the sound is heard below.
+	 *
+	 * @param x x coordinate related to the sound literal.
+	 * @param y y coordinate related to the sound literal.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void insertSoundBelowImplications(int x, int y) throws ContradictionException {
+		for (int k = 1; k <= worldDim; k++) {
+			for (int l = y; l <= worldDim; l++) {
+				// literal related to the sound sensor
+				int implicationFirstPart = coordToLineal(x, y, soundBelowOffset);
+				// int implicationFirstPart = currentLiteral;
+				// literal related to Barcenas not possible position
+				int implicationSecondPart = -(coordToLineal(k, l, barcenasFutureOffset));
+				addImplicationToFormula(implicationFirstPart, implicationSecondPart);
+			}
+		}
+	}
+
+
+	/**
+	 * Adds to formula the clauses related to implications between the sound sensor
+	 * and not possible positions of Barcenas when the sound is heard on the left.
+	 *
+	 * @param x x coordinate related to the sound literal.
+	 * @param y y coordinate related to the sound literal.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void insertSoundLeftImplications(int x, int y) throws ContradictionException {
+		for (int k = x; k <= worldDim; k++) {
+			for (int l = 1; l <= worldDim; l++) {
+				// literal related to the sound sensor
+				int implicationFirstPart = coordToLineal(x, y, soundLeftOffset);
+				// int implicationFirstPart = currentLiteral;
+				// literal related to Barcenas not possible position
+				int implicationSecondPart = -(coordToLineal(k, l, barcenasFutureOffset));
+				addImplicationToFormula(implicationFirstPart, implicationSecondPart);
+			}
+		}
+	}
+
+
+	/**
+	 * Adds to formula the clauses related to implications between the sound sensor
+	 * and not possible positions of Barcenas when the sound is heard on the right.
+	 *
+	 * @param x x coordinate related to the sound literal.
+	 * @param y y coordinate related to the sound literal.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void insertSoundRightImplications(int x, int y) throws ContradictionException {
+		for (int k = x; k > 0; k--) {
+			for (int l = 1; l <= worldDim; l++) {
+				// literal related to the sound sensor
+				int implicationFirstPart = coordToLineal(x, y, soundRightOffset);
+				// int implicationFirstPart = currentLiteral;
+				// literal related to Barcenas not possible position
+				int implicationSecondPart = -(coordToLineal(k, l, barcenasFutureOffset));
+				addImplicationToFormula(implicationFirstPart, implicationSecondPart);
+			}
+		}
+	}
+
+
+	/**
+	 * Adds a clause to the formula, unless the clause log finds that the
+	 * formula already has it or that it is already true.
+	 * The engines that build a template only record it, and the clauses of the
+	 * steps in the moving-target mode go to the window, without the clause
+	 * log, as they do not stay in the formula.
+	 *
+	 * @param clause clause to add.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void addClause(VecInt clause) throws ContradictionException {
+		if (gammaRecorder != null) {
+			gammaRecorder.addClause(clause);
+			return;
+		}
+		clausesSinceMetrics[clauseKind.ordinal()]++;
+		if (window != null && clauseKind != ClauseKind.GAMMA) {
+			window.addClause(clause);
+			return;
+		}
+		switch (clauseLog.offer(clause)) {
+			case ClauseLog.DUPLICATE:
+				duplicatesSinceMetrics++;
+				break;
+			case ClauseLog.SUBSUMED:
+				subsumedSinceMetrics++;
+				break;
+			default:
+				storeClause(clause);
+		}
+	}
+
+
+	/**
+	 * Stores a clause in the formula stored in solver (or in the 2-SAT solver),
+	 * and keeps a copy in the log of step clauses when the parallel inference
+	 * mode needs it.
+	 *
+	 * @param clause clause to store.
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void storeClause(VecInt clause) throws ContradictionException {
+		if (stepClauses != null) {
+			int[] literals = new int[clause.size()];
+			clause.copyTo(literals);
+			stepClauses.add(literals);
+		}
+		numClauses++;
+		if (twoSat != null) {
+			twoSat.addClause(clause);
+		} else {
+			solver.addClause(clause);
+		}
+	}
+
+
+	/**
+	 * Adds the implication: firstPart -> secondPart to formula.
+	 *
+	 * @param firstPart  first part of the implication (before the arrow ->).
+	 * @param secondPart second part of the implication (after the arrow ->).
+	 * @throws ContradictionException if inserting contradictory clauses in formula (solver).
+	 */
+	private void addImplicationToFormula(int firstPart, int secondPart) throws ContradictionException {
+		VecInt implication = new VecInt();
+		implication.insertFirst(-(firstPart));
+		implication.insertFirst(secondPart);
+		addClause(implication);
+	}
+
+
+	/**
+	 * Converts a coordinate pair (x,y) to the integer value  b_[x,y]
+	 * of variable that stores that information in the formula, using
+	 * offset as the initial index for that subset of position variables
+	 * (past and future position variables have different variables,
+	 * so different offset values).
+	 *
+	 * @param x      x coordinate of the position variable to encode.
+	 * @param y      y coordinate of the position variable to encode.
+	 * @param offset initial value for the subset of position variables
+	 *               (past or future subset).
+	 * @return the integer identifier of the variable  b_[x,y] in the formula.
+	 **/
+	private int coordToLineal(int x, int y, int offset) {
+		return ((x - 1) * worldDim) + (y - 1) + offset;
+	}
+
+
+	/**
+	 * Converts a row or column index of a ladder to the integer value
+	 * of the ladder variable that stores that information in the formula.
+	 *
+	 * @param index  row or column index of the ladder literal.
+	 * @param offset initial value for the subset of ladder variables.
+	 * @return the integer identifier of the ladder variable in the formula.
+	 **/
+	private int ladderToLineal(int index, int offset) {
+		return index - 1 + offset;
+	}
+
+}
@@ -0,0 +1,205 @@
+package apryraz.bworld;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class to represent a scenario of the Barcenas World: the dimension of the
+ * world, the position of Barcenas and the steps that the agent performs.
+ **/
+public class Scenario {
+
+	/**
+	 * Name of the scenario, used to identify its results.
+	 */
+	private final String name;
+
+	/**
+	 * Dimension of the world.
+	 */
+	private final int worldDim;
+
+	/**
+	 * Position of Barcenas.
+	 */
+	private final int barcenasX, barcenasY;
+
+	/**
+	 * Positions the agent moves to, in order.
+	 */
+	private final List<Position> steps;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param name     name of the scenario.
+	 * @param worldDim dimension of the world.
+	 * @param barX     x coordinate of Barcenas position.
+	 * @param barY     y coordinate of Barcenas position.
+	 * @param steps    positions the agent moves to, in order.
+	 **/
+	public Scenario(String name, int worldDim, int barX, int barY, List<Position> steps) {
+		this.name = name;
+		this.worldDim = worldDim;
+		barcenasX = barX;
+		barcenasY = barY;
+		this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+	}
+
+
+	/**
+	 * Returns the name of the scenario.
+	 *
+	 * @return name of the scenario.
+	 **/
+	public String getName() {
+		return name;
+	}
+
+
+	/**
+	 * Returns the dimension of the world.
+	 *
+	 * @return dimension of the world.
+	 **/
+	public int getWorldDim() {
+		return worldDim;
+	}
+
+
+	/**
+	 * Returns the x coordinate of Barcenas position.
+	 *
+	 * @return x coordinate of Barcenas.
+	 **/
+	public int getBarcenasX() {
+		return barcenasX;
+	}
+
+
+	/**
+	 * Returns the y coordinate of Barcenas position.
+	 *
+	 * @return y coordinate of Barcenas.
+	 **/
+	public int getBarcenasY() {
+		return barcenasY;
+	}
+
+
+	/**
+	 * Returns the positions the agent moves to.
+	 *
+	 * @return unmodifiable list of steps, in order.
+	 **/
+	public List<Position> getSteps() {
+		return steps;
+	}
+
+
+	/**
+	 * Reads a manifest of scenarios. Each line describes a scenario, with the
+	 * same arguments as the main program of the Barcenas World:
+	 * dimension, x and y of Barcenas, number of steps and steps file.
+	 * Relative steps files are resolved against the folder of the manifest.
+	 * Empty lines and lines starting with '#' are ignored.
+	 *
+	 * @param manifestFile name of the manifest file.
+	 * @return the scenarios, in the order of the manifest.
+	 * @throws IOException when reading the manifest or a steps file.
+	 **/
+	public static List<Scenario> readManifest(String manifestFile) throws IOException {
+		File manifest = new File(manifestFile);
+		List<Scenario> scenarios = new ArrayList<>();
+		BufferedReader br = new BufferedReader(new FileReader(manifest));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = br.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				if (fields.length < 5) {
+					throw new IOException(manifestFile + ":" + lineNumber + ": expected 5 fields");
+				}
+				File stepsFile = new File(fields[4]);
+				if (!stepsFile.isAbsolute()) {
+					stepsFile = new File(manifest.getAbsoluteFile().getParentFile(), fields[4]);
+				}
+				scenarios.add(new Scenario(manifest.getName() + ":" + lineNumber, Integer.parseInt(fields[0]),
+					   Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+					   readSteps(Integer.parseInt(fields[3]), stepsFile.getPath())));
+			}
+		} finally {
+			br.close();
+		}
+		return scenarios;
+	}
+
+
+	/**
+	 * Reads a sequence of steps from a file with the format used by the
+	 * BarcenasFinder agent, or the binary format of StepsConverter.
+	 *
+	 * @param numSteps  number of steps to read from the file.
+	 * @param stepsFile name of the text file with the line that contains
+	 *                  the sequence of steps: x1,y1 x2,y2 ...  xn,yn.
+	 * @return the steps read.
+	 * @throws IOException when reading the file.
+	 **/
+	public static List<Position> readSteps(int numSteps, String stepsFile) throws IOException {
+		List<Position> steps = new ArrayList<>(numSteps);
+		StepSource source = new MappedStepSource(stepsFile);
+		try {
+			while (steps.size() < numSteps && source.nextStep()) {
+				steps.add(new Position(source.getX(), source.getY()));
+			}
+		} finally {
+			source.close();
+		}
+		if (steps.size() < numSteps) {
+			throw new IOException(stepsFile + ": only " + steps.size() + " steps");
+		}
+		return steps;
+	}
+
+
+	/**
+	 * Makes random scenarios, with Barcenas at any position but the first
+	 * one and the agent moving to random positions of the world.
+	 *
+	 * @param count    number of scenarios.
+	 * @param worldDim dimension of the worlds.
+	 * @param numSteps number of steps of every scenario.
+	 * @param seed     seed of the random generator, so scenarios can be repeated.
+	 * @return the scenarios.
+	 **/
+	public static List<Scenario> randomScenarios(int count, int worldDim, int numSteps, long seed) {
+		Random random = new Random(seed);
+		List<Scenario> scenarios = new ArrayList<>(count);
+		for (int s = 0; s < count; s++) {
+			int barX, barY;
+			do {
+				barX = random.nextInt(worldDim) + 1;
+				barY = random.nextInt(worldDim) + 1;
+			} while (barX == 1 && barY == 1);
+			List<Position> steps = new ArrayList<>(numSteps);
+			for (int i = 0; i < numSteps; i++) {
+				steps.add(new Position(random.nextInt(worldDim) + 1, random.nextInt(worldDim) + 1));
+			}
+			scenarios.add(new Scenario("random" + s, worldDim, barX, barY, steps));
+		}
+		return scenarios;
+	}
+
+}
@@ -0,0 +1,140 @@
+package apryraz.bworld;
+
+/**
+ * Class to represent the results of running a scenario of the Barcenas World.
+ **/
+public class ScenarioResult {
+
+	/**
+	 * Header of the CSV lines made by toCsv().
+	 */
+	public static final String CSV_HEADER =
+		   "scenario,dim,barcenasX,barcenasY,steps,stepsPerformed,stepsToLocalise,solverCalls,wallMillis,peakClauses";
+
+	/**
+	 * Scenario that was run.
+	 */
+	private final Scenario scenario;
+
+	/**
+	 * Number of steps performed, that is less than the number of steps of
+	 * the scenario if the agent finished before.
+	 */
+	private final int stepsPerformed;
+
+	/**
+	 * Number of steps after which only one position was possible, or -1
+	 * if the agent did not localise Barcenas.
+	 */
+	private final int stepsToLocalise;
+
+	/**
+	 * Number of solver queries of all the inferences.
+	 */
+	private final long solverCalls;
+
+	/**
+	 * Time spent running the scenario, in nanoseconds.
+	 */
+	private final long wallNanos;
+
+	/**
+	 * Largest number of clauses stored by the inference engine.
+	 */
+	private final long peakClauses;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param scenario        scenario that was run.
+	 * @param stepsPerformed  number of steps performed.
+	 * @param stepsToLocalise steps after which Barcenas was localised, or -1.
+	 * @param solverCalls     number of solver queries.
+	 * @param wallNanos       time spent, in nanoseconds.
+	 * @param peakClauses     largest number of clauses of the engine.
+	 **/
+	public ScenarioResult(Scenario scenario, int stepsPerformed, int stepsToLocalise, long solverCalls,
+					  long wallNanos, long peakClauses) {
+		this.scenario = scenario;
+		this.stepsPerformed = stepsPerformed;
+		this.stepsToLocalise = stepsToLocalise;
+		this.solverCalls = solverCalls;
+		this.wallNanos = wallNanos;
+		this.peakClauses = peakClauses;
+	}
+
+
+	/**
+	 * Returns the scenario that was run.
+	 *
+	 * @return the scenario.
+	 **/
+	public Scenario getScenario() {
+		return scenario;
+	}
+
+
+	/**
+	 * Returns the number of steps performed.
+	 *
+	 * @return number of steps performed.
+	 **/
+	public int getStepsPerformed() {
+		return stepsPerformed;
+	}
+
+
+	/**
+	 * Returns the number of steps after which only one position was possible.
+	 *
+	 * @return steps to localise Barcenas, or -1 if it was not localised.
+	 **/
+	public int getStepsToLocalise() {
+		return stepsToLocalise;
+	}
+
+
+	/**
+	 * Returns the number of solver queries of all the inferences.
+	 *
+	 * @return number of solver queries.
+	 **/
+	public long getSolverCalls() {
+		return solverCalls;
+	}
+
+
+	/**
+	 * Returns the time spent running the scenario.
+	 *
+	 * @return time in nanoseconds.
+	 **/
+	public long getWallNanos() {
+		return wallNanos;
+	}
+
+
+	/**
+	 * Returns the largest number of clauses stored by the inference engine.
+	 *
+	 * @return peak number of clauses.
+	 **/
+	public long getPeakClauses() {
+		return peakClauses;
+	}
+
+
+	/**
+	 * Returns the results as a CSV line, with the columns of CSV_HEADER.
+	 *
+	 * @return the CSV line.
+	 **/
+	public String toCsv() {
+		return scenario.getName() + "," + scenario.getWorldDim() + ","
+			   + scenario.getBarcenasX() + "," + scenario.getBarcenasY() + ","
+			   + scenario.getSteps().size() + "," + stepsPerformed + "," + stepsToLocalise + "," + solverCalls + ","
+			   + (wallNanos / 1000000) + "," + peakClauses;
+	}
+
+}
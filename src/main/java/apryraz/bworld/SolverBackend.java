@@ -0,0 +1,20 @@
+package apryraz.bworld;
+
+/**
+ * Solvers that can store the formula of the BarcenasFinder agent
+ * and answer its inference questions.
+ **/
+public enum SolverBackend {
+
+	/**
+	 * General SAT4J solver, that supports every inference mode.
+	 */
+	SAT4J,
+
+	/**
+	 * Solver specialised in unit and binary clauses plus at-least-one clauses,
+	 * that answers every inference question with unit propagation. Only
+	 * supports the inference mode with one question for every position.
+	 */
+	TWO_SAT
+}
@@ -0,0 +1,307 @@
+package apryraz.bworld;
+
+/**
+ * Regions of the world described by a reading of the sound sensor, one
+ * descriptor for every valid mask of Directions. A descriptor gives, for the
+ * columns and for the rows, the range of coordinates relative to the
+ * position (x,y) of the reading, in two regions:
+ * <p>
+ * - the possible region: the positions where Barcenas can be according to
+ * the reading.
+ * - the heard region: the positions not excluded by the sound literals of the
+ * directions of the reading. It only differs from the possible region
+ * when the reading has no horizontal or no vertical direction, as then the
+ * reading also says that Barcenas is at the same column or row.
+ **/
+final class SoundRegion {
+
+	/**
+	 * Range of coordinates of the whole world.
+	 */
+	private static final int ALL = 0;
+
+	/**
+	 * Range of coordinates before the coordinate of the reading.
+	 */
+	private static final int BEFORE = 1;
+
+	/**
+	 * Range of only the coordinate of the reading.
+	 */
+	private static final int AT = 2;
+
+	/**
+	 * Range of coordinates after the coordinate of the reading.
+	 */
+	private static final int AFTER = 3;
+
+	/**
+	 * Descriptors indexed by the mask of directions, null for the masks that
+	 * no reading of the sensor can return.
+	 */
+	private static final SoundRegion[] REGIONS = new SoundRegion[Directions.ALL + 1];
+
+	static {
+		int[] vertical = {0, Directions.ABOVE, Directions.BELOW};
+		int[] horizontal = {0, Directions.LEFT, Directions.RIGHT};
+		for (int v : vertical) {
+			for (int h : horizontal) {
+				if (v != 0 || h != 0) {
+					REGIONS[v | h] = new SoundRegion(v | h, rangeOf(h, Directions.LEFT), rangeOf(v, Directions.BELOW));
+				}
+			}
+		}
+		REGIONS[Directions.ALL] = new SoundRegion(0, AT, AT);
+	}
+
+	/**
+	 * Directions whose sound literals are asserted by the reading.
+	 */
+	final int heardDirections;
+
+	/**
+	 * Ranges of the columns and the rows of the possible region.
+	 */
+	private final int possibleColumns, possibleRows;
+
+	/**
+	 * Ranges of the columns and the rows of the heard region.
+	 */
+	private final int heardColumns, heardRows;
+
+
+	/**
+	 * Class constructor. The heard region spans the whole world along the
+	 * axes where the possible region is only the coordinate of the reading.
+	 *
+	 * @param heardDirections directions whose sound literals are asserted.
+	 * @param possibleColumns range of the columns of the possible region.
+	 * @param possibleRows    range of the rows of the possible region.
+	 **/
+	private SoundRegion(int heardDirections, int possibleColumns, int possibleRows) {
+		this.heardDirections = heardDirections;
+		this.possibleColumns = possibleColumns;
+		this.possibleRows = possibleRows;
+		heardColumns = possibleColumns == AT ? ALL : possibleColumns;
+		heardRows = possibleRows == AT ? ALL : possibleRows;
+	}
+
+
+	/**
+	 * Returns the range of one axis given the direction of the reading along it.
+	 *
+	 * @param direction  direction of the reading along the axis, 0 if none.
+	 * @param towardsOne direction of the axis towards the coordinate 1.
+	 * @return range of the possible region along the axis.
+	 **/
+	private static int rangeOf(int direction, int towardsOne) {
+		if (direction == 0) {
+			return AT;
+		}
+		return direction == towardsOne ? BEFORE : AFTER;
+	}
+
+
+	/**
+	 * Returns the descriptor of a reading of the sound sensor.
+	 *
+	 * @param directions mask of Directions of the reading.
+	 * @return the descriptor.
+	 * @throws IllegalArgumentException if no reading can have those directions.
+	 **/
+	static SoundRegion of(int directions) {
+		SoundRegion region = directions >= 0 && directions < REGIONS.length ? REGIONS[directions] : null;
+		if (region == null) {
+			throw new IllegalArgumentException("Invalid sound sensor reading " + directions);
+		}
+		return region;
+	}
+
+
+	/**
+	 * Checks whether the reading says that Barcenas is at the column of the reading.
+	 *
+	 * @return true if the possible region has only that column.
+	 **/
+	boolean fixesColumn() {
+		return possibleColumns == AT;
+	}
+
+
+	/**
+	 * Checks whether the reading says that Barcenas is at the row of the reading.
+	 *
+	 * @return true if the possible region has only that row.
+	 **/
+	boolean fixesRow() {
+		return possibleRows == AT;
+	}
+
+
+	/**
+	 * First column of the possible region.
+	 *
+	 * @param x x coordinate of the reading.
+	 * @return first column, greater than the last one if the region is empty.
+	 **/
+	int firstPossibleColumn(int x) {
+		return first(possibleColumns, x);
+	}
+
+
+	/**
+	 * Last column of the possible region.
+	 *
+	 * @param x   x coordinate of the reading.
+	 * @param dim dimension of the world.
+	 * @return last column.
+	 **/
+	int lastPossibleColumn(int x, int dim) {
+		return last(possibleColumns, x, dim);
+	}
+
+
+	/**
+	 * First row of the possible region.
+	 *
+	 * @param y y coordinate of the reading.
+	 * @return first row, greater than the last one if the region is empty.
+	 **/
+	int firstPossibleRow(int y) {
+		return first(possibleRows, y);
+	}
+
+
+	/**
+	 * Last row of the possible region.
+	 *
+	 * @param y   y coordinate of the reading.
+	 * @param dim dimension of the world.
+	 * @return last row.
+	 **/
+	int lastPossibleRow(int y, int dim) {
+		return last(possibleRows, y, dim);
+	}
+
+
+	/**
+	 * First column of the heard region.
+	 *
+	 * @param x x coordinate of the reading.
+	 * @return first column.
+	 **/
+	int firstHeardColumn(int x) {
+		return first(heardColumns, x);
+	}
+
+
+	/**
+	 * Last column of the heard region.
+	 *
+	 * @param x   x coordinate of the reading.
+	 * @param dim dimension of the world.
+	 * @return last column.
+	 **/
+	int lastHeardColumn(int x, int dim) {
+		return last(heardColumns, x, dim);
+	}
+
+
+	/**
+	 * First row of the heard region.
+	 *
+	 * @param y y coordinate of the reading.
+	 * @return first row.
+	 **/
+	int firstHeardRow(int y) {
+		return first(heardRows, y);
+	}
+
+
+	/**
+	 * Last row of the heard region.
+	 *
+	 * @param y   y coordinate of the reading.
+	 * @param dim dimension of the world.
+	 * @return last row.
+	 **/
+	int lastHeardRow(int y, int dim) {
+		return last(heardRows, y, dim);
+	}
+
+
+	/**
+	 * Checks whether a position is in the possible region.
+	 *
+	 * @param i x coordinate of the position.
+	 * @param j y coordinate of the position.
+	 * @param x x coordinate of the reading.
+	 * @param y y coordinate of the reading.
+	 * @return true if Barcenas can be at (i,j) according to the reading.
+	 **/
+	boolean isPossible(int i, int j, int x, int y) {
+		return inRange(possibleColumns, i, x) && inRange(possibleRows, j, y);
+	}
+
+
+	/**
+	 * First coordinate of a range.
+	 *
+	 * @param range the range.
+	 * @param p     coordinate of the reading.
+	 * @return the first coordinate.
+	 **/
+	private static int first(int range, int p) {
+		switch (range) {
+			case AT:
+				return p;
+			case AFTER:
+				return p + 1;
+			default:  // ALL and BEFORE
+				return 1;
+		}
+	}
+
+
+	/**
+	 * Last coordinate of a range.
+	 *
+	 * @param range the range.
+	 * @param p     coordinate of the reading.
+	 * @param dim   dimension of the world.
+	 * @return the last coordinate.
+	 **/
+	private static int last(int range, int p, int dim) {
+		switch (range) {
+			case AT:
+				return p;
+			case BEFORE:
+				return p - 1;
+			default:  // ALL and AFTER
+				return dim;
+		}
+	}
+
+
+	/**
+	 * Checks whether a coordinate is in a range.
+	 *
+	 * @param range the range.
+	 * @param c     the coordinate.
+	 * @param p     coordinate of the reading.
+	 * @return true if c is in the range.
+	 **/
+	private static boolean inRange(int range, int c, int p) {
+		switch (range) {
+			case AT:
+				return c == p;
+			case BEFORE:
+				return c < p;
+			case AFTER:
+				return c > p;
+			default:
+				return true;
+		}
+	}
+
+}
@@ -0,0 +1,362 @@
+package apryraz.bworld;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Measurements of one step of the BarcenasFinder agent: time spent in every
+ * phase of the step, answers of the solver, clauses added to the formula,
+ * size of the formula and statistics of the solver. The agent fills them
+ * in while it performs the step, together with its inference engine.
+ **/
+public class StepMetrics {
+
+	/**
+	 * Number of the step, starting at 1.
+	 */
+	private final int stepNumber;
+
+	/**
+	 * Dimension of the world.
+	 */
+	private final int worldDim;
+
+	/**
+	 * Time spent moving the agent, in nanoseconds.
+	 */
+	long moveNanos;
+
+	/**
+	 * Time spent adding the conclusions of the previous step, in nanoseconds.
+	 */
+	long pastClausesNanos;
+
+	/**
+	 * Time spent adding the sound sensor evidence, in nanoseconds.
+	 */
+	long evidenceNanos;
+
+	/**
+	 * Time spent performing the inference questions, in nanoseconds.
+	 */
+	long inferenceNanos;
+
+	/**
+	 * Number of calls to the solver.
+	 */
+	long solverCalls;
+
+	/**
+	 * Number of calls to the solver that found a model.
+	 */
+	long satisfiableAnswers;
+
+	/**
+	 * Number of calls to the solver that proved that there is no model.
+	 */
+	long unsatisfiableAnswers;
+
+	/**
+	 * Number of positions discovered as not possible from the unit clauses
+	 * of the formula, without calling the solver.
+	 */
+	long unitAnswers;
+
+	/**
+	 * Estimated time saved by the positions discovered from the unit clauses,
+	 * at the average time of a solver call, in nanoseconds.
+	 */
+	long unitAnswerNanosSaved;
+
+	/**
+	 * Number of positions discovered as not possible in the step.
+	 */
+	long positionsDiscarded;
+
+	/**
+	 * Number of positions still possible after the step.
+	 */
+	long candidatesLeft;
+
+	/**
+	 * Number of clauses added in the step, indexed by the ordinal of their kind.
+	 */
+	final long[] clausesAdded = new long[ClauseKind.values().length];
+
+	/**
+	 * Number of clauses of the step not added to the formula because it
+	 * already had them.
+	 */
+	long duplicateClauses;
+
+	/**
+	 * Number of clauses of the step not added to the formula because they
+	 * were already true.
+	 */
+	long subsumedClauses;
+
+	/**
+	 * Number of variables of the solver.
+	 */
+	long numVariables;
+
+	/**
+	 * Number of constraints stored in the solver.
+	 */
+	long numConstraints;
+
+	/**
+	 * Statistics of the solver at the end of the step, added up since it was made.
+	 */
+	private Map<String, Number> solverStats = Collections.emptyMap();
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param stepNumber number of the step, starting at 1.
+	 * @param worldDim   dimension of the world.
+	 **/
+	public StepMetrics(int stepNumber, int worldDim) {
+		this.stepNumber = stepNumber;
+		this.worldDim = worldDim;
+	}
+
+
+	/**
+	 * Returns the number of the step.
+	 *
+	 * @return number of the step, starting at 1.
+	 **/
+	public int getStepNumber() {
+		return stepNumber;
+	}
+
+
+	/**
+	 * Returns the dimension of the world.
+	 *
+	 * @return dimension of the world.
+	 **/
+	public int getWorldDim() {
+		return worldDim;
+	}
+
+
+	/**
+	 * Returns the time spent moving the agent.
+	 *
+	 * @return time in nanoseconds.
+	 **/
+	public long getMoveNanos() {
+		return moveNanos;
+	}
+
+
+	/**
+	 * Returns the time spent adding the conclusions of the previous step.
+	 *
+	 * @return time in nanoseconds.
+	 **/
+	public long getPastClausesNanos() {
+		return pastClausesNanos;
+	}
+
+
+	/**
+	 * Returns the time spent adding the sound sensor evidence.
+	 *
+	 * @return time in nanoseconds.
+	 **/
+	public long getEvidenceNanos() {
+		return evidenceNanos;
+	}
+
+
+	/**
+	 * Returns the time spent performing the inference questions.
+	 *
+	 * @return time in nanoseconds.
+	 **/
+	public long getInferenceNanos() {
+		return inferenceNanos;
+	}
+
+
+	/**
+	 * Returns the time spent in all the phases of the step.
+	 *
+	 * @return time in nanoseconds.
+	 **/
+	public long getTotalNanos() {
+		return moveNanos + pastClausesNanos + evidenceNanos + inferenceNanos;
+	}
+
+
+	/**
+	 * Returns the number of calls to the solver.
+	 *
+	 * @return number of solver calls.
+	 **/
+	public long getSolverCalls() {
+		return solverCalls;
+	}
+
+
+	/**
+	 * Returns the number of calls to the solver that found a model.
+	 *
+	 * @return number of satisfiable answers.
+	 **/
+	public long getSatisfiableAnswers() {
+		return satisfiableAnswers;
+	}
+
+
+	/**
+	 * Returns the number of calls to the solver that proved that there is no model.
+	 *
+	 * @return number of unsatisfiable answers.
+	 **/
+	public long getUnsatisfiableAnswers() {
+		return unsatisfiableAnswers;
+	}
+
+
+	/**
+	 * Returns the number of positions discovered as not possible from the unit
+	 * clauses of the formula, without calling the solver. Together with the
+	 * unsatisfiable answers, they make the positions discarded.
+	 *
+	 * @return number of unit answers.
+	 **/
+	public long getUnitAnswers() {
+		return unitAnswers;
+	}
+
+
+	/**
+	 * Returns the estimated time saved by the positions discovered from the
+	 * unit clauses, at the average time of a solver call.
+	 *
+	 * @return time in nanoseconds.
+	 **/
+	public long getUnitAnswerNanosSaved() {
+		return unitAnswerNanosSaved;
+	}
+
+
+	/**
+	 * Returns the number of positions discovered as not possible in the step.
+	 *
+	 * @return number of positions discarded.
+	 **/
+	public long getPositionsDiscarded() {
+		return positionsDiscarded;
+	}
+
+
+	/**
+	 * Returns the number of positions still possible after the step.
+	 *
+	 * @return number of candidate positions.
+	 **/
+	public long getCandidatesLeft() {
+		return candidatesLeft;
+	}
+
+
+	/**
+	 * Returns the number of clauses of a kind added in the step, including
+	 * the duplicate and subsumed ones that did not reach the formula.
+	 *
+	 * @param kind kind of clauses.
+	 * @return number of clauses added.
+	 **/
+	public long getClausesAdded(ClauseKind kind) {
+		return clausesAdded[kind.ordinal()];
+	}
+
+
+	/**
+	 * Returns the number of clauses of the step not added to the formula
+	 * because it already had them.
+	 *
+	 * @return number of duplicate clauses.
+	 **/
+	public long getDuplicateClauses() {
+		return duplicateClauses;
+	}
+
+
+	/**
+	 * Returns the number of clauses of the step not added to the formula
+	 * because they were already true.
+	 *
+	 * @return number of subsumed clauses.
+	 **/
+	public long getSubsumedClauses() {
+		return subsumedClauses;
+	}
+
+
+	/**
+	 * Returns the number of variables of the solver.
+	 *
+	 * @return number of variables.
+	 **/
+	public long getNumVariables() {
+		return numVariables;
+	}
+
+
+	/**
+	 * Returns the number of constraints stored in the solver.
+	 *
+	 * @return number of constraints.
+	 **/
+	public long getNumConstraints() {
+		return numConstraints;
+	}
+
+
+	/**
+	 * Returns the statistics of the solver at the end of the step, such as
+	 * conflicts, decisions, propagations or learned clauses, added up since
+	 * the solver was made. Empty for engines without such statistics.
+	 *
+	 * @return unmodifiable map from the name of every statistic to its value.
+	 **/
+	public Map<String, Number> getSolverStats() {
+		return solverStats;
+	}
+
+
+	/**
+	 * Stores a copy of the statistics of the solver. SAT4J gives them as a
+	 * raw map, so every entry is checked while copying it.
+	 *
+	 * @param stats statistics of the solver, from names to numbers.
+	 **/
+	void setSolverStats(Map<?, ?> stats) {
+		TreeMap<String, Number> copy = new TreeMap<>();
+		for (Map.Entry<?, ?> stat : stats.entrySet()) {
+			copy.put((String) stat.getKey(), (Number) stat.getValue());
+		}
+		solverStats = Collections.unmodifiableMap(copy);
+	}
+
+
+	/**
+	 * Returns a statistic of the solver.
+	 *
+	 * @param name name of the statistic, i.e "conflicts".
+	 * @return its value, or 0 if the solver does not have it.
+	 **/
+	public long getSolverStat(String name) {
+		Number value = solverStats.get(name);
+		return value == null ? 0 : value.longValue();
+	}
+
+}
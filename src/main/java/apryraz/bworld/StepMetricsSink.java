@@ -0,0 +1,21 @@
+package apryraz.bworld;
+
+/**
+ * Destination of the measurements of the steps of the BarcenasFinder agent.
+ **/
+public interface StepMetricsSink {
+
+	/**
+	 * Receives the measurements of a step, once the step has finished.
+	 *
+	 * @param metrics measurements of the step.
+	 **/
+	void accept(StepMetrics metrics);
+
+	/**
+	 * Writes any measurements still buffered and releases the resources of
+	 * the sink. The sink cannot receive more measurements afterwards.
+	 **/
+	void close();
+
+}
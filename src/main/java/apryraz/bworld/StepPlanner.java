@@ -0,0 +1,216 @@
+package apryraz.bworld;
+
+/**
+ * Source of steps that plans every step of the BarcenasFinder agent from its
+ * current state, instead of following a fixed sequence. The next position is
+ * the one whose reading of the sound sensor splits the positions where
+ * Barcenas can still be most evenly, so that every step discards as many
+ * positions as possible, as a binary search in x and y. The planner stops
+ * giving steps once Barcenas is localised at a single position.
+ * <p>
+ * A reading at (x,y) splits the candidate positions into nine groups, by
+ * their column being before, at or after x and their row being before, at
+ * or after y. The score of (x,y) is the sum of the squares of the sizes of
+ * the groups, proportional to the expected number of candidates left after
+ * the step. The sizes of the groups of every position are obtained from the
+ * prefix sums of the candidates, so planning a step costs O(n^2).
+ **/
+public class StepPlanner implements StepSource {
+
+	/**
+	 * Agent whose steps are planned.
+	 */
+	private final BarcenasFinder agent;
+
+	/**
+	 * Maximum distance of a step, in rows and in columns, 0 for no limit.
+	 */
+	private final int maxMoveDistance;
+
+	/**
+	 * Dimension of the world.
+	 */
+	private final int worldDim;
+
+	/**
+	 * Number of candidates in the positions with column <= i and row <= j,
+	 * at index i * (worldDim + 1) + j.
+	 */
+	private final int[] prefix;
+
+	/**
+	 * Bounds of the three groups of columns and of rows of the reading being
+	 * scored: every group goes from after one bound to the next one.
+	 */
+	private final int[] columnBounds = new int[4], rowBounds = new int[4];
+
+	/**
+	 * Coordinates of the current step.
+	 */
+	private int x, y;
+
+	/**
+	 * Number of steps planned so far.
+	 */
+	private int stepsPlanned;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param agent           agent whose steps are planned, from its current state.
+	 * @param maxMoveDistance maximum distance of a step from the position of the
+	 *                        agent, in rows and in columns, or 0 for no limit. The first
+	 *                        step, before the agent is in the world, has no limit.
+	 **/
+	public StepPlanner(BarcenasFinder agent, int maxMoveDistance) {
+		this.agent = agent;
+		this.maxMoveDistance = maxMoveDistance;
+		worldDim = agent.getState().getDimension();
+		prefix = new int[(worldDim + 1) * (worldDim + 1)];
+	}
+
+
+	/**
+	 * Plans the next step from the current state of the agent.
+	 *
+	 * @return false if Barcenas is already localised, so no step is needed.
+	 **/
+	public boolean nextStep() {
+		BFState state = agent.getState();
+		long candidates = state.countCandidates();
+		if (candidates <= 1) {
+			return false;
+		}
+		computePrefixSums(state);
+
+		int fromX = 1, toX = worldDim, fromY = 1, toY = worldDim;
+		int agentX = agent.getAgentX(), agentY = agent.getAgentY();
+		boolean limited = maxMoveDistance > 0 && agentX > 0;
+		if (limited) {
+			fromX = Math.max(1, agentX - maxMoveDistance);
+			toX = Math.min(worldDim, agentX + maxMoveDistance);
+			fromY = Math.max(1, agentY - maxMoveDistance);
+			toY = Math.min(worldDim, agentY + maxMoveDistance);
+		}
+
+		long bestScore = Long.MAX_VALUE;
+		int bestDistance = Integer.MAX_VALUE;
+		for (int i = fromX; i <= toX; i++) {
+			for (int j = fromY; j <= toY; j++) {
+				long score = score(i, j);
+				int distance = agentX > 0 ? Math.max(Math.abs(i - agentX), Math.abs(j - agentY)) : 0;
+				if (score < bestScore || (score == bestScore && distance < bestDistance)) {
+					bestScore = score;
+					bestDistance = distance;
+					x = i;
+					y = j;
+				}
+			}
+		}
+		stepsPlanned++;
+		return true;
+	}
+
+
+	/**
+	 * Returns the x coordinate of the step planned.
+	 *
+	 * @return x coordinate.
+	 **/
+	public int getX() {
+		return x;
+	}
+
+
+	/**
+	 * Returns the y coordinate of the step planned.
+	 *
+	 * @return y coordinate.
+	 **/
+	public int getY() {
+		return y;
+	}
+
+
+	/**
+	 * Returns the number of steps planned so far, that once the planner
+	 * stops is the number of steps needed to localise Barcenas.
+	 *
+	 * @return number of steps planned.
+	 **/
+	public int getStepsPlanned() {
+		return stepsPlanned;
+	}
+
+
+	/**
+	 * Does nothing, the planner has no resources to release.
+	 **/
+	public void close() {
+	}
+
+
+	/**
+	 * Computes the score of a reading at (i,j): the sum of the squares of the
+	 * number of candidates of the nine groups the reading splits them into.
+	 *
+	 * @param i x coordinate of the reading.
+	 * @param j y coordinate of the reading.
+	 * @return the score, lower for more informative readings.
+	 **/
+	private long score(int i, int j) {
+		columnBounds[1] = i - 1;
+		columnBounds[2] = i;
+		columnBounds[3] = worldDim;
+		rowBounds[1] = j - 1;
+		rowBounds[2] = j;
+		rowBounds[3] = worldDim;
+		long score = 0;
+		for (int c = 0; c < 3; c++) {
+			for (int r = 0; r < 3; r++) {
+				long count = count(columnBounds[c], columnBounds[c + 1], rowBounds[r], rowBounds[r + 1]);
+				score += count * count;
+			}
+		}
+		return score;
+	}
+
+
+	/**
+	 * Counts the candidates in the positions with afterX < column <= toX
+	 * and afterY < row <= toY.
+	 *
+	 * @param afterX last column before the rectangle.
+	 * @param toX    last column of the rectangle.
+	 * @param afterY last row before the rectangle.
+	 * @param toY    last row of the rectangle.
+	 * @return number of candidates in the rectangle.
+	 **/
+	private int count(int afterX, int toX, int afterY, int toY) {
+		int side = worldDim + 1;
+		return prefix[toX * side + toY] - prefix[afterX * side + toY]
+			   - prefix[toX * side + afterY] + prefix[afterX * side + afterY];
+	}
+
+
+	/**
+	 * Computes the prefix sums of the candidates of a state.
+	 *
+	 * @param state the state.
+	 **/
+	private void computePrefixSums(BFState state) {
+		int side = worldDim + 1;
+		for (int i = 1; i <= worldDim; i++) {
+			int rowSum = 0;
+			int cell = (i - 1) * worldDim;
+			for (int j = 1; j <= worldDim; j++, cell++) {
+				if (state.isPossible(cell)) {
+					rowSum++;
+				}
+				prefix[i * side + j] = prefix[(i - 1) * side + j] + rowSum;
+			}
+		}
+	}
+
+}
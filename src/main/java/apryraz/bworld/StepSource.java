@@ -0,0 +1,39 @@
+package apryraz.bworld;
+
+import java.io.IOException;
+
+/**
+ * Sequence of the positions the BarcenasFinder agent moves to, read one
+ * step at a time. The coordinates of the current step are kept in the
+ * source itself, so reading the steps does not make any object.
+ **/
+public interface StepSource {
+
+	/**
+	 * Reads the next step, that becomes the current one.
+	 *
+	 * @return false if there are no more steps.
+	 * @throws IOException when reading the steps fails or they are malformed.
+	 **/
+	boolean nextStep() throws IOException;
+
+	/**
+	 * Returns the x coordinate of the current step.
+	 *
+	 * @return x coordinate.
+	 **/
+	int getX();
+
+	/**
+	 * Returns the y coordinate of the current step.
+	 *
+	 * @return y coordinate.
+	 **/
+	int getY();
+
+	/**
+	 * Releases the resources of the source. No more steps can be read afterwards.
+	 **/
+	void close();
+
+}
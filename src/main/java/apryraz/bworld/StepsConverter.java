@@ -0,0 +1,81 @@
+package apryraz.bworld;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Converts steps files of the BarcenasFinder agent from the text format to
+ * the binary format of MappedStepSource, that is faster to read and,
+ * for worlds of more than 99 positions per side, smaller.
+ **/
+public final class StepsConverter {
+
+	/**
+	 * Class with static functions only, there are no objects of it.
+	 **/
+	private StepsConverter() {
+	}
+
+
+	/**
+	 * Converts a steps file to the binary format. The input can have either
+	 * format, so this also copies binary files.
+	 *
+	 * @param inputFile  name of the steps file to convert.
+	 * @param binaryFile name of the binary steps file to write.
+	 * @return number of steps converted.
+	 * @throws IOException when reading or writing the files fails.
+	 **/
+	public static long convertToBinary(String inputFile, String binaryFile) throws IOException {
+		long numSteps = 0;
+		StepSource steps = new MappedStepSource(inputFile);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				   new FileOutputStream(binaryFile), 1 << 16));
+			try {
+				out.writeInt(MappedStepSource.MAGIC);
+				out.writeInt(MappedStepSource.VERSION);
+				out.writeLong(0);  // Number of steps, written at the end
+				while (steps.nextStep()) {
+					out.writeInt(steps.getX());
+					out.writeInt(steps.getY());
+					numSteps++;
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			steps.close();
+		}
+		RandomAccessFile header = new RandomAccessFile(binaryFile, "rw");
+		try {
+			header.seek(8);
+			header.writeLong(numSteps);
+		} finally {
+			header.close();
+		}
+		return numSteps;
+	}
+
+
+	/**
+	 * Converts a steps file given in the command line:
+	 * arg[0] = steps file to convert, in the text format.
+	 * arg[1] = binary steps file to write.
+	 *
+	 * @param args the arguments.
+	 * @throws IOException when reading or writing the files fails.
+	 **/
+	public static void main(String[] args) throws IOException {
+		if (args == null || args.length < 2) {
+			System.out.println("CONVERTER => Not enough arguments given");
+			return;
+		}
+		long numSteps = convertToBinary(args[0], args[1]);
+		System.out.println("CONVERTER => " + numSteps + " steps written to " + args[1]);
+	}
+
+}
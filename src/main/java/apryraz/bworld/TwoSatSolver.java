@@ -0,0 +1,386 @@
+package apryraz.bworld;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+
+import java.util.Arrays;
+
+
+/**
+ * Solver specialised in the formulas of the BarcenasFinder agent, where all
+ * the clauses are unit or binary except a few at-least-one clauses. Binary
+ * clauses are stored as an implication graph, unit clauses are propagated
+ * through it as soon as they are added, and a question about a literal is
+ * answered propagating that literal and undoing the propagation afterwards.
+ * <p>
+ * Literals follow the DIMACS convention of SAT4J: variables are numbered
+ * from 1 and a negative literal is the negation of its variable. As long as
+ * the formula is satisfiable (the formula of the agent always is, because
+ * Barcenas is somewhere), answers are exact for unit and binary clauses.
+ * Clauses with more literals are only used for unit propagation, which is
+ * exact when making true any of their literals never makes false another
+ * one, as it happens with the at-least-one clauses of the positions of Barcenas.
+ **/
+public class TwoSatSolver {
+
+	/**
+	 * Value of every variable (index 1 onwards): 1 when true,
+	 * -1 when false and 0 when still unassigned.
+	 */
+	private byte[] value;
+
+	/**
+	 * Implication graph: for every literal index, the literals that
+	 * must be true when it is true.
+	 */
+	private int[][] implied;
+
+	/**
+	 * Number of literals stored in every list of the implication graph.
+	 */
+	private int[] impliedSize;
+
+	/**
+	 * Clauses with more than two literals.
+	 */
+	private int[][] longClauses = new int[4][];
+
+	/**
+	 * Number of clauses with more than two literals.
+	 */
+	private int numLongClauses;
+
+	/**
+	 * Number of literals of every long clause that are not false.
+	 */
+	private int[] nonFalseLiterals = new int[4];
+
+	/**
+	 * For every literal index, the long clauses that contain that literal.
+	 */
+	private int[][] occurrences;
+
+	/**
+	 * Number of clauses stored in every list of occurrences.
+	 */
+	private int[] occurrencesSize;
+
+	/**
+	 * Assigned literals in order of assignment. The first topLevelSize
+	 * literals are the consequences of the formula, the rest belong to
+	 * the question being answered.
+	 */
+	private int[] trail;
+
+	/**
+	 * Number of literals of the trail that are consequences of the formula.
+	 */
+	private int topLevelSize;
+
+	/**
+	 * Number of literals in the trail.
+	 */
+	private int trailSize;
+
+	/**
+	 * Number of questions answered so far.
+	 */
+	private long questions;
+
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param numVariables number of variables of the formula.
+	 **/
+	public TwoSatSolver(int numVariables) {
+		value = new byte[numVariables + 1];
+		implied = new int[2 * (numVariables + 1)][];
+		impliedSize = new int[implied.length];
+		occurrences = new int[implied.length][];
+		occurrencesSize = new int[implied.length];
+		trail = new int[numVariables];
+	}
+
+
+	/**
+	 * Adds a clause to the formula and propagates its consequences.
+	 *
+	 * @param clause clause to add.
+	 * @throws ContradictionException if the clause contradicts the formula.
+	 **/
+	public void addClause(IVecInt clause) throws ContradictionException {
+		int[] literals = new int[clause.size()];
+		clause.copyTo(literals);
+		addClause(literals);
+	}
+
+
+	/**
+	 * Adds a clause to the formula and propagates its consequences.
+	 *
+	 * @param literals literals of the clause to add.
+	 * @throws ContradictionException if the clause contradicts the formula.
+	 **/
+	public void addClause(int[] literals) throws ContradictionException {
+		if (literals.length == 0) {
+			throw new ContradictionException("Empty clause");
+		}
+		int fromTrail = trailSize;
+		if (literals.length == 1) {
+			if (valueOf(literals[0]) < 0) {
+				throw new ContradictionException("Unit clause " + literals[0] + " is false");
+			}
+			if (valueOf(literals[0]) == 0) {
+				assign(literals[0]);
+			}
+		} else if (literals.length == 2) {
+			int a = literals[0], b = literals[1];
+			addImplication(-a, b);
+			addImplication(-b, a);
+			if (valueOf(a) < 0 && valueOf(b) < 0) {
+				throw new ContradictionException("Binary clause " + a + " " + b + " is false");
+			} else if (valueOf(a) < 0 && valueOf(b) == 0) {
+				assign(b);
+			} else if (valueOf(b) < 0 && valueOf(a) == 0) {
+				assign(a);
+			}
+		} else {
+			int clauseIndex = addLongClause(literals);
+			int remaining = nonFalseLiterals[clauseIndex];
+			if (remaining == 0) {
+				throw new ContradictionException("Clause " + Arrays.toString(literals) + " is false");
+			}
+			if (remaining == 1) {
+				int literal = nonFalseLiteral(clauseIndex);
+				if (valueOf(literal) == 0) {
+					assign(literal);
+				}
+			}
+		}
+		if (!propagate(fromTrail)) {
+			throw new ContradictionException("Clause " + Arrays.toString(literals)
+				   + " contradicts the formula");
+		}
+		topLevelSize = trailSize;
+	}
+
+
+	/**
+	 * Checks whether the formula together with a literal is satisfiable.
+	 *
+	 * @param literal literal assumed to be true.
+	 * @return true if the literal can be true, false if the formula implies its negation.
+	 **/
+	public boolean isSatisfiable(int literal) {
+		questions++;
+		int known = valueOf(literal);
+		if (known != 0) {
+			return known > 0;
+		}
+		assign(literal);
+		boolean satisfiable = propagate(topLevelSize);
+		undo(topLevelSize);
+		return satisfiable;
+	}
+
+
+	/**
+	 * Returns the value that the formula implies for a literal.
+	 *
+	 * @param literal literal to check.
+	 * @return 1 if the formula implies it, -1 if the formula implies its
+	 * negation and 0 otherwise.
+	 **/
+	public int valueOf(int literal) {
+		int v = value[Math.abs(literal)];
+		return literal > 0 ? v : -v;
+	}
+
+
+	/**
+	 * Returns the number of variables of the formula.
+	 *
+	 * @return number of variables.
+	 **/
+	public int getNumVariables() {
+		return value.length - 1;
+	}
+
+
+	/**
+	 * Returns the number of questions answered so far.
+	 *
+	 * @return number of calls to isSatisfiable.
+	 **/
+	public long getQuestions() {
+		return questions;
+	}
+
+
+	/**
+	 * Returns the number of variables whose value the formula implies.
+	 *
+	 * @return number of top level consequences.
+	 **/
+	public int getNumImpliedLiterals() {
+		return topLevelSize;
+	}
+
+
+	/**
+	 * Makes a literal true and updates the long clauses where it is false.
+	 *
+	 * @param literal literal to assign.
+	 **/
+	private void assign(int literal) {
+		value[Math.abs(literal)] = (byte) (literal > 0 ? 1 : -1);
+		trail[trailSize++] = literal;
+		int falseIndex = literalIndex(-literal);
+		for (int c = 0; c < occurrencesSize[falseIndex]; c++) {
+			nonFalseLiterals[occurrences[falseIndex][c]]--;
+		}
+	}
+
+
+	/**
+	 * Unassigns the literals of the trail from a given position onwards.
+	 *
+	 * @param toSize number of literals of the trail to keep.
+	 **/
+	private void undo(int toSize) {
+		while (trailSize > toSize) {
+			int literal = trail[--trailSize];
+			value[Math.abs(literal)] = 0;
+			int falseIndex = literalIndex(-literal);
+			for (int c = 0; c < occurrencesSize[falseIndex]; c++) {
+				nonFalseLiterals[occurrences[falseIndex][c]]++;
+			}
+		}
+	}
+
+
+	/**
+	 * Propagates the literals of the trail from a given position onwards,
+	 * through the implication graph and the long clauses.
+	 *
+	 * @param fromTrail position of the first literal of the trail to propagate.
+	 * @return false if some clause became false, true otherwise.
+	 **/
+	private boolean propagate(int fromTrail) {
+		for (int next = fromTrail; next < trailSize; next++) {
+			int literal = trail[next];
+			int index = literalIndex(literal);
+			int[] consequences = implied[index];
+			for (int k = 0; k < impliedSize[index]; k++) {
+				int consequence = consequences[k];
+				int v = valueOf(consequence);
+				if (v < 0) {
+					return false;
+				}
+				if (v == 0) {
+					assign(consequence);
+				}
+			}
+			int falseIndex = literalIndex(-literal);
+			for (int c = 0; c < occurrencesSize[falseIndex]; c++) {
+				int clauseIndex = occurrences[falseIndex][c];
+				if (nonFalseLiterals[clauseIndex] == 0) {
+					return false;
+				}
+				if (nonFalseLiterals[clauseIndex] == 1) {
+					int remaining = nonFalseLiteral(clauseIndex);
+					if (valueOf(remaining) == 0) {
+						assign(remaining);
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Adds the implication: from -> to to the implication graph.
+	 *
+	 * @param from first part of the implication (before the arrow ->).
+	 * @param to   second part of the implication (after the arrow ->).
+	 **/
+	private void addImplication(int from, int to) {
+		int index = literalIndex(from);
+		implied[index] = append(implied[index], impliedSize[index]++, to);
+	}
+
+
+	/**
+	 * Stores a clause with more than two literals.
+	 *
+	 * @param literals literals of the clause.
+	 * @return index of the stored clause.
+	 **/
+	private int addLongClause(int[] literals) {
+		if (numLongClauses == longClauses.length) {
+			longClauses = Arrays.copyOf(longClauses, numLongClauses * 2);
+			nonFalseLiterals = Arrays.copyOf(nonFalseLiterals, numLongClauses * 2);
+		}
+		int clauseIndex = numLongClauses++;
+		longClauses[clauseIndex] = literals.clone();
+		int remaining = 0;
+		for (int literal : literals) {
+			int index = literalIndex(literal);
+			occurrences[index] = append(occurrences[index], occurrencesSize[index]++, clauseIndex);
+			if (valueOf(literal) >= 0) {
+				remaining++;
+			}
+		}
+		nonFalseLiterals[clauseIndex] = remaining;
+		return clauseIndex;
+	}
+
+
+	/**
+	 * Finds a literal of a long clause that is not false.
+	 *
+	 * @param clauseIndex index of the clause.
+	 * @return the first literal of the clause that is not false.
+	 **/
+	private int nonFalseLiteral(int clauseIndex) {
+		for (int literal : longClauses[clauseIndex]) {
+			if (valueOf(literal) >= 0) {
+				return literal;
+			}
+		}
+		throw new IllegalStateException("Clause " + clauseIndex + " has no literal left");
+	}
+
+
+	/**
+	 * Maps a literal to its position in the arrays indexed by literal.
+	 *
+	 * @param literal the literal.
+	 * @return 2*variable for positive literals, 2*variable+1 for negative ones.
+	 **/
+	private static int literalIndex(int literal) {
+		return literal > 0 ? literal << 1 : ((-literal) << 1) | 1;
+	}
+
+
+	/**
+	 * Stores a value at a position of a growable array.
+	 *
+	 * @param array    the array, or null if it is still empty.
+	 * @param position position where the value is stored.
+	 * @param element  value to store.
+	 * @return the array, or a larger copy if it was full.
+	 **/
+	private static int[] append(int[] array, int position, int element) {
+		if (array == null) {
+			array = new int[4];
+		} else if (position == array.length) {
+			array = Arrays.copyOf(array, position * 2);
+		}
+		array[position] = element;
+		return array;
+	}
+
+}
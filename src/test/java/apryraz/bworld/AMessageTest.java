@@ -0,0 +1,92 @@
+import apryraz.bworld.AMessage;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.Directions;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.MessageKind;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Class for testing the messages exchanged between the agent and the environment.
+ **/
+public class AMessageTest {
+
+	/**
+	 * Checks that the string form of the messages is read and written as before.
+	 */
+	@Test
+	public void stringFormIsKept() {
+		AMessage move = new AMessage("moveto", "3", "12");
+		Assert.assertEquals(MessageKind.MOVETO, move.getKind());
+		Assert.assertEquals(3, move.getX());
+		Assert.assertEquals(12, move.getY());
+		Assert.assertEquals("MESSAGE: moveto 3 12", move.toString());
+
+		AMessage sound = new AMessage("BELOW,LEFT", "2", "5");
+		Assert.assertEquals(MessageKind.SOUND, sound.getKind());
+		Assert.assertEquals(Directions.BELOW | Directions.LEFT, sound.getDirections());
+		Assert.assertEquals("BELOW,LEFT", sound.getComp(0));
+		Assert.assertEquals("5", sound.getComp(2));
+
+		AMessage none = new AMessage("NOMESSAGE", "", "");
+		Assert.assertEquals(MessageKind.NOMESSAGE, none.getKind());
+		Assert.assertEquals("", none.getComp(1));
+	}
+
+
+	/**
+	 * Checks that the string form of every mask of directions is read back.
+	 */
+	@Test
+	public void directionsRoundTrip() {
+		for (int mask = 0; mask <= Directions.ALL; mask++) {
+			Assert.assertEquals(mask, Directions.parse(Directions.toString(mask)));
+			Assert.assertSame(Directions.toString(mask), Directions.toString(mask));
+		}
+		Assert.assertEquals("ABOVE,BELOW,LEFT,RIGHT", Directions.toString(Directions.ALL));
+		Assert.assertEquals(Directions.ABOVE | Directions.RIGHT, Directions.parse("RIGHT,ABOVE"));
+	}
+
+
+	/**
+	 * Checks that unknown messages are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownMessageIsRejected() {
+		new AMessage("smellat", "1", "1");
+	}
+
+
+	/**
+	 * Checks the nine readings of the sound sensor around Barcenas, and that the
+	 * answers are written in the message given to the environment.
+	 */
+	@Test
+	public void environmentAnswersInTheGivenMessage() {
+		BarcenasWorldEnv env = new BarcenasWorldEnv(5, 3, 3);
+		env.setEventSink(EventSinks.NONE);
+		AMessage request = new AMessage();
+		AMessage answer = new AMessage();
+		String[][] expected = {
+			   {"BELOW,RIGHT", "BELOW", "BELOW,LEFT"},
+			   {"RIGHT", "ABOVE,BELOW,LEFT,RIGHT", "LEFT"},
+			   {"ABOVE,RIGHT", "ABOVE", "ABOVE,LEFT"}};
+		for (int y = 2; y <= 4; y++) {
+			for (int x = 2; x <= 4; x++) {
+				request.set(MessageKind.SOUNDSAT, x, y, 0);
+				Assert.assertSame(answer, env.acceptMessage(request, answer));
+				Assert.assertEquals(MessageKind.SOUND, answer.getKind());
+				Assert.assertEquals(expected[4 - y][x - 2], answer.getComp(0));
+				Assert.assertEquals(x, answer.getX());
+				Assert.assertEquals(y, answer.getY());
+			}
+		}
+		request.set(MessageKind.MOVETO, 6, 1, 0);
+		env.acceptMessage(request, answer);
+		Assert.assertEquals(MessageKind.NOTMOVEDTO, answer.getKind());
+		request.set(MessageKind.MOVETO, 5, 1, 0);
+		env.acceptMessage(request, answer);
+		Assert.assertEquals(MessageKind.MOVEDTO, answer.getKind());
+	}
+
+}
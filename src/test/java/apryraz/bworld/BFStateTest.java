@@ -0,0 +1,62 @@
+import apryraz.bworld.BFState;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+/**
+ * Class for testing the bitset representation of the BFState.
+ **/
+public class BFStateTest {
+
+	/**
+	 * Checks that the string adapter and the bulk operations see the same cells,
+	 * also for cells placed in different words of the bitset.
+	 */
+	@Test
+	public void markImpossibleMatchesSet() {
+		int wDim = 11;
+		BFState bulk = new BFState(wDim);
+		BFState single = new BFState(wDim);
+		BitSet cells = new BitSet();
+		int[] excluded = {0, 5, 63, 64, 65, 100, 120};
+		for (int cell : excluded) {
+			cells.set(cell);
+			single.set(cell / wDim + 1, cell % wDim + 1, "X");
+		}
+		bulk.markImpossible(cells);
+
+		Assert.assertTrue(bulk.equals(single));
+		Assert.assertEquals(bulk.hashCode(), single.hashCode());
+		Assert.assertEquals(wDim * wDim - excluded.length, bulk.countCandidates());
+		Assert.assertEquals("X", bulk.get(6, 10));
+		Assert.assertEquals("?", bulk.get(7, 1));
+
+		single.set(11, 11, "?");
+		single.set(1, 1, "?");
+		Assert.assertFalse(bulk.equals(single));
+	}
+
+
+	/**
+	 * Checks that nextCandidate skips the impossible cells and stops at the
+	 * last cell of the world.
+	 */
+	@Test
+	public void nextCandidateSkipsImpossibleCells() {
+		int wDim = 9;
+		BFState state = new BFState(wDim);
+		BitSet cells = new BitSet();
+		cells.set(0, 70);
+		cells.set(71, 80);
+		state.markImpossible(cells);
+
+		Assert.assertEquals(70, state.nextCandidate(0));
+		Assert.assertEquals(80, state.nextCandidate(71));
+		Assert.assertEquals(-1, state.nextCandidate(81));
+		state.set(9, 9, "X");
+		Assert.assertEquals(-1, state.nextCandidate(71));
+		Assert.assertEquals(1, state.countCandidates());
+	}
+
+}
@@ -1,6 +1,10 @@
 import apryraz.bworld.BFState;
+import apryraz.bworld.BackboneInference;
 import apryraz.bworld.BarcenasFinder;
 import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.InferenceEngines;
+import apryraz.bworld.SatInferenceEngine;
 import org.junit.Assert;
 import org.junit.Test;
 import org.sat4j.core.VecInt;
@@ -117,11 +121,51 @@ public class BarcenasFinderTest {
 	public void testMakeSeqOfSteps(int wDim, int barX, int barY,
 							 int numSteps, String fileSteps, String fileStates) throws
 		   IOException, ContradictionException, TimeoutException {
+		testMakeSeqOfSteps(wDim, barX, barY, numSteps, fileSteps, fileStates, GammaEncoding.FULL);
+	}
+
+
+	/**
+	 * Same as the previous function, but building the formula of the agent
+	 * with the given encoding of the sound sensor implications.
+	 *
+	 * @param wDim       the dimension of world
+	 * @param barX       x coordinate of Barcenas position
+	 * @param barY       y coordinate of Barcenas position
+	 * @param numSteps   num of steps to perform
+	 * @param fileSteps  file name with sequence of steps to perform
+	 * @param fileStates file name with sequence of target states, that should
+	 *                   be the resulting states after each movement in fileSteps
+	 * @param encoding   encoding of the sound sensor implications
+	 **/
+	public void testMakeSeqOfSteps(int wDim, int barX, int barY,
+							 int numSteps, String fileSteps, String fileStates,
+							 GammaEncoding encoding) throws
+		   IOException, ContradictionException, TimeoutException {
+		testMakeSeqOfSteps(new BarcenasFinder(wDim, encoding), barX, barY,
+			   numSteps, fileSteps, fileStates);
+	}
+
+
+	/**
+	 * Same as the previous functions, but with an agent already made.
+	 *
+	 * @param BAgent     BarcenasFinder agent to test
+	 * @param barX       x coordinate of Barcenas position
+	 * @param barY       y coordinate of Barcenas position
+	 * @param numSteps   num of steps to perform
+	 * @param fileSteps  file name with sequence of steps to perform
+	 * @param fileStates file name with sequence of target states, that should
+	 *                   be the resulting states after each movement in fileSteps
+	 **/
+	public void testMakeSeqOfSteps(BarcenasFinder BAgent, int barX, int barY,
+							 int numSteps, String fileSteps, String fileStates) throws
+		   IOException, ContradictionException, TimeoutException {
 		// You should make BarcenasFinder and BarcenasWorldEnv objects to test.
 		// Then load sequence of target states, load sequence of steps into the bAgent
 		// and then test the sequence calling testMakeSimpleStep once for each step.
 
-		BarcenasFinder BAgent = new BarcenasFinder(wDim);
+		int wDim = BAgent.getState().getDimension();
 		BarcenasWorldEnv EnvAgent = new BarcenasWorldEnv(wDim, barX, barY);
 
 		// Load list of states
@@ -140,6 +184,25 @@ public class BarcenasFinderTest {
 	}
 
 
+	/**
+	 * Runs the four first tests with agents whose inference engine is made
+	 * from a specification, that must produce the same states.
+	 *
+	 * @param engineSpec specification of the engine (see InferenceEngines)
+	 **/
+	public void testCatalogue(String engineSpec) throws
+		   IOException, ContradictionException, TimeoutException {
+		int[][] worlds = {{4, 3, 3, 5}, {4, 4, 1, 4}, {5, 3, 3, 7}, {5, 5, 5, 7}};
+		for (int t = 0; t < worlds.length; t++) {
+			BarcenasFinder BAgent = new BarcenasFinder(worlds[t][0],
+				   InferenceEngines.create(engineSpec, worlds[t][0]));
+			testMakeSeqOfSteps(BAgent, worlds[t][1], worlds[t][2], worlds[t][3],
+				   "tests/steps" + (t + 1) + ".txt", "tests/states" + (t + 1) + ".txt");
+			BAgent.shutdown();
+		}
+	}
+
+
 	/**
 	 * Runs first test(states1.txt  steps1.txt) for the BarcenasFinder:
 	 * 4x4 world,
@@ -213,6 +276,160 @@ public class BarcenasFinderTest {
 		testMakeSeqOfSteps(5, 5, 5, 7, "tests/steps4.txt", "tests/states4.txt");
 	}
 
+	/**
+	 * Runs the four previous tests with the compact (ladder) encoding
+	 * of the sound sensor implications, that must produce the same states.
+	 *
+	 * @throws IOException            when opening states or steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void BWorldCompactEncodingTest() throws
+		   IOException, ContradictionException, TimeoutException {
+		testMakeSeqOfSteps(4, 3, 3, 5, "tests/steps1.txt", "tests/states1.txt", GammaEncoding.COMPACT);
+		testMakeSeqOfSteps(4, 4, 1, 4, "tests/steps2.txt", "tests/states2.txt", GammaEncoding.COMPACT);
+		testMakeSeqOfSteps(5, 3, 3, 7, "tests/steps3.txt", "tests/states3.txt", GammaEncoding.COMPACT);
+		testMakeSeqOfSteps(5, 5, 5, 7, "tests/steps4.txt", "tests/states4.txt", GammaEncoding.COMPACT);
+	}
+
+	/**
+	 * Runs the four first tests with the lazy encoding of the sound sensor
+	 * implications, that must produce the same states.
+	 *
+	 * @throws IOException            when opening states or steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void BWorldLazyEncodingTest() throws
+		   IOException, ContradictionException, TimeoutException {
+		testMakeSeqOfSteps(4, 3, 3, 5, "tests/steps1.txt", "tests/states1.txt", GammaEncoding.LAZY);
+		testMakeSeqOfSteps(4, 4, 1, 4, "tests/steps2.txt", "tests/states2.txt", GammaEncoding.LAZY);
+		testMakeSeqOfSteps(5, 3, 3, 7, "tests/steps3.txt", "tests/states3.txt", GammaEncoding.LAZY);
+		testMakeSeqOfSteps(5, 5, 5, 7, "tests/steps4.txt", "tests/states4.txt", GammaEncoding.LAZY);
+	}
+
+	/**
+	 * Runs the four first tests with the backbone inference mode, that must
+	 * produce the same states.
+	 *
+	 * @throws IOException            when opening states or steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void BWorldBackboneInferenceTest() throws
+		   IOException, ContradictionException, TimeoutException {
+		testCatalogue("sat,full,backbone");
+	}
+
+	/**
+	 * Repeats the same backbone computation, and checks that its questions
+	 * leave no variable nor clause behind in the solver.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void testBackboneQuestionsDoNotGrowTheSolver() throws ContradictionException, TimeoutException {
+		ISolver solver = SolverFactory.newDefault();
+		solver.newVar(4);
+		solver.addClause(new VecInt(new int[]{1, 2, 3, 4}));
+		solver.addClause(new VecInt(new int[]{-1, -2}));
+		BackboneInference backbone = new BackboneInference(solver, 2, 1);
+		int numConstraints = solver.nConstraints();
+		int nextVariable = solver.nextFreeVarId(false);
+		for (int repeat = 0; repeat < 5; repeat++) {
+			long[] unknown = {0xFL};
+			backbone.findImpossiblePositions(unknown);
+			Assert.assertEquals(0L, unknown[0]);
+			Assert.assertEquals(numConstraints, solver.nConstraints());
+			Assert.assertEquals(nextVariable, solver.nextFreeVarId(false));
+		}
+	}
+
+	/**
+	 * Runs the four first tests with the 2-SAT solver and every encoding,
+	 * that must produce the same states.
+	 *
+	 * @throws IOException            when opening states or steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void BWorldTwoSatBackendTest() throws
+		   IOException, ContradictionException, TimeoutException {
+		for (GammaEncoding encoding : GammaEncoding.values()) {
+			testCatalogue("sat," + encoding.name() + ",twosat");
+		}
+	}
+
+	/**
+	 * Runs the four first tests with the parallel inference mode and three
+	 * threads, that must produce the same states.
+	 *
+	 * @throws IOException            when opening states or steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void BWorldParallelInferenceTest() throws
+		   IOException, ContradictionException, TimeoutException {
+		testCatalogue("sat,parallel,threads=3");
+	}
+
+	/**
+	 * Runs the four first tests with the interval inference engine, that must
+	 * produce the same states.
+	 *
+	 * @throws IOException            when opening states or steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void BWorldIntervalEngineTest() throws
+		   IOException, ContradictionException, TimeoutException {
+		testCatalogue("interval");
+	}
+
+	/**
+	 * Runs the first test and checks that every step asks the solver only
+	 * about part of the positions, and that the first step decides all
+	 * of them, either with a query, with a model of another query or with
+	 * the unit clauses of the formula.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void testSkippedInferenceQueries() throws ContradictionException, TimeoutException {
+		SatInferenceEngine engine = new SatInferenceEngine(4, GammaEncoding.FULL);
+		BarcenasFinder BAgent = new BarcenasFinder(4, engine);
+		BAgent.setEnvironment(new BarcenasWorldEnv(4, 3, 3));
+		BAgent.loadListOfSteps(5, "tests/steps1.txt");
+
+		BAgent.runNextStep();
+		Assert.assertEquals(16, BAgent.getLastInferenceQueries() + engine.getLastWitnessedQueries()
+			   + engine.getLastUnitAnswers());
+		Assert.assertEquals(engine.getLastWitnessedQueries() + engine.getLastUnitAnswers(),
+			   BAgent.getLastSkippedQueries());
+		Assert.assertTrue(engine.getLastWitnessedQueries() > 0);
+		for (int i = 1; i < 5; i++) {
+			BAgent.runNextStep();
+			Assert.assertEquals(16, BAgent.getLastInferenceQueries() + BAgent.getLastSkippedQueries());
+			Assert.assertTrue(BAgent.getLastSkippedQueries() > 0);
+		}
+	}
+
 	/**
 	 * Tests solver by adding a simple implication and
 	 * performing all possible situations for the implication,
@@ -0,0 +1,66 @@
+import apryraz.bworld.BatchRunner;
+import apryraz.bworld.Scenario;
+import apryraz.bworld.ScenarioResult;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Class for testing the runner of batches of scenarios.
+ **/
+public class BatchRunnerTest {
+
+	/**
+	 * Runs the scenarios of the tests folder, that all localise Barcenas.
+	 *
+	 * @throws IOException            when reading the manifest or the steps files.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void manifestScenariosAreLocalised() throws
+		   IOException, ContradictionException, TimeoutException {
+		List<Scenario> scenarios = Scenario.readManifest("tests/scenarios.txt");
+		Assert.assertEquals(4, scenarios.size());
+		Assert.assertEquals(5, scenarios.get(3).getBarcenasX());
+		Assert.assertEquals(7, scenarios.get(3).getSteps().size());
+
+		List<ScenarioResult> results = new BatchRunner("sat", 2).run(scenarios);
+		Assert.assertEquals(scenarios.size(), results.size());
+		for (int s = 0; s < results.size(); s++) {
+			ScenarioResult result = results.get(s);
+			Assert.assertSame(scenarios.get(s), result.getScenario());
+			Assert.assertTrue(result.getStepsToLocalise() > 0);
+			Assert.assertTrue(result.getStepsToLocalise() <= scenarios.get(s).getSteps().size());
+			Assert.assertTrue(result.getSolverCalls() > 0);
+			Assert.assertTrue(result.getPeakClauses() > 0);
+		}
+	}
+
+
+	/**
+	 * Checks that running random scenarios in parallel gives the same results
+	 * as running them one at a time.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void parallelRunMatchesSequentialRun() throws ContradictionException, TimeoutException {
+		List<Scenario> scenarios = Scenario.randomScenarios(60, 7, 8, 11);
+		List<ScenarioResult> sequential = new BatchRunner("sat,compact", 1).run(scenarios);
+		List<ScenarioResult> parallel = new BatchRunner("sat,compact", 3).run(scenarios);
+		for (int s = 0; s < scenarios.size(); s++) {
+			Assert.assertEquals(sequential.get(s).getStepsToLocalise(), parallel.get(s).getStepsToLocalise());
+			Assert.assertEquals(sequential.get(s).getSolverCalls(), parallel.get(s).getSolverCalls());
+			Assert.assertEquals(sequential.get(s).getPeakClauses(), parallel.get(s).getPeakClauses());
+		}
+	}
+
+}
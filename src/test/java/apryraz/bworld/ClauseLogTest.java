@@ -0,0 +1,102 @@
+import apryraz.bworld.Directions;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.InferenceMode;
+import apryraz.bworld.SatInferenceEngine;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+/**
+ * Class for testing that the clauses the formula already has are not
+ * added to it again.
+ **/
+public class ClauseLogTest {
+
+	/**
+	 * Performs a step of an engine with one reading of the sound sensor.
+	 *
+	 * @param engine     the engine.
+	 * @param x          x coordinate of the reading.
+	 * @param y          y coordinate of the reading.
+	 * @param directions mask of Directions of the reading.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	private static void step(SatInferenceEngine engine, int x, int y, int directions) throws
+		   ContradictionException, TimeoutException {
+		engine.startStep();
+		engine.addSoundSensorEvidence(x, y, directions);
+		engine.performInferenceQuestions();
+	}
+
+
+	/**
+	 * Checks that repeating a reading keeps the formula the same size, for
+	 * every encoding, once the conclusions of the first reading are added
+	 * as knowledge about the past.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void repeatedReadingsAreDropped() throws ContradictionException, TimeoutException {
+		for (GammaEncoding encoding : GammaEncoding.values()) {
+			SatInferenceEngine engine = new SatInferenceEngine(6, encoding);
+			step(engine, 4, 4, Directions.ABOVE);
+			Assert.assertEquals(0, engine.getTotalDuplicateClauses());
+			step(engine, 4, 4, Directions.ABOVE);
+			long clauses = engine.getNumClauses();
+			long duplicates = engine.getTotalDuplicateClauses();
+			Assert.assertTrue(duplicates > 0);
+			for (int repeat = 0; repeat < 4; repeat++) {
+				step(engine, 4, 4, Directions.ABOVE);
+			}
+			Assert.assertEquals(encoding.name(), clauses, engine.getNumClauses());
+			Assert.assertTrue(encoding.name(), engine.getTotalDuplicateClauses() >= duplicates + 4);
+			engine.shutdown();
+		}
+	}
+
+
+	/**
+	 * Checks that building the worker solvers of the parallel inference mode
+	 * does not record Gamma in the clause log of the agent again.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void workerSolversDoNotRepeatGamma() throws ContradictionException, TimeoutException {
+		SatInferenceEngine engine = new SatInferenceEngine(6, GammaEncoding.FULL, InferenceMode.PARALLEL);
+		step(engine, 4, 4, Directions.ABOVE);
+		Assert.assertEquals(0, engine.getTotalDuplicateClauses());
+		Assert.assertEquals(0, engine.getTotalSubsumedClauses());
+		engine.shutdown();
+	}
+
+
+	/**
+	 * Checks that the implications of the lazy encoding that are already true,
+	 * because of the positions excluded before, are not added.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void knownPositionsSubsumeImplications() throws ContradictionException, TimeoutException {
+		SatInferenceEngine engine = new SatInferenceEngine(6, GammaEncoding.LAZY);
+		step(engine, 3, 3, Directions.ABOVE);
+		long subsumed = engine.getTotalSubsumedClauses();
+		long clauses = engine.getNumClauses();
+		step(engine, 3, 5, Directions.ABOVE);
+		Assert.assertTrue(engine.getTotalSubsumedClauses() > subsumed);
+		Assert.assertTrue(engine.getNumClauses() > clauses);
+		engine.shutdown();
+	}
+
+}
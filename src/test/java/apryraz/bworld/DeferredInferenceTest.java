@@ -0,0 +1,180 @@
+import apryraz.bworld.AMessage;
+import apryraz.bworld.BFState;
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.InferenceEngines;
+import apryraz.bworld.MemoryMetricsSink;
+import apryraz.bworld.MessageKind;
+import apryraz.bworld.Position;
+import apryraz.bworld.Scenario;
+import apryraz.bworld.StepMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class for testing the steps of the agent that perform the inference only
+ * after the evidence of several steps.
+ **/
+public class DeferredInferenceTest {
+
+	/**
+	 * Engines compared, with every way of adding the evidence.
+	 */
+	private static final String[] ENGINES = {"sat,full", "sat,compact", "sat,lazy",
+		   "sat,compact,backbone", "sat,compact,twosat", "interval"};
+
+	/**
+	 * Adds up the solver calls of the steps measured by a sink.
+	 *
+	 * @param calls sink of the measurements of the steps.
+	 * @return solver calls of all the steps.
+	 **/
+	private static long solverCalls(MemoryMetricsSink calls) {
+		long solverCalls = 0;
+		for (StepMetrics metrics : calls.getMetrics()) {
+			solverCalls += metrics.getSolverCalls();
+		}
+		return solverCalls;
+	}
+
+
+	/**
+	 * Makes a silent agent for a scenario.
+	 *
+	 * @param scenario   the scenario.
+	 * @param engineSpec specification of the inference engine of the agent.
+	 * @param calls      sink of the measurements of the steps.
+	 * @return the agent.
+	 **/
+	private static BarcenasFinder makeAgent(Scenario scenario, String engineSpec, MemoryMetricsSink calls) {
+		int wDim = scenario.getWorldDim();
+		BarcenasFinder BAgent = new BarcenasFinder(wDim, InferenceEngines.create(engineSpec, wDim),
+			   EventSinks.NONE);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(wDim, scenario.getBarcenasX(), scenario.getBarcenasY());
+		env.setEventSink(EventSinks.NONE);
+		BAgent.setEnvironment(env);
+		BAgent.setListOfSteps(scenario.getSteps());
+		BAgent.addMetricsSink(calls);
+		return BAgent;
+	}
+
+
+	/**
+	 * Returns the readings of the sound sensor at the steps of a scenario.
+	 *
+	 * @param scenario the scenario.
+	 * @return the answers of the sound sensor.
+	 **/
+	private static List<AMessage> readingsOf(Scenario scenario) {
+		BarcenasWorldEnv env = new BarcenasWorldEnv(scenario.getWorldDim(),
+			   scenario.getBarcenasX(), scenario.getBarcenasY());
+		env.setEventSink(EventSinks.NONE);
+		List<AMessage> readings = new ArrayList<>();
+		for (Position step : scenario.getSteps()) {
+			readings.add(env.acceptMessage(new AMessage(MessageKind.SOUNDSAT, step.x, step.y)));
+		}
+		return readings;
+	}
+
+
+	/**
+	 * Checks that two states have the same possible positions.
+	 *
+	 * @param message  message of the failures.
+	 * @param expected the expected state.
+	 * @param actual   the state checked.
+	 **/
+	private static void assertSameState(String message, BFState expected, BFState actual) {
+		Assert.assertEquals(message, expected.toString(), actual.toString());
+	}
+
+
+	/**
+	 * Checks that performing the inference only at the end, at a cadence, or
+	 * after ingesting recorded readings, gives the same state as performing
+	 * it in every step, with fewer solver calls.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void deferredInferenceGivesTheSameState() throws ContradictionException, TimeoutException {
+		for (Scenario scenario : Scenario.randomScenarios(3, 6, 6, 11)) {
+			int numSteps = scenario.getSteps().size();
+			for (String engineSpec : ENGINES) {
+				String message = engineSpec + " " + scenario.getName();
+
+				MemoryMetricsSink stepwiseCalls = new MemoryMetricsSink();
+				BarcenasFinder stepwise = makeAgent(scenario, engineSpec, stepwiseCalls);
+				for (int step = 0; step < numSteps; step++) {
+					stepwise.runNextStep();
+				}
+
+				MemoryMetricsSink deferredCalls = new MemoryMetricsSink();
+				BarcenasFinder deferred = makeAgent(scenario, engineSpec, deferredCalls);
+				deferred.runSteps(numSteps);
+				assertSameState(message, stepwise.getState(), deferred.getState());
+				Assert.assertEquals(message, numSteps, deferredCalls.getMetrics().size());
+				Assert.assertTrue(message, solverCalls(deferredCalls) <= solverCalls(stepwiseCalls));
+
+				BarcenasFinder cadence = makeAgent(scenario, engineSpec, new MemoryMetricsSink());
+				cadence.setInferenceCadence(4);
+				cadence.runSteps(numSteps);
+				assertSameState(message, stepwise.getState(), cadence.getState());
+
+				BarcenasFinder replayed = makeAgent(scenario, engineSpec, new MemoryMetricsSink());
+				replayed.ingestEvidence(readingsOf(scenario));
+				assertSameState(message, stepwise.getState(), replayed.getState());
+				Assert.assertEquals(message, stepwise.isLocalised(), replayed.isLocalised());
+
+				stepwise.shutdown();
+				deferred.shutdown();
+				cadence.shutdown();
+				replayed.shutdown();
+			}
+		}
+	}
+
+
+	/**
+	 * Checks that the steps without inference do not call the solver, and that
+	 * Barcenas is localised in the step that performs the inference.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void onlyInferenceStepsCallTheSolver() throws ContradictionException, TimeoutException {
+		List<Position> steps = new ArrayList<>();
+		steps.add(new Position(2, 2));
+		steps.add(new Position(3, 3));
+		steps.add(new Position(4, 1));
+		Scenario scenario = new Scenario("cadence", 4, 3, 2, steps);
+
+		MemoryMetricsSink calls = new MemoryMetricsSink();
+		BarcenasFinder BAgent = makeAgent(scenario, "sat,full", calls);
+		StepMetrics last = BAgent.runSteps(3);
+		BAgent.shutdown();
+
+		List<StepMetrics> measured = calls.getMetrics();
+
+		Assert.assertEquals(3, measured.size());
+		Assert.assertSame(last, measured.get(2));
+		Assert.assertEquals(0, measured.get(0).getSolverCalls());
+		Assert.assertEquals(0, measured.get(1).getSolverCalls());
+		Assert.assertTrue(last.getSolverCalls() > 0);
+		Assert.assertTrue(BAgent.isLocalised());
+		Assert.assertEquals(3, BAgent.getStepsToLocalise());
+		Assert.assertEquals(3, BAgent.getLocalisedX());
+		Assert.assertEquals(2, BAgent.getLocalisedY());
+	}
+
+}
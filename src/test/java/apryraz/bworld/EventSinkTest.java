@@ -0,0 +1,241 @@
+import apryraz.bworld.AsyncEventSink;
+import apryraz.bworld.BFState;
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.EventLevel;
+import apryraz.bworld.EventSink;
+import apryraz.bworld.EventType;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.SatInferenceEngine;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class for testing the events of the agent and its environment.
+ **/
+public class EventSinkTest {
+
+	/**
+	 * Sink that keeps the text of the events of a level or more important.
+	 * Also used by the other tests that check the events of the agent.
+	 **/
+	static class RecordingSink implements EventSink {
+
+		/**
+		 * Lowest level of the events kept.
+		 */
+		final EventLevel minLevel;
+
+		/**
+		 * Types of the events kept.
+		 */
+		final List<EventType> types = new ArrayList<>();
+
+		/**
+		 * Arguments of the events kept, as "x,y".
+		 */
+		final List<String> arguments = new ArrayList<>();
+
+		/**
+		 * Text of the events kept.
+		 */
+		final StringBuilder text = new StringBuilder();
+
+
+		/**
+		 * Class constructor.
+		 *
+		 * @param minLevel lowest level of the events kept.
+		 **/
+		RecordingSink(EventLevel minLevel) {
+			this.minLevel = minLevel;
+		}
+
+
+		/**
+		 * Checks whether the level of a type of event is kept.
+		 *
+		 * @param type type of event.
+		 * @return true if events of that type are kept.
+		 **/
+		public boolean isEnabled(EventType type) {
+			return type.getLevel().compareTo(minLevel) >= 0;
+		}
+
+
+		/**
+		 * Keeps the event, failing if its level is not kept.
+		 *
+		 * @param type   type of event.
+		 * @param x      first argument of the event.
+		 * @param y      second argument of the event.
+		 * @param detail detail object of the event, or null.
+		 **/
+		public void emit(EventType type, int x, int y, Object detail) {
+			if (type == EventType.STATE) {
+				Assert.assertTrue("STATE events must only be made when shown", isEnabled(type));
+			}
+			if (isEnabled(type)) {
+				types.add(type);
+				arguments.add(x + "," + y);
+				text.append(type.format(x, y, detail)).append(System.lineSeparator());
+			}
+		}
+
+
+		/**
+		 * Does nothing.
+		 **/
+		public void close() {
+		}
+	}
+
+
+	/**
+	 * Runs the first test with a sink for the agent and its environment.
+	 *
+	 * @param events destination of the events.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	private void runScenario(EventSink events) throws ContradictionException, TimeoutException {
+		BarcenasFinder BAgent = new BarcenasFinder(4, new SatInferenceEngine(4, GammaEncoding.FULL), events);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(4, 3, 3);
+		env.setEventSink(events);
+		BAgent.setEnvironment(env);
+		BAgent.loadListOfSteps(5, "tests/steps1.txt");
+		for (int step = 0; step < 5; step++) {
+			BAgent.runNextStep();
+		}
+		BAgent.shutdown();
+		events.close();
+	}
+
+
+	/**
+	 * Checks the events of every step when all of them are shown.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void everyStepSendsItsEvents() throws ContradictionException, TimeoutException {
+		RecordingSink sink = new RecordingSink(EventLevel.TRACE);
+		runScenario(sink);
+		Assert.assertEquals(EventType.AGENT_STARTED, sink.types.get(0));
+		Assert.assertEquals(EventType.STATE, sink.types.get(1));
+		Assert.assertEquals(EventType.STEPS_FILE_OPENED, sink.types.get(2));
+		int moves = 0, states = 0, messages = 0;
+		for (EventType type : sink.types) {
+			if (type == EventType.MOVED_TO) {
+				moves++;
+			} else if (type == EventType.STATE) {
+				states++;
+			} else if (type == EventType.MESSAGE_RECEIVED) {
+				messages++;
+			}
+		}
+		Assert.assertEquals(5, moves);
+		Assert.assertEquals(6, states);
+		Assert.assertEquals(10, messages);
+		Assert.assertEquals(EventType.STATE, sink.types.get(sink.types.size() - 1));
+		Assert.assertTrue(sink.text.indexOf("MESSAGE: moveto ") >= 0);
+		Assert.assertTrue(sink.text.indexOf("FINDER => Printing Barcenas world matrix") >= 0);
+	}
+
+
+	/**
+	 * Checks that the events of lower levels are discarded, without making
+	 * the copies of the state of the agent.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void lowerLevelsAreDiscarded() throws ContradictionException, TimeoutException {
+		RecordingSink sink = new RecordingSink(EventLevel.INFO);
+		runScenario(sink);
+		Assert.assertFalse(sink.types.isEmpty());
+		for (EventType type : sink.types) {
+			Assert.assertTrue(type.getLevel().compareTo(EventLevel.INFO) >= 0);
+		}
+	}
+
+
+	/**
+	 * Checks that the asynchronous sink writes the same text as the
+	 * events formatted as soon as they happen.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void asyncSinkWritesAllEvents() throws ContradictionException, TimeoutException {
+		RecordingSink sink = new RecordingSink(EventLevel.TRACE);
+		runScenario(sink);
+		StringWriter out = new StringWriter();
+		runScenario(new AsyncEventSink(out, EventLevel.TRACE, 4));
+		Assert.assertEquals(sink.text.toString(), out.toString());
+	}
+
+
+	/**
+	 * Checks that the agent neither blocks on the events nor on closing the
+	 * asynchronous sink once writing to its destination has failed.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test(timeout = 10000)
+	public void asyncSinkSurvivesFailingDestination() throws ContradictionException, TimeoutException {
+		Writer failing = new Writer() {
+			public void write(char[] buffer, int offset, int length) throws IOException {
+				throw new IOException("Destination not writable");
+			}
+
+			public void flush() throws IOException {
+				throw new IOException("Destination not writable");
+			}
+
+			public void close() {
+			}
+		};
+		AsyncEventSink sink = new AsyncEventSink(failing, EventLevel.TRACE, 1);
+		for (int e = 0; e < 10000; e++) {
+			sink.emit(EventType.MOVED_TO, e, e, null);
+		}
+		runScenario(sink);
+		Assert.assertNotNull(sink.getFailure());
+	}
+
+
+	/**
+	 * Checks that the text of a state is the one printed by printState
+	 * and that a copy of a state does not change with it.
+	 */
+	@Test
+	public void stateCopyAndText() {
+		BFState state = new BFState(2);
+		BFState copy = state.copy();
+		state.set(2, 1, BFState.IMPOSSIBLE);
+		String separator = System.lineSeparator();
+		Assert.assertEquals("FINDER => Printing Barcenas world matrix" + separator
+			   + "\t#\tX ? \t#" + separator + "\t#\t? ? \t#", state.toString());
+		Assert.assertTrue(copy.isPossible(2));
+		Assert.assertFalse(state.isPossible(2));
+	}
+
+}
@@ -0,0 +1,143 @@
+import apryraz.bworld.GammaCache;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.GammaTemplate;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Class for testing the cache of the templates of the formula Gamma in files.
+ **/
+public class GammaCacheTest {
+
+	/**
+	 * Directory of the cache of the tests.
+	 */
+	private File directory;
+
+
+	/**
+	 * Makes an empty directory for the cache.
+	 *
+	 * @throws IOException if the directory cannot be made.
+	 */
+	@Before
+	public void makeDirectory() throws IOException {
+		directory = Files.createTempDirectory("gamma").toFile();
+		GammaCache.setDirectory(directory);
+		GammaTemplate.clearCache();
+	}
+
+
+	/**
+	 * Removes the directory of the cache and leaves the tests without it.
+	 */
+	@After
+	public void removeDirectory() {
+		GammaCache.setDirectory(null);
+		GammaTemplate.clearCache();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+
+	/**
+	 * Returns a template in DIMACS format, to compare templates.
+	 *
+	 * @param template the template.
+	 * @return the formula in DIMACS format.
+	 * @throws IOException never, the writer is in memory.
+	 **/
+	private static String dimacsOf(GammaTemplate template) throws IOException {
+		StringWriter out = new StringWriter();
+		GammaCache.writeDimacs(template, out);
+		return out.toString();
+	}
+
+
+	/**
+	 * Loads a template again, after removing it from the cache in memory.
+	 *
+	 * @param wDim     dimension of the world.
+	 * @param encoding encoding of the sound sensor implications.
+	 * @return the template.
+	 **/
+	private static GammaTemplate reload(int wDim, GammaEncoding encoding) {
+		GammaTemplate.clearCache();
+		return GammaTemplate.of(wDim, encoding);
+	}
+
+
+	/**
+	 * Checks that the templates are written once and read back the same.
+	 *
+	 * @throws IOException when reading the files fails.
+	 */
+	@Test
+	public void templatesAreReadBack() throws IOException {
+		for (GammaEncoding encoding : GammaEncoding.values()) {
+			GammaTemplate built = GammaTemplate.of(6, encoding);
+			File file = GammaCache.fileOf(6, encoding);
+			Assert.assertTrue(file.isFile());
+			long modified = file.lastModified();
+
+			// The layout of the variables of the file is the expected one
+			Assert.assertNotNull(GammaCache.load(6, encoding));
+			GammaTemplate loaded = reload(6, encoding);
+			Assert.assertNotSame(built, loaded);
+			Assert.assertEquals(built.getNumVariables(), loaded.getNumVariables());
+			Assert.assertEquals(dimacsOf(built), dimacsOf(loaded));
+			Assert.assertEquals(modified, file.lastModified());
+		}
+		GammaTemplate full = GammaTemplate.of(6, GammaEncoding.FULL);
+		Assert.assertTrue(dimacsOf(full).contains("p cnf " + full.getNumVariables() + " "
+			   + full.getNumClauses() + "\n"));
+	}
+
+
+	/**
+	 * Checks that damaged files and files of other versions or templates are
+	 * detected, and that the templates are built and written again.
+	 *
+	 * @throws IOException when reading or writing the files fails.
+	 */
+	@Test
+	public void damagedFilesAreBuiltAgain() throws IOException {
+		String expected = dimacsOf(GammaTemplate.of(5, GammaEncoding.COMPACT));
+		File file = GammaCache.fileOf(5, GammaEncoding.COMPACT);
+		byte[] original = Files.readAllBytes(file.toPath());
+
+		// A literal changed, a version changed, the future offset changed, the
+		// number of literals changed and the last clause truncated
+		long[] positions = {original.length - 2, 8, 31, 68, -1};
+		for (long position : positions) {
+			RandomAccessFile damaged = new RandomAccessFile(file, "rw");
+			try {
+				if (position < 0) {
+					damaged.setLength(original.length - 3);
+				} else {
+					damaged.seek(position);
+					damaged.write(original[(int) position] ^ 0x10);
+				}
+			} finally {
+				damaged.close();
+			}
+			Assert.assertEquals(expected, dimacsOf(reload(5, GammaEncoding.COMPACT)));
+			Assert.assertTrue(Arrays.equals(original, Files.readAllBytes(file.toPath())));
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.GammaTemplate;
+import apryraz.bworld.SatInferenceEngine;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Class for testing the templates of the formula Gamma.
+ **/
+public class GammaTemplateTest {
+
+	/**
+	 * Checks that the template of a dimension and an encoding is built once,
+	 * and that building it again gives the same formula.
+	 */
+	@Test
+	public void templateIsBuiltOnce() {
+		GammaTemplate template = GammaTemplate.of(6, GammaEncoding.COMPACT);
+		Assert.assertSame(template, GammaTemplate.of(6, GammaEncoding.COMPACT));
+		Assert.assertNotSame(template, GammaTemplate.of(6, GammaEncoding.FULL));
+		Assert.assertNotSame(template, GammaTemplate.of(7, GammaEncoding.COMPACT));
+
+		GammaTemplate.clearCache();
+		GammaTemplate rebuilt = GammaTemplate.of(6, GammaEncoding.COMPACT);
+		Assert.assertNotSame(template, rebuilt);
+		Assert.assertEquals(template.getNumVariables(), rebuilt.getNumVariables());
+		Assert.assertEquals(template.getNumClauses(), rebuilt.getNumClauses());
+	}
+
+
+	/**
+	 * Checks the number of variables of the templates and that the engines
+	 * load all their clauses.
+	 */
+	@Test
+	public void enginesLoadTheWholeTemplate() {
+		int wDim = 5;
+		for (GammaEncoding encoding : GammaEncoding.values()) {
+			GammaTemplate template = GammaTemplate.of(wDim, encoding);
+			Assert.assertEquals(wDim, template.getWorldDim());
+			Assert.assertEquals(encoding, template.getEncoding());
+			int ladders = encoding == GammaEncoding.COMPACT ? 4 * wDim : 0;
+			Assert.assertEquals(6 * wDim * wDim + ladders, template.getNumVariables());
+
+			SatInferenceEngine engine = new SatInferenceEngine(wDim, encoding);
+			Assert.assertEquals(template.getNumClauses(), engine.getNumClauses());
+			engine.shutdown();
+		}
+		// Two position clauses, n^2 past to future, n^4 - n^2 sound implications
+		// of each direction and two clauses for (1,1)
+		Assert.assertEquals(2 + 25 + 2 * (625 + 125) + 2,
+			   GammaTemplate.of(wDim, GammaEncoding.FULL).getNumClauses());
+	}
+
+
+	/**
+	 * Checks that the threads that ask for the same template at the same
+	 * time all get the one built by the first of them.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the threads.
+	 */
+	@Test
+	public void concurrentRequestsShareTheTemplate() throws InterruptedException {
+		GammaTemplate.clearCache();
+		final GammaTemplate[] templates = new GammaTemplate[4];
+		Thread[] threads = new Thread[templates.length];
+		for (int t = 0; t < threads.length; t++) {
+			final int slot = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					templates[slot] = GammaTemplate.of(9, GammaEncoding.COMPACT);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (GammaTemplate template : templates) {
+			Assert.assertSame(templates[0], template);
+		}
+	}
+
+}
@@ -0,0 +1,206 @@
+import apryraz.bworld.AMessage;
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.InferenceEngine;
+import apryraz.bworld.InferenceEngines;
+import apryraz.bworld.IntervalInferenceEngine;
+import apryraz.bworld.MessageKind;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Class for testing that the different inference engines of the
+ * BarcenasFinder agent reach the same states in random worlds.
+ **/
+public class InferenceEngineCrossCheckTest {
+
+	/**
+	 * Number of random worlds checked by every test.
+	 */
+	private static final int NUM_WORLDS = 40;
+
+	/**
+	 * Number of steps performed in every random world.
+	 */
+	private static final int NUM_STEPS = 6;
+
+
+	/**
+	 * Runs the same random steps in the same random world with two agents with
+	 * different inference engines, and checks that after every step both
+	 * agents have the same state.
+	 *
+	 * @param wDim          the dimension of world.
+	 * @param random        random generator for Barcenas position and the steps.
+	 * @param referenceSpec specification of the reference engine.
+	 * @param testedSpec    specification of the engine to test.
+	 * @throws IOException            when writing the steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	public void crossCheckRandomWorld(int wDim, Random random, String referenceSpec,
+							    String testedSpec) throws
+		   IOException, ContradictionException, TimeoutException {
+		// Barcenas is never at the first position
+		int barX, barY;
+		do {
+			barX = random.nextInt(wDim) + 1;
+			barY = random.nextInt(wDim) + 1;
+		} while (barX == 1 && barY == 1);
+		File stepsFile = writeRandomSteps(wDim, random);
+
+		BarcenasFinder reference = makeAgent(wDim, barX, barY, stepsFile,
+			   InferenceEngines.create(referenceSpec, wDim));
+		BarcenasFinder tested = makeAgent(wDim, barX, barY, stepsFile,
+			   InferenceEngines.create(testedSpec, wDim));
+		for (int step = 0; step < NUM_STEPS; step++) {
+			reference.runNextStep();
+			tested.runNextStep();
+			Assert.assertTrue("world " + wDim + " Barcenas at (" + barX + "," + barY
+					   + ") step " + step, reference.getState().equals(tested.getState()));
+		}
+		reference.shutdown();
+		tested.shutdown();
+		stepsFile.delete();
+	}
+
+
+	/**
+	 * Checks the interval engine against the SAT4J engine in random worlds.
+	 *
+	 * @throws IOException            when writing the steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void intervalEngineMatchesSatEngine() throws
+		   IOException, ContradictionException, TimeoutException {
+		Random random = new Random(8);
+		for (int w = 0; w < NUM_WORLDS; w++) {
+			crossCheckRandomWorld(2 + random.nextInt(7), random, "sat,compact,backbone", "interval");
+		}
+	}
+
+
+	/**
+	 * Checks the 2-SAT solver against the SAT4J solver in random worlds,
+	 * with the compact encoding.
+	 *
+	 * @throws IOException            when writing the steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void twoSatBackendMatchesSat4j() throws
+		   IOException, ContradictionException, TimeoutException {
+		Random random = new Random(10);
+		for (int w = 0; w < NUM_WORLDS; w++) {
+			crossCheckRandomWorld(2 + random.nextInt(7), random, "sat,compact", "sat,compact,twosat");
+		}
+	}
+
+
+	/**
+	 * Checks the full and lazy encodings, whose evidence for the readings
+	 * with a single direction adds explicit clauses, against the interval
+	 * engine in random worlds.
+	 *
+	 * @throws IOException            when writing the steps file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void fullAndLazyEncodingsMatchIntervalEngine() throws
+		   IOException, ContradictionException, TimeoutException {
+		Random random = new Random(16);
+		for (int w = 0; w < NUM_WORLDS; w++) {
+			String encoding = w % 2 == 0 ? "sat,full" : "sat,lazy";
+			crossCheckRandomWorld(2 + random.nextInt(7), random, "interval", encoding);
+		}
+	}
+
+
+	/**
+	 * Checks that the interval engine, in a world too large to build the
+	 * formula of the SAT4J engine, always keeps Barcenas inside the rectangle
+	 * of possible positions and finds it when the agent reaches its position.
+	 */
+	@Test
+	public void intervalEngineInVeryLargeWorld() {
+		int wDim = 100000;
+		int barX = 31337, barY = 77777;
+		Random random = new Random(100000);
+		IntervalInferenceEngine engine = new IntervalInferenceEngine(wDim);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(wDim, barX, barY);
+		env.setEventSink(EventSinks.NONE);
+		long possible = (long) wDim * wDim;
+
+		for (int step = 0; step < 60; step++) {
+			int x = 1 + random.nextInt(wDim);
+			int y = 1 + random.nextInt(wDim);
+			engine.addSoundSensorEvidence(x, y, env.acceptMessage(soundsAt(x, y)).getDirections());
+			possible -= engine.performBoundsInference();
+			Assert.assertEquals(possible, engine.countPossiblePositions());
+			Assert.assertTrue(engine.isPossible(barX, barY));
+		}
+		engine.addSoundSensorEvidence(barX, barY, env.acceptMessage(soundsAt(barX, barY)).getDirections());
+		engine.performBoundsInference();
+		Assert.assertEquals(1, engine.countPossiblePositions());
+	}
+
+
+	/**
+	 * Makes an agent with the given engine, its environment and its steps.
+	 *
+	 * @return the agent.
+	 **/
+	private BarcenasFinder makeAgent(int wDim, int barX, int barY, File stepsFile,
+							   InferenceEngine engine) {
+		BarcenasFinder BAgent = new BarcenasFinder(wDim, engine, EventSinks.NONE);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(wDim, barX, barY);
+		env.setEventSink(EventSinks.NONE);
+		BAgent.setEnvironment(env);
+		BAgent.loadListOfSteps(NUM_STEPS, stepsFile.getPath());
+		return BAgent;
+	}
+
+
+	/**
+	 * Makes the message that asks the environment about sound at (x,y).
+	 *
+	 * @return the message.
+	 **/
+	private static AMessage soundsAt(int x, int y) {
+		return new AMessage(MessageKind.SOUNDSAT, x, y);
+	}
+
+
+	/**
+	 * Writes a steps file with random positions of the world.
+	 *
+	 * @return the steps file.
+	 **/
+	private static File writeRandomSteps(int wDim, Random random) throws IOException {
+		File stepsFile = File.createTempFile("steps", ".txt");
+		PrintWriter writer = new PrintWriter(stepsFile);
+		for (int step = 0; step < NUM_STEPS; step++) {
+			writer.print((random.nextInt(wDim) + 1) + "," + (random.nextInt(wDim) + 1) + " ");
+		}
+		writer.println();
+		writer.close();
+		return stepsFile;
+	}
+
+}
@@ -0,0 +1,131 @@
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.BatchRunner;
+import apryraz.bworld.EventLevel;
+import apryraz.bworld.EventSink;
+import apryraz.bworld.EventType;
+import apryraz.bworld.InferenceEngines;
+import apryraz.bworld.Position;
+import apryraz.bworld.Scenario;
+import apryraz.bworld.ScenarioResult;
+import apryraz.bworld.StepMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class for testing the localisation of Barcenas at a single position and
+ * the steps of the agent after it.
+ **/
+public class LocalisationTest {
+
+	/**
+	 * Makes an agent in a world of dimension 4 with Barcenas at (3,2), whose
+	 * first step is at the position of Barcenas, so that it localises it.
+	 *
+	 * @param events destination of the events of the agent.
+	 * @return the agent.
+	 **/
+	private BarcenasFinder makeAgent(EventSink events) {
+		BarcenasFinder BAgent = new BarcenasFinder(4, InferenceEngines.create("sat,full", 4), events);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(4, 3, 2);
+		env.setEventSink(events);
+		BAgent.setEnvironment(env);
+		List<Position> steps = new ArrayList<>();
+		steps.add(new Position(3, 2));
+		steps.add(new Position(2, 2));
+		steps.add(new Position(1, 2));
+		BAgent.setListOfSteps(steps);
+		return BAgent;
+	}
+
+
+	/**
+	 * Checks that the agent sends one localisation event with the position of
+	 * Barcenas, and that its later steps do not use the solver.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void localisedOnceThenNoInference() throws ContradictionException, TimeoutException {
+		EventSinkTest.RecordingSink sink = new EventSinkTest.RecordingSink(EventLevel.INFO);
+		BarcenasFinder BAgent = makeAgent(sink);
+		Assert.assertFalse(BAgent.isLocalised());
+		Assert.assertEquals(0, BAgent.getStepsToLocalise());
+
+		StepMetrics first = BAgent.runNextStep();
+		Assert.assertTrue(BAgent.isLocalised());
+		Assert.assertEquals(1, BAgent.getStepsToLocalise());
+		Assert.assertEquals(3, BAgent.getLocalisedX());
+		Assert.assertEquals(2, BAgent.getLocalisedY());
+		Assert.assertEquals(1, first.getCandidatesLeft());
+		Assert.assertTrue(first.getSolverCalls() > 0);
+
+		for (int step = 2; step <= 3; step++) {
+			StepMetrics metrics = BAgent.runNextStep();
+			Assert.assertEquals(step, metrics.getStepNumber());
+			Assert.assertEquals(0, metrics.getSolverCalls());
+			Assert.assertEquals(1, metrics.getCandidatesLeft());
+		}
+		Assert.assertEquals(1, BAgent.getAgentX());
+		Assert.assertEquals(1, BAgent.getStepsToLocalise());
+		BAgent.shutdown();
+		Assert.assertEquals(1, Collections.frequency(sink.types, EventType.LOCALISED));
+		Assert.assertEquals("3,2", sink.arguments.get(sink.types.indexOf(EventType.LOCALISED)));
+	}
+
+
+	/**
+	 * Checks that the agent can stop moving once Barcenas is localised.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void stopsMovingWhenLocalised() throws ContradictionException, TimeoutException {
+		BarcenasFinder BAgent = makeAgent(new EventSinkTest.RecordingSink(EventLevel.INFO));
+		BAgent.setStopMovingWhenLocalised(true);
+		for (int step = 0; step < 3; step++) {
+			BAgent.runNextStep();
+		}
+		BAgent.shutdown();
+		Assert.assertEquals(3, BAgent.getAgentX());
+		Assert.assertEquals(2, BAgent.getAgentY());
+	}
+
+
+	/**
+	 * Checks that the batch runner does not perform the steps of a scenario
+	 * after Barcenas is localised.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void batchStopsWhenLocalised() throws ContradictionException, TimeoutException {
+		List<Position> steps = new ArrayList<>();
+		steps.add(new Position(3, 2));
+		for (int step = 0; step < 20; step++) {
+			steps.add(new Position(1 + step % 4, 1 + step / 4 % 4));
+		}
+		Scenario scenario = new Scenario("localised", 4, 3, 2, steps);
+		ScenarioResult result = BatchRunner.runScenario(scenario, "sat,full");
+		Assert.assertEquals(1, result.getStepsToLocalise());
+		Assert.assertEquals(1, result.getStepsPerformed());
+
+		List<Position> oneStep = new ArrayList<>();
+		oneStep.add(new Position(3, 2));
+		ScenarioResult single = BatchRunner.runScenario(new Scenario("single", 4, 3, 2, oneStep), "sat,full");
+		Assert.assertEquals(single.getSolverCalls(), result.getSolverCalls());
+	}
+
+}
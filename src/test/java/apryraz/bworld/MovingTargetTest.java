@@ -0,0 +1,278 @@
+import apryraz.bworld.AMessage;
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.Directions;
+import apryraz.bworld.EventLevel;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.EventType;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.InferenceEngines;
+import apryraz.bworld.InferenceMode;
+import apryraz.bworld.MessageKind;
+import apryraz.bworld.SatInferenceEngine;
+import apryraz.bworld.StepMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class for testing the moving-target mode of the SAT engine, where only
+ * the readings of the last steps are kept in the formula.
+ **/
+public class MovingTargetTest {
+
+	/**
+	 * Returns the reading of the sound sensor at a position, with Barcenas
+	 * at another one.
+	 *
+	 * @param wDim     dimension of the world.
+	 * @param barcenas x and y coordinates of Barcenas.
+	 * @param x        x coordinate of the reading.
+	 * @param y        y coordinate of the reading.
+	 * @return mask of Directions of the reading.
+	 **/
+	private static int readingAt(int wDim, int[] barcenas, int x, int y) {
+		BarcenasWorldEnv env = new BarcenasWorldEnv(wDim, barcenas[0], barcenas[1]);
+		env.setEventSink(EventSinks.NONE);
+		return env.acceptMessage(new AMessage(MessageKind.SOUNDSAT, x, y)).getDirections();
+	}
+
+
+	/**
+	 * Moves Barcenas to a random position of the world other than (1,1).
+	 *
+	 * @param wDim     dimension of the world.
+	 * @param barcenas x and y coordinates of Barcenas, updated.
+	 * @param random   source of the positions.
+	 **/
+	private static void moveBarcenas(int wDim, int[] barcenas, Random random) {
+		do {
+			barcenas[0] = 1 + random.nextInt(wDim);
+			barcenas[1] = 1 + random.nextInt(wDim);
+		} while (barcenas[0] == 1 && barcenas[1] == 1);
+	}
+
+
+	/**
+	 * Checks that the positions discarded with a window are the positions that
+	 * a static engine discards with the readings of the window only, so the
+	 * positions discarded by older readings are possible again.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void windowKeepsOnlyTheLastReadings() throws ContradictionException, TimeoutException {
+		int wDim = 5;
+		int window = 3;
+		int numSteps = 9;
+		for (GammaEncoding encoding : GammaEncoding.values()) {
+			Random random = new Random(encoding.ordinal());
+			int[] barcenas = new int[2];
+			int[][] readings = new int[numSteps][3];
+			SatInferenceEngine moving = new SatInferenceEngine(wDim, encoding);
+			moving.setMovingTargetWindow(window);
+			for (int step = 0; step < numSteps; step++) {
+				if (step % window == 0) {
+					moveBarcenas(wDim, barcenas, random);
+				}
+				int x = 1 + random.nextInt(wDim);
+				int y = 1 + random.nextInt(wDim);
+				readings[step] = new int[]{x, y, readingAt(wDim, barcenas, x, y)};
+				moving.startStep();
+				moving.addSoundSensorEvidence(x, y, readings[step][2]);
+				BitSet impossible = moving.performInferenceQuestions();
+
+				SatInferenceEngine fresh = new SatInferenceEngine(wDim, encoding);
+				fresh.startStep();
+				for (int r = Math.max(0, step - window + 1); r <= step; r++) {
+					fresh.addSoundSensorEvidence(readings[r][0], readings[r][1], readings[r][2]);
+				}
+				Assert.assertEquals(encoding + " step " + step, fresh.performInferenceQuestions(), impossible);
+				if (step % window == window - 1) {
+					// All the readings of the window are from the current position
+					Assert.assertFalse(impossible.get((barcenas[0] - 1) * wDim + barcenas[1] - 1));
+				}
+			}
+			Assert.assertTrue(moving.getTotalRetiredClauses() > 0);
+		}
+	}
+
+
+	/**
+	 * Checks that the agent keeps tracking Barcenas after localising it, that
+	 * its state has the new position of Barcenas as possible once the readings
+	 * of the old one leave the window, and that the localisation follows it.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void agentTracksBarcenasAfterLocalisingIt() throws ContradictionException, TimeoutException {
+		int wDim = 4;
+		EventSinkTest.RecordingSink sink = new EventSinkTest.RecordingSink(EventLevel.INFO);
+		BarcenasFinder BAgent = new BarcenasFinder(wDim,
+			   InferenceEngines.create("sat,compact,window=2", wDim), sink);
+		BAgent.setInferenceCadence(1);
+		int[][] positions = {{3, 2}, {2, 2}, {2, 4}, {4, 2}};
+		int[] barcenas = {3, 2};
+		List<AMessage> readings = new ArrayList<>();
+		for (int[] position : positions) {
+			AMessage reading = new AMessage();
+			reading.set(MessageKind.SOUND, position[0], position[1],
+				   readingAt(wDim, barcenas, position[0], position[1]));
+			readings.add(reading);
+			// Barcenas moves to (3,4) once localised
+			barcenas[1] = 4;
+		}
+		Assert.assertEquals(readings.size(), BAgent.ingestEvidence(readings).getStepNumber());
+		BAgent.shutdown();
+
+		Assert.assertTrue(BAgent.isLocalised());
+		Assert.assertFalse(BAgent.hasFinished());
+		Assert.assertEquals(1, BAgent.getStepsToLocalise());
+		Assert.assertEquals(3, BAgent.getLocalisedX());
+		Assert.assertEquals(4, BAgent.getLocalisedY());
+		// Localised first at (3,2), then at the new position of Barcenas
+		List<String> localisations = new ArrayList<>();
+		for (int e = 0; e < sink.types.size(); e++) {
+			if (sink.types.get(e) == EventType.LOCALISED) {
+				localisations.add(sink.arguments.get(e));
+			}
+		}
+		Assert.assertEquals(Arrays.asList("3,2", "3,4"), localisations);
+		// Only the last two readings, taken with Barcenas at (3,4), are kept
+		SatInferenceEngine lastTwo = new SatInferenceEngine(wDim, GammaEncoding.COMPACT);
+		lastTwo.startStep();
+		for (int r = 2; r < positions.length; r++) {
+			lastTwo.addSoundSensorEvidence(positions[r][0], positions[r][1], readings.get(r).getDirections());
+		}
+		Assert.assertEquals(wDim * wDim - lastTwo.performInferenceQuestions().cardinality(),
+			   BAgent.getState().countCandidates());
+		Assert.assertEquals("?", BAgent.getState().get(3, 4));
+	}
+
+
+	/**
+	 * Checks the configurations that cannot use the moving-target mode, and
+	 * that it can be selected in the specification of the engine.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 */
+	@Test
+	public void windowNeedsPerCellInferenceBeforeTheFirstStep() throws ContradictionException {
+		SatInferenceEngine backbone = new SatInferenceEngine(4, GammaEncoding.COMPACT, InferenceMode.BACKBONE);
+		try {
+			backbone.setMovingTargetWindow(2);
+			Assert.fail("The backbone inference mode cannot use a window");
+		} catch (IllegalArgumentException expected) {
+			Assert.assertFalse(backbone.isMovingTarget());
+		}
+
+		SatInferenceEngine started = new SatInferenceEngine(4, GammaEncoding.COMPACT);
+		started.startStep();
+		started.addSoundSensorEvidence(2, 2, Directions.ABOVE);
+		try {
+			started.setMovingTargetWindow(2);
+			Assert.fail("The window cannot be set after adding evidence");
+		} catch (IllegalStateException expected) {
+			Assert.assertFalse(started.isMovingTarget());
+		}
+
+		SatInferenceEngine fromSpec = (SatInferenceEngine) InferenceEngines.create("sat,lazy,window=6", 4);
+		Assert.assertTrue(fromSpec.isMovingTarget());
+		Assert.assertEquals(6, fromSpec.getMovingTargetWindow());
+	}
+
+
+	/**
+	 * Tracks a target that keeps moving during many steps, and checks that
+	 * the solver keeps Gamma and the clauses of the window only, and that the
+	 * propagations of the solver in the last steps are similar to the ones
+	 * of the first steps.
+	 *
+	 * @param wDim     dimension of the world.
+	 * @param encoding encoding of the sound sensor implications.
+	 * @param numSteps number of steps, the first quarter not measured.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	private static void soak(int wDim, GammaEncoding encoding, int numSteps) throws
+		   ContradictionException, TimeoutException {
+		int window = 4;
+		int measuredSteps = numSteps / 4;
+		Random random = new Random(25);
+		int[] barcenas = new int[2];
+		SatInferenceEngine engine = new SatInferenceEngine(wDim, encoding);
+		engine.setMovingTargetWindow(window);
+		long gammaClauses = engine.getNumClauses();
+		StepMetrics gamma = new StepMetrics(0, wDim);
+		engine.fillStepMetrics(gamma);
+		long gammaConstraints = gamma.getNumConstraints();
+		// Sound literals of a reading and, when it fixes the row or the column,
+		// ladder literals or excluded positions
+		int maxStepClauses = 4 + (encoding == GammaEncoding.COMPACT ? 4 * wDim : wDim * wDim);
+
+		long propagations = 0;
+		long firstPropagations = 0;
+		long lastPropagations = 0;
+		for (int step = 0; step < numSteps; step++) {
+			if (step % 10 == 0) {
+				moveBarcenas(wDim, barcenas, random);
+			}
+			int x = 1 + random.nextInt(wDim);
+			int y = 1 + random.nextInt(wDim);
+			engine.startStep();
+			engine.addSoundSensorEvidence(x, y, readingAt(wDim, barcenas, x, y));
+			engine.performInferenceQuestions();
+
+			StepMetrics metrics = new StepMetrics(step + 1, wDim);
+			engine.fillStepMetrics(metrics);
+			String message = encoding + " dimension " + wDim + " step " + step;
+			Assert.assertEquals(message, gammaConstraints + engine.getWindowClauses(),
+				   metrics.getNumConstraints());
+			Assert.assertEquals(message, gammaClauses + engine.getWindowClauses(), engine.getNumClauses());
+			Assert.assertTrue(message, engine.getWindowClauses() <= window * maxStepClauses);
+
+			long stepPropagations = metrics.getSolverStat("propagations") - propagations;
+			propagations += stepPropagations;
+			if (step >= measuredSteps && step < 2 * measuredSteps) {
+				firstPropagations += stepPropagations;
+			} else if (step >= numSteps - measuredSteps) {
+				lastPropagations += stepPropagations;
+			}
+		}
+
+		Assert.assertTrue(engine.getTotalRetiredClauses() >= (numSteps - window) / 2);
+		Assert.assertTrue(encoding + " dimension " + wDim + ": first " + firstPropagations
+			   + " propagations, last " + lastPropagations, lastPropagations <= 2 * firstPropagations);
+		engine.shutdown();
+	}
+
+
+	/**
+	 * Tracks a target that keeps moving during many steps, in small and
+	 * larger worlds and with the compact and the full encodings.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void soakKeepsSolverSizeAndWorkFlat() throws ContradictionException, TimeoutException {
+		soak(5, GammaEncoding.COMPACT, 2000);
+		soak(12, GammaEncoding.COMPACT, 400);
+		soak(8, GammaEncoding.FULL, 400);
+	}
+
+}
@@ -0,0 +1,174 @@
+import apryraz.bworld.AMessage;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.Directions;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.InferenceEngine;
+import apryraz.bworld.IntervalInferenceEngine;
+import apryraz.bworld.MessageKind;
+import apryraz.bworld.SatInferenceEngine;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.BitSet;
+
+/**
+ * Class for testing the evidence of the nine possible readings of the sound
+ * sensor with every inference engine, in several world sizes.
+ **/
+public class SoundEvidenceTest {
+
+	/**
+	 * Dimensions of the worlds checked.
+	 */
+	private static final int[] DIMENSIONS = {4, 5, 8};
+
+
+	/**
+	 * Adds one reading of the sound sensor at (x,y) with Barcenas at (bx,by)
+	 * and checks that the inference discards exactly the positions where the
+	 * reading says that Barcenas is not, besides (1,1) where Barcenas never
+	 * is. Then adds the reading at the position
+	 * of Barcenas and checks that only that position is left.
+	 *
+	 * @param engine engine of a world of dimension wDim.
+	 * @param wDim   the dimension of the world.
+	 * @param x      x coordinate of the reading.
+	 * @param y      y coordinate of the reading.
+	 * @param bx     x coordinate of Barcenas.
+	 * @param by     y coordinate of Barcenas.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	private void checkReading(InferenceEngine engine, int wDim, int x, int y, int bx, int by)
+		   throws ContradictionException, TimeoutException {
+		BarcenasWorldEnv env = new BarcenasWorldEnv(wDim, bx, by);
+		env.setEventSink(EventSinks.NONE);
+		AMessage answer = env.acceptMessage(new AMessage(MessageKind.SOUNDSAT, x, y));
+		String reading = "world " + wDim + " reading " + Directions.toString(answer.getDirections())
+			   + " at (" + x + "," + y + ") engine " + engine.getClass().getSimpleName();
+
+		engine.startStep();
+		engine.addSoundSensorEvidence(x, y, answer.getDirections());
+		BitSet discarded = engine.performInferenceQuestions();
+		for (int i = 1; i <= wDim; i++) {
+			for (int j = 1; j <= wDim; j++) {
+				boolean possible = (i != 1 || j != 1) && Integer.signum(i - x) == Integer.signum(bx - x)
+					   && Integer.signum(j - y) == Integer.signum(by - y);
+				Assert.assertEquals(reading + " position (" + i + "," + j + ")",
+					   !possible, discarded.get((i - 1) * wDim + (j - 1)));
+			}
+		}
+
+		engine.startStep();
+		engine.addSoundSensorEvidence(bx, by, Directions.ALL);
+		discarded.or(engine.performInferenceQuestions());
+		Assert.assertEquals(reading, wDim * wDim - 1, discarded.cardinality());
+		Assert.assertFalse(reading, discarded.get((bx - 1) * wDim + (by - 1)));
+		engine.shutdown();
+	}
+
+
+	/**
+	 * Checks the nine readings around the centre of the world and the readings
+	 * at the corners of the world, where the region of one direction is empty.
+	 *
+	 * @param encoding encoding of the SAT4J engine, or null for the interval engine.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	private void checkAllReadings(GammaEncoding encoding) throws ContradictionException, TimeoutException {
+		for (int wDim : DIMENSIONS) {
+			int x = wDim / 2 + 1, y = wDim / 2 + 1;
+			for (int dx = -1; dx <= 1; dx++) {
+				for (int dy = -1; dy <= 1; dy++) {
+					checkReading(makeEngine(encoding, wDim), wDim, x, y, x + dx, y + dy);
+				}
+			}
+			checkReading(makeEngine(encoding, wDim), wDim, 1, 1, 1, wDim);
+			checkReading(makeEngine(encoding, wDim), wDim, wDim, wDim, 1, wDim);
+			checkReading(makeEngine(encoding, wDim), wDim, wDim, 1, 2, 1);
+			checkReading(makeEngine(encoding, wDim), wDim, 1, wDim, 1, 2);
+		}
+	}
+
+
+	/**
+	 * Makes an engine for a world.
+	 *
+	 * @param encoding encoding of the SAT4J engine, or null for the interval engine.
+	 * @param wDim     the dimension of the world.
+	 * @return the engine.
+	 **/
+	private static InferenceEngine makeEngine(GammaEncoding encoding, int wDim) {
+		return encoding == null ? new IntervalInferenceEngine(wDim) : new SatInferenceEngine(wDim, encoding);
+	}
+
+
+	/**
+	 * Checks every reading with the full encoding.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test(timeout = 60000)
+	public void readingsWithFullEncoding() throws ContradictionException, TimeoutException {
+		checkAllReadings(GammaEncoding.FULL);
+	}
+
+
+	/**
+	 * Checks every reading with the compact encoding.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test(timeout = 60000)
+	public void readingsWithCompactEncoding() throws ContradictionException, TimeoutException {
+		checkAllReadings(GammaEncoding.COMPACT);
+	}
+
+
+	/**
+	 * Checks every reading with the lazy encoding.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test(timeout = 60000)
+	public void readingsWithLazyEncoding() throws ContradictionException, TimeoutException {
+		checkAllReadings(GammaEncoding.LAZY);
+	}
+
+
+	/**
+	 * Checks every reading with the interval engine.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void readingsWithIntervalEngine() throws ContradictionException, TimeoutException {
+		checkAllReadings(null);
+	}
+
+
+	/**
+	 * Checks that a mask of directions that no reading can have is rejected.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void oppositeDirectionsAreRejected() throws ContradictionException {
+		new SatInferenceEngine(3, GammaEncoding.FULL).addSoundSensorEvidence(2, 2, Directions.LEFT | Directions.RIGHT);
+	}
+
+}
@@ -0,0 +1,106 @@
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.ClauseKind;
+import apryraz.bworld.CsvMetricsSink;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.InferenceMode;
+import apryraz.bworld.JsonLinesMetricsSink;
+import apryraz.bworld.MemoryMetricsSink;
+import apryraz.bworld.SatInferenceEngine;
+import apryraz.bworld.StepMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * Class for testing the measurements of the steps of the agent.
+ **/
+public class StepMetricsTest {
+
+	/**
+	 * Runs the first test and checks that the measurements of every step are
+	 * consistent with the positions discarded and reach all the sinks.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void stepMetricsAreConsistent() throws ContradictionException, TimeoutException {
+		int numSteps = 5;
+		BarcenasFinder BAgent = new BarcenasFinder(4, new SatInferenceEngine(4, GammaEncoding.FULL), EventSinks.NONE);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(4, 3, 3);
+		env.setEventSink(EventSinks.NONE);
+		BAgent.setEnvironment(env);
+		BAgent.loadListOfSteps(numSteps, "tests/steps1.txt");
+		MemoryMetricsSink memory = new MemoryMetricsSink();
+		StringWriter csv = new StringWriter();
+		StringWriter json = new StringWriter();
+		BAgent.addMetricsSink(memory);
+		BAgent.addMetricsSink(new CsvMetricsSink(csv));
+		BAgent.addMetricsSink(new JsonLinesMetricsSink(json));
+
+		long previousDiscarded = 0;
+		for (int step = 1; step <= numSteps; step++) {
+			StepMetrics metrics = BAgent.runNextStep();
+			Assert.assertEquals(step, metrics.getStepNumber());
+			Assert.assertEquals(metrics.getSolverCalls(),
+				   metrics.getSatisfiableAnswers() + metrics.getUnsatisfiableAnswers());
+			Assert.assertEquals(metrics.getPositionsDiscarded(),
+				   metrics.getUnsatisfiableAnswers() + metrics.getUnitAnswers());
+			Assert.assertEquals(BAgent.getState().countCandidates(), metrics.getCandidatesLeft());
+			Assert.assertEquals(previousDiscarded, metrics.getClausesAdded(ClauseKind.PAST));
+			Assert.assertTrue(metrics.getClausesAdded(ClauseKind.EVIDENCE) > 0);
+			Assert.assertEquals(step == 1, metrics.getClausesAdded(ClauseKind.GAMMA) > 0);
+			Assert.assertEquals(4 * 4 * 6, metrics.getNumVariables());
+			Assert.assertTrue(metrics.getNumConstraints() > 0);
+			Assert.assertTrue(metrics.getSolverStats().containsKey("propagations"));
+			Assert.assertTrue(metrics.getInferenceNanos() > 0);
+			Assert.assertTrue(metrics.getTotalNanos() >= metrics.getInferenceNanos());
+			previousDiscarded = metrics.getPositionsDiscarded();
+		}
+
+		List<StepMetrics> stored = memory.getMetrics();
+		Assert.assertEquals(numSteps, stored.size());
+		Assert.assertEquals(1, stored.get(0).getStepNumber());
+		String[] csvLines = csv.toString().split("\\R");
+		Assert.assertEquals(numSteps + 1, csvLines.length);
+		Assert.assertEquals(CsvMetricsSink.HEADER.split(",").length, csvLines[1].split(",").length);
+		String[] jsonLines = json.toString().split("\\R");
+		Assert.assertEquals(numSteps, jsonLines.length);
+		Assert.assertTrue(jsonLines[0].startsWith("{\"step\":1,\"dim\":4,"));
+		Assert.assertTrue(jsonLines[0].contains("\"solverStats\":{"));
+	}
+
+
+	/**
+	 * Checks the answers of the solver counted with the backbone inference mode,
+	 * where only the last call of every inference can have no model.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void backboneAnswersAreCounted() throws ContradictionException, TimeoutException {
+		BarcenasFinder BAgent = new BarcenasFinder(5,
+			   new SatInferenceEngine(5, GammaEncoding.COMPACT, InferenceMode.BACKBONE), EventSinks.NONE);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(5, 5, 5);
+		env.setEventSink(EventSinks.NONE);
+		BAgent.setEnvironment(env);
+		BAgent.loadListOfSteps(7, "tests/steps4.txt");
+		for (int step = 0; step < 7; step++) {
+			StepMetrics metrics = BAgent.runNextStep();
+			Assert.assertEquals(metrics.getPositionsDiscarded() > metrics.getUnitAnswers() ? 1 : 0,
+				   metrics.getUnsatisfiableAnswers());
+			Assert.assertEquals(metrics.getSolverCalls(),
+				   metrics.getSatisfiableAnswers() + metrics.getUnsatisfiableAnswers());
+		}
+	}
+
+}
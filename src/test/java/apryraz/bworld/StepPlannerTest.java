@@ -0,0 +1,97 @@
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.InferenceEngines;
+import apryraz.bworld.StepPlanner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+/**
+ * Class for testing the planning of the steps of the agent.
+ **/
+public class StepPlannerTest {
+
+	/**
+	 * Lets an agent plan its steps until it localises Barcenas, and checks
+	 * that it does it at the position of Barcenas in at most maxSteps steps.
+	 *
+	 * @param wDim            the dimension of the world.
+	 * @param barX            x coordinate of Barcenas position.
+	 * @param barY            y coordinate of Barcenas position.
+	 * @param engineSpec      specification of the inference engine of the agent.
+	 * @param maxMoveDistance maximum distance of a step, 0 for no limit.
+	 * @param maxSteps        maximum number of steps expected.
+	 * @return number of steps planned.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 **/
+	private int localise(int wDim, int barX, int barY, String engineSpec, int maxMoveDistance,
+					 int maxSteps) throws ContradictionException, TimeoutException {
+		BarcenasFinder BAgent = new BarcenasFinder(wDim, InferenceEngines.create(engineSpec, wDim),
+			   EventSinks.NONE);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(wDim, barX, barY);
+		env.setEventSink(EventSinks.NONE);
+		BAgent.setEnvironment(env);
+		StepPlanner planner = new StepPlanner(BAgent, maxMoveDistance);
+		BAgent.setStepSource(planner, maxSteps);
+		String world = "world " + wDim + " Barcenas at (" + barX + "," + barY + ")";
+
+		int lastX = 0, lastY = 0;
+		for (int step = 0; step < maxSteps && BAgent.getState().countCandidates() > 1; step++) {
+			BAgent.runNextStep();
+			if (maxMoveDistance > 0 && lastX > 0) {
+				Assert.assertTrue(world, Math.abs(BAgent.getAgentX() - lastX) <= maxMoveDistance);
+				Assert.assertTrue(world, Math.abs(BAgent.getAgentY() - lastY) <= maxMoveDistance);
+			}
+			lastX = BAgent.getAgentX();
+			lastY = BAgent.getAgentY();
+		}
+		BAgent.shutdown();
+		Assert.assertEquals(world, 1, BAgent.getState().countCandidates());
+		Assert.assertTrue(world, BAgent.getState().isPossible((barX - 1) * wDim + (barY - 1)));
+		return planner.getStepsPlanned();
+	}
+
+
+	/**
+	 * Checks that the planner localises Barcenas at every position of small
+	 * worlds in a logarithmic number of steps.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void plannerLocalisesEveryPosition() throws ContradictionException, TimeoutException {
+		for (int wDim : new int[]{2, 5, 9}) {
+			int maxSteps = 2 * (32 - Integer.numberOfLeadingZeros(wDim)) + 1;
+			for (int barX = 1; barX <= wDim; barX++) {
+				for (int barY = 1; barY <= wDim; barY++) {
+					if (barX != 1 || barY != 1) {
+						localise(wDim, barX, barY, "sat,compact,twosat", 0, maxSteps);
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Checks that the planner localises Barcenas in a large world much faster
+	 * than visiting it, also when the steps are short.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void plannerRespectsMoveDistance() throws ContradictionException, TimeoutException {
+		localise(256, 201, 37, "interval", 0, 18);
+		localise(64, 50, 9, "interval", 4, 64);
+		localise(12, 10, 3, "sat,compact,twosat", 2, 24);
+	}
+
+}
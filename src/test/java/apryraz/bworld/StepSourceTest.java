@@ -0,0 +1,184 @@
+import apryraz.bworld.BarcenasFinder;
+import apryraz.bworld.BarcenasWorldEnv;
+import apryraz.bworld.EventSinks;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.MappedStepSource;
+import apryraz.bworld.SatInferenceEngine;
+import apryraz.bworld.StepSource;
+import apryraz.bworld.StepsConverter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Class for testing the sources of steps read from files.
+ **/
+public class StepSourceTest {
+
+	/**
+	 * Writes a text steps file with random steps, separated by different
+	 * whitespace, and returns their coordinates.
+	 *
+	 * @param file     the file.
+	 * @param numSteps number of steps.
+	 * @param random   random generator of the coordinates.
+	 * @return x and y coordinates of every step, in order.
+	 * @throws IOException when writing the file.
+	 **/
+	private static int[] writeTextSteps(File file, int numSteps, Random random) throws IOException {
+		String[] separators = {" ", "  ", "\n", "\r\n", "\t"};
+		int[] coords = new int[2 * numSteps];
+		PrintWriter writer = new PrintWriter(file);
+		try {
+			for (int step = 0; step < numSteps; step++) {
+				coords[2 * step] = 1 + random.nextInt(100000);
+				coords[2 * step + 1] = 1 + random.nextInt(100000);
+				writer.print(coords[2 * step] + "," + coords[2 * step + 1]
+					   + separators[random.nextInt(separators.length)]);
+			}
+		} finally {
+			writer.close();
+		}
+		return coords;
+	}
+
+
+	/**
+	 * Reads all the steps of a source and checks them.
+	 *
+	 * @param source the source.
+	 * @param coords expected x and y coordinates of every step, in order.
+	 * @throws IOException when reading the steps.
+	 **/
+	private static void checkSteps(StepSource source, int[] coords) throws IOException {
+		try {
+			for (int step = 0; step < coords.length / 2; step++) {
+				Assert.assertTrue("step " + step, source.nextStep());
+				Assert.assertEquals("step " + step, coords[2 * step], source.getX());
+				Assert.assertEquals("step " + step, coords[2 * step + 1], source.getY());
+			}
+			Assert.assertFalse(source.nextStep());
+		} finally {
+			source.close();
+		}
+	}
+
+
+	/**
+	 * Checks that the text and binary formats read the same steps, also
+	 * when the steps are split between windows of the file.
+	 *
+	 * @throws IOException when reading or writing the files.
+	 */
+	@Test
+	public void textAndBinaryFormatsReadTheSameSteps() throws IOException {
+		File text = File.createTempFile("steps", ".txt");
+		File binary = File.createTempFile("steps", ".bin");
+		try {
+			int[] coords = writeTextSteps(text, 5000, new Random(17));
+			checkSteps(new MappedStepSource(text.getPath()), coords);
+			checkSteps(new MappedStepSource(text.getPath(), 37), coords);
+
+			Assert.assertEquals(5000, StepsConverter.convertToBinary(text.getPath(), binary.getPath()));
+			Assert.assertEquals(MappedStepSource.HEADER_BYTES + 5000 * 8, binary.length());
+			checkSteps(new MappedStepSource(binary.getPath()), coords);
+			checkSteps(new MappedStepSource(binary.getPath(), 18), coords);
+		} finally {
+			text.delete();
+			binary.delete();
+		}
+	}
+
+
+	/**
+	 * Checks that a malformed step is reported.
+	 *
+	 * @throws IOException when the step is malformed, as expected.
+	 */
+	@Test(expected = IOException.class)
+	public void malformedStepIsReported() throws IOException {
+		File text = File.createTempFile("steps", ".txt");
+		try {
+			PrintWriter writer = new PrintWriter(text);
+			writer.print("1,2 3;4 5,6");
+			writer.close();
+			StepSource source = new MappedStepSource(text.getPath());
+			try {
+				Assert.assertTrue(source.nextStep());
+				source.nextStep();
+			} finally {
+				source.close();
+			}
+		} finally {
+			text.delete();
+		}
+	}
+
+
+	/**
+	 * Checks that an empty steps file has no steps.
+	 *
+	 * @throws IOException when reading the file.
+	 */
+	@Test
+	public void emptyFileHasNoSteps() throws IOException {
+		File text = File.createTempFile("steps", ".txt");
+		try {
+			checkSteps(new MappedStepSource(text.getPath()), new int[0]);
+		} finally {
+			text.delete();
+		}
+	}
+
+
+	/**
+	 * Checks that the agent reaches the same states with the binary version
+	 * of the steps file of the first test.
+	 *
+	 * @throws IOException            when writing the binary file.
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void agentReadsBinarySteps() throws IOException, ContradictionException, TimeoutException {
+		File binary = File.createTempFile("steps", ".bin");
+		try {
+			StepsConverter.convertToBinary("tests/steps1.txt", binary.getPath());
+			BarcenasFinder textAgent = makeAgent("tests/steps1.txt");
+			BarcenasFinder binaryAgent = makeAgent(binary.getPath());
+			for (int step = 0; step < 5; step++) {
+				textAgent.runNextStep();
+				binaryAgent.runNextStep();
+				Assert.assertEquals("step " + step, textAgent.getState(), binaryAgent.getState());
+			}
+			textAgent.shutdown();
+			binaryAgent.shutdown();
+		} finally {
+			binary.delete();
+		}
+	}
+
+
+	/**
+	 * Makes an agent of the first test that reads its steps from a file.
+	 *
+	 * @param stepsFile the steps file.
+	 * @return the agent.
+	 **/
+	private static BarcenasFinder makeAgent(String stepsFile) {
+		BarcenasFinder BAgent = new BarcenasFinder(4, new SatInferenceEngine(4, GammaEncoding.FULL), EventSinks.NONE);
+		BarcenasWorldEnv env = new BarcenasWorldEnv(4, 3, 3);
+		env.setEventSink(EventSinks.NONE);
+		BAgent.setEnvironment(env);
+		BAgent.loadListOfSteps(5, stepsFile);
+		return BAgent;
+	}
+
+}
@@ -0,0 +1,106 @@
+import apryraz.bworld.TwoSatSolver;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.Random;
+
+/**
+ * Class for testing the 2-SAT solver against the SAT4J solver
+ * with random formulas.
+ **/
+public class TwoSatSolverTest {
+
+	/**
+	 * Adds random clauses, all of them true with a hidden assignment so the
+	 * formula is satisfiable, to both solvers, and checks every few clauses
+	 * that both give the same answer for every literal.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void randomFormulasMatchSat4j() throws ContradictionException, TimeoutException {
+		Random random = new Random(2);
+		for (int f = 0; f < 100; f++) {
+			int numVariables = 3 + random.nextInt(12);
+			boolean[] hidden = new boolean[numVariables + 1];
+			for (int v = 1; v <= numVariables; v++) {
+				hidden[v] = random.nextBoolean();
+			}
+			TwoSatSolver twoSat = new TwoSatSolver(numVariables);
+			ISolver sat4j = SolverFactory.newDefault();
+			sat4j.newVar(numVariables);
+
+			// One at-least-one clause over the true variables of the hidden assignment
+			int[] atLeastOne = new int[3];
+			int found = 0;
+			for (int v = 1; v <= numVariables && found < atLeastOne.length; v++) {
+				if (hidden[v]) {
+					atLeastOne[found++] = v;
+				}
+			}
+			if (found == atLeastOne.length) {
+				addToBoth(twoSat, sat4j, atLeastOne);
+			}
+
+			int numClauses = random.nextInt(3 * numVariables);
+			for (int c = 0; c < numClauses; c++) {
+				int[] clause = new int[1 + random.nextInt(2)];
+				boolean satisfied = false;
+				for (int k = 0; k < clause.length; k++) {
+					int v = 1 + random.nextInt(numVariables);
+					clause[k] = random.nextBoolean() ? v : -v;
+					satisfied |= (clause[k] > 0) == hidden[v];
+				}
+				if (!satisfied) {
+					clause[0] = -clause[0];
+				}
+				addToBoth(twoSat, sat4j, clause);
+				if (c % 8 != 7 && c != numClauses - 1) {
+					continue;
+				}
+				for (int v = 1; v <= numVariables; v++) {
+					for (int literal = -v; literal <= v; literal += 2 * v) {
+						Assert.assertEquals("formula " + f + " literal " + literal,
+							   sat4j.isSatisfiable(new VecInt(new int[]{literal})),
+							   twoSat.isSatisfiable(literal));
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Checks that a clause that contradicts the formula is rejected.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 */
+	@Test(expected = ContradictionException.class)
+	public void contradictionIsDetected() throws ContradictionException {
+		TwoSatSolver twoSat = new TwoSatSolver(3);
+		twoSat.addClause(new int[]{1, 2, 3});
+		twoSat.addClause(new int[]{-1, 2});
+		twoSat.addClause(new int[]{-2});
+		Assert.assertEquals(-1, twoSat.valueOf(1));
+		Assert.assertEquals(1, twoSat.valueOf(3));
+		twoSat.addClause(new int[]{-3});
+	}
+
+
+	/**
+	 * Adds a clause to both solvers.
+	 **/
+	private static void addToBoth(TwoSatSolver twoSat, ISolver sat4j, int[] clause)
+		   throws ContradictionException {
+		twoSat.addClause(clause);
+		sat4j.addClause(new VecInt(clause));
+	}
+
+}
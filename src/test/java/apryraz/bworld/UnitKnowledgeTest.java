@@ -0,0 +1,61 @@
+import apryraz.bworld.Directions;
+import apryraz.bworld.GammaEncoding;
+import apryraz.bworld.SatInferenceEngine;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.BitSet;
+
+/**
+ * Class for testing the positions discarded from the unit clauses of the
+ * formula, without asking the solver.
+ **/
+public class UnitKnowledgeTest {
+
+	/**
+	 * Checks that the first inference, without evidence, discards only the
+	 * first position, from the unit clauses of Gamma, that a reading that
+	 * fixes the column of Barcenas discards its excluded candidates from their
+	 * unit clauses, and that the positions discarded are the same as the ones
+	 * of the compact encoding, whose evidence has no such unit clauses.
+	 *
+	 * @throws ContradictionException if inserting contradictory information to solver.
+	 * @throws TimeoutException       if solver's isSatisfiable operation spends more
+	 *                                time computing than a certain timeout.
+	 */
+	@Test
+	public void unitClausesAnswerQueries() throws ContradictionException, TimeoutException {
+		SatInferenceEngine full = new SatInferenceEngine(6, GammaEncoding.FULL);
+		SatInferenceEngine compact = new SatInferenceEngine(6, GammaEncoding.COMPACT);
+
+		full.startStep();
+		BitSet fullFirst = full.performInferenceQuestions();
+		Assert.assertEquals(1, full.getLastUnitAnswers());
+		Assert.assertEquals(1, fullFirst.cardinality());
+		Assert.assertTrue(fullFirst.get(0));
+		Assert.assertTrue(full.getAverageQueryNanos() > 0);
+
+		compact.startStep();
+		Assert.assertEquals(fullFirst, compact.performInferenceQuestions());
+
+		// Heard only below: Barcenas is in the column of the reading
+		full.startStep();
+		full.addSoundSensorEvidence(4, 2, Directions.BELOW);
+		BitSet fullSecond = full.performInferenceQuestions();
+		Assert.assertTrue(full.getLastUnitAnswers() > 0);
+		Assert.assertEquals(6 * 6, full.getLastInferenceQueries() + full.getLastSkippedQueries());
+		Assert.assertTrue(full.getLastUnitAnswers() + full.getLastWitnessedQueries()
+			   <= full.getLastSkippedQueries());
+		Assert.assertEquals(1 + full.getLastUnitAnswers(), full.getTotalUnitAnswers());
+
+		compact.startStep();
+		compact.addSoundSensorEvidence(4, 2, Directions.BELOW);
+		Assert.assertEquals(fullSecond, compact.performInferenceQuestions());
+
+		full.shutdown();
+		compact.shutdown();
+	}
+
+}